@@ -0,0 +1,147 @@
+package es.unizar.eina.notepad;
+
+import android.app.Application;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+
+import androidx.core.content.ContextCompat;
+
+import es.unizar.eina.notepad.database.AnaliticaRepository;
+import es.unizar.eina.notepad.database.OcupacionRepository;
+import es.unizar.eina.notepad.database.QuadRepository;
+import es.unizar.eina.notepad.database.ReservaQuadRepository;
+import es.unizar.eina.notepad.database.ReservaRepository;
+import es.unizar.eina.notepad.database.TrazaConsultas;
+import es.unizar.eina.notepad.domain.FormatoFechas;
+
+/**
+ * Clase Application de Bookuad y contenedor de los repositorios.
+ * <p>
+ * Es dueña de una única instancia de cada repositorio, creada la primera
+ * vez que se pide y compartida por todos los ViewModels y activities. Así
+ * cada consulta observable (LiveData) se registra una sola vez en Room, en
+ * lugar de una por pantalla, y abrir una pantalla no reserva repositorios
+ * nuevos. El índice de ocupación también es único: el contenedor lo crea y se
+ * lo pasa a los repositorios que lo mantienen al escribir.
+ * </p>
+ * <p>
+ * Se registra en el manifiesto con {@code android:name}. Desde cualquier
+ * contexto se accede con {@link #de(Context)}.
+ * </p>
+ * <p>
+ * También escucha los cambios de zona horaria del sistema: las fechas
+ * memorizadas por {@link FormatoFechas} y el índice de ocupación se
+ * calculan por días locales y se descartan, y los resúmenes de los informes
+ * se recalculan en la nueva zona.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see QuadRepository
+ * @see ReservaRepository
+ * @see ReservaQuadRepository
+ */
+public class BookuadApplication extends Application {
+
+    private volatile QuadRepository mQuadRepository;
+    private volatile ReservaRepository mReservaRepository;
+    private volatile ReservaQuadRepository mReservaQuadRepository;
+    private volatile OcupacionRepository mOcupacionRepository;
+    private volatile AnaliticaRepository mAnaliticaRepository;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Antes de que nada abra la base de datos: la traza de consultas se decide al abrirla.
+        // Solo en depuración: el registro guarda los parámetros de las consultas (datos de clientes)
+        if (BuildConfig.DEBUG) TrazaConsultas.configurar(this);
+        ContextCompat.registerReceiver(this, new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                alCambiarZona();
+            }
+        }, new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED), ContextCompat.RECEIVER_NOT_EXPORTED);
+        // La zona pudo cambiar con la aplicación cerrada
+        getAnaliticaRepository().comprobarZonaAsync();
+    }
+
+    // Todo lo que se calcula por días locales queda en la zona anterior
+    private void alCambiarZona() {
+        FormatoFechas.reiniciar();
+        OcupacionRepository ocupacion = mOcupacionRepository;
+        if (ocupacion != null) ocupacion.alCambiarZona();
+        getAnaliticaRepository().comprobarZonaAsync();
+    }
+
+    /**
+     * Devuelve la instancia de la aplicación a partir de cualquier contexto.
+     *
+     * @param context Contexto de la aplicación, una activity o un servicio.
+     * @return Aplicación Bookuad.
+     */
+    public static BookuadApplication de(Context context) {
+        return (BookuadApplication) context.getApplicationContext();
+    }
+
+    /** @return Repositorio de quads compartido. */
+    public QuadRepository getQuadRepository() {
+        QuadRepository repo = mQuadRepository;
+        if (repo == null) {
+            synchronized (this) {
+                if (mQuadRepository == null) mQuadRepository = new QuadRepository(this, getOcupacionRepository());
+                repo = mQuadRepository;
+            }
+        }
+        return repo;
+    }
+
+    /** @return Repositorio de reservas compartido. */
+    public ReservaRepository getReservaRepository() {
+        ReservaRepository repo = mReservaRepository;
+        if (repo == null) {
+            synchronized (this) {
+                if (mReservaRepository == null) mReservaRepository = new ReservaRepository(this, getOcupacionRepository());
+                repo = mReservaRepository;
+            }
+        }
+        return repo;
+    }
+
+    /** @return Repositorio de asociaciones reserva-quad compartido. */
+    public ReservaQuadRepository getReservaQuadRepository() {
+        ReservaQuadRepository repo = mReservaQuadRepository;
+        if (repo == null) {
+            synchronized (this) {
+                if (mReservaQuadRepository == null) mReservaQuadRepository = new ReservaQuadRepository(this, getOcupacionRepository());
+                repo = mReservaQuadRepository;
+            }
+        }
+        return repo;
+    }
+
+    /** @return Repositorio del índice de ocupación compartido. */
+    public OcupacionRepository getOcupacionRepository() {
+        OcupacionRepository repo = mOcupacionRepository;
+        if (repo == null) {
+            synchronized (this) {
+                if (mOcupacionRepository == null) mOcupacionRepository = new OcupacionRepository(this);
+                repo = mOcupacionRepository;
+            }
+        }
+        return repo;
+    }
+
+    /** @return Repositorio de informes compartido. */
+    public AnaliticaRepository getAnaliticaRepository() {
+        AnaliticaRepository repo = mAnaliticaRepository;
+        if (repo == null) {
+            synchronized (this) {
+                if (mAnaliticaRepository == null) mAnaliticaRepository = new AnaliticaRepository(this);
+                repo = mAnaliticaRepository;
+            }
+        }
+        return repo;
+    }
+}
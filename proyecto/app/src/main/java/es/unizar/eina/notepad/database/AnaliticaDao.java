@@ -0,0 +1,142 @@
+package es.unizar.eina.notepad.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import java.util.Collections;
+import java.util.List;
+
+import es.unizar.eina.notepad.domain.FormatoFechas;
+
+/**
+ * Data Access Object (DAO) para los informes de ingresos y utilización.
+ * <p>
+ * Las consultas leen la tabla precalculada {@link ResumenDiario} por rango
+ * de días sobre su clave primaria. Los métodos de mantenimiento suman o
+ * restan la aportación de una reserva; los repositorios los llaman dentro
+ * de la misma transacción que modifica la reserva o sus asociaciones
+ * (restar antes de escribir, sumar después).
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see ResumenDiario
+ * @see AnaliticaRepository
+ */
+@Dao
+public interface AnaliticaDao {
+
+    /**
+     * Ingresos por día en un rango de días (ambos incluidos).
+     *
+     * @param desde Primer día (días desde la época).
+     * @param hasta Último día (días desde la época).
+     * @return Ingresos de cada día con reservas, ordenados por fecha.
+     */
+    @Query("SELECT date(dia * 86400, 'unixepoch') AS periodo, SUM(ingresos) AS ingresos "
+            + "FROM resumen_diario WHERE dia BETWEEN :desde AND :hasta GROUP BY dia ORDER BY dia")
+    List<IngresoPeriodo> getIngresosDiarios(long desde, long hasta);
+
+    /**
+     * Ingresos por mes en un rango de días (ambos incluidos).
+     *
+     * @param desde Primer día (días desde la época).
+     * @param hasta Último día (días desde la época).
+     * @return Ingresos de cada mes con reservas, ordenados por fecha.
+     */
+    @Query("SELECT strftime('%Y-%m', dia * 86400, 'unixepoch') AS periodo, SUM(ingresos) AS ingresos "
+            + "FROM resumen_diario WHERE dia BETWEEN :desde AND :hasta GROUP BY periodo ORDER BY periodo")
+    List<IngresoPeriodo> getIngresosMensuales(long desde, long hasta);
+
+    /**
+     * Ingresos totales en un rango de días (ambos incluidos).
+     *
+     * @param desde Primer día (días desde la época).
+     * @param hasta Último día (días desde la época).
+     * @return Suma de ingresos, 0 si no hay reservas.
+     */
+    @Query("SELECT IFNULL(SUM(ingresos), 0) FROM resumen_diario WHERE dia BETWEEN :desde AND :hasta")
+    double getIngresosTotales(long desde, long hasta);
+
+    /**
+     * Días reservados de cada quad en un rango de días (ambos incluidos).
+     *
+     * @param desde Primer día (días desde la época).
+     * @param hasta Último día (días desde la época).
+     * @return Días reservados por quad; los quads sin reservas no aparecen.
+     */
+    @Query("SELECT quad_id, SUM(dias_reservados) AS dias_reservados FROM resumen_diario "
+            + "WHERE dia BETWEEN :desde AND :hasta AND quad_id > 0 GROUP BY quad_id ORDER BY quad_id")
+    List<UtilizacionQuad> getUtilizacion(long desde, long hasta);
+
+    /*
+     * Mantenimiento de la tabla. No deben llamarse fuera de una transacción.
+     */
+
+    @Query("UPDATE resumen_diario SET ingresos = ingresos + :ingresos, dias_reservados = dias_reservados + :dias "
+            + "WHERE dia = :dia AND quad_id = :quadId")
+    int acumular(long dia, int quadId, double ingresos, int dias);
+
+    @Insert(onConflict = OnConflictStrategy.ABORT)
+    void insertar(ResumenDiario resumen);
+
+    @Query("DELETE FROM resumen_diario WHERE quad_id = :quadId AND dia BETWEEN :desde AND :hasta AND dias_reservados <= 0")
+    void borrarVacios(int quadId, long desde, long hasta);
+
+    @Query("DELETE FROM resumen_diario")
+    void deleteAll();
+
+    @Query("SELECT * FROM reserva WHERE id = :reservaId")
+    Reserva getReserva(int reservaId);
+
+    @Query("SELECT id FROM reserva")
+    List<Integer> getReservaIds();
+
+    @Query("SELECT quad_id FROM reserva_quad WHERE reserva_id = :reservaId")
+    List<Integer> getQuadIds(int reservaId);
+
+    /**
+     * Suma (signo 1) o resta (signo -1) la aportación de una reserva tal
+     * como está ahora en la base de datos.
+     * <p>
+     * El precio se reparte a partes iguales entre los días de la reserva
+     * (intervalo cerrado de días locales) y sus quads.
+     * </p>
+     *
+     * @param reservaId Identificador de la reserva.
+     * @param signo 1 para sumar, -1 para restar.
+     */
+    @Transaction
+    default void aplicarReserva(int reservaId, int signo) {
+        Reserva reserva = getReserva(reservaId);
+        if (reserva == null) return;
+        long desde = FormatoFechas.diaEpoch(reserva.getFechaRecogida());
+        long hasta = Math.max(desde, FormatoFechas.diaEpoch(reserva.getFechaDevolucion()));
+        List<Integer> quadIds = getQuadIds(reservaId);
+        if (quadIds.isEmpty()) quadIds = Collections.singletonList(0);
+        double parte = signo * reserva.getPrecioTotal() / ((hasta - desde + 1) * quadIds.size());
+        for (int quadId : quadIds) {
+            for (long dia = desde; dia <= hasta; dia++) {
+                if (acumular(dia, quadId, parte, signo) == 0 && signo > 0) {
+                    insertar(new ResumenDiario(dia, quadId, parte, signo));
+                }
+            }
+            if (signo < 0) borrarVacios(quadId, desde, hasta);
+        }
+    }
+
+    /**
+     * Vuelve a calcular la tabla completa a partir de todas las reservas.
+     * <p>
+     * Solo es necesario tras cargas masivas que no pasan por los repositorios.
+     * </p>
+     */
+    @Transaction
+    default void reconstruir() {
+        deleteAll();
+        for (int reservaId : getReservaIds()) aplicarReserva(reservaId, 1);
+    }
+}
@@ -0,0 +1,204 @@
+package es.unizar.eina.notepad.database;
+
+import android.app.Application;
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+import es.unizar.eina.notepad.domain.FormatoFechas;
+
+/**
+ * Repositorio de los informes de ingresos y utilización de quads.
+ * <p>
+ * Las consultas leen la tabla precalculada {@link ResumenDiario}, que los
+ * repositorios de reservas, asociaciones y quads mantienen al día en la
+ * misma transacción que cada escritura. Un informe de un año recorre como
+ * mucho 365 días × número de quads filas por clave primaria, sin importar
+ * cuántas reservas haya.
+ * </p>
+ * <p>
+ * Las fechas se reciben en milisegundos y se convierten a días locales;
+ * ambos extremos del rango se incluyen. Como los días de la tabla dependen
+ * de la zona horaria, se guarda la zona con la que se calcularon y la tabla
+ * se recalcula entera si cambia (ver {@link #comprobarZonaAsync()}).
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see AnaliticaDao
+ * @see ResumenDiario
+ */
+public class AnaliticaRepository {
+
+    private static final String PREFERENCIAS = "analitica";
+    private static final String PREF_ZONA = "zona";
+
+    private final AnaliticaDao mAnaliticaDao;
+    private final Application mApplication;
+
+    /**
+     * Constructor del repositorio.
+     *
+     * @param application Contexto de la aplicación para acceder a la base de datos.
+     */
+    public AnaliticaRepository(Application application) {
+        mApplication = application;
+        mAnaliticaDao = AppRoomDatabase.getDatabase(application).analiticaDao();
+    }
+
+    /**
+     * Ingresos de cada día del rango, sin bloquear al llamante.
+     *
+     * @param desde Fecha inicial en milisegundos.
+     * @param hasta Fecha final en milisegundos.
+     * @return Futuro con los ingresos de los días con reservas, ordenados por fecha.
+     */
+    public CompletableFuture<List<IngresoPeriodo>> getIngresosDiariosAsync(long desde, long hasta) {
+        return OperacionesBD.enviar("AnaliticaRepository.getIngresosDiarios", AppRoomDatabase.databaseReadExecutor, () ->
+                mAnaliticaDao.getIngresosDiarios(FormatoFechas.diaEpoch(desde), FormatoFechas.diaEpoch(hasta)));
+    }
+
+    /**
+     * Ingresos de cada mes del rango, sin bloquear al llamante.
+     *
+     * @param desde Fecha inicial en milisegundos.
+     * @param hasta Fecha final en milisegundos.
+     * @return Futuro con los ingresos de los meses con reservas, ordenados por fecha.
+     */
+    public CompletableFuture<List<IngresoPeriodo>> getIngresosMensualesAsync(long desde, long hasta) {
+        return OperacionesBD.enviar("AnaliticaRepository.getIngresosMensuales", AppRoomDatabase.databaseReadExecutor, () ->
+                mAnaliticaDao.getIngresosMensuales(FormatoFechas.diaEpoch(desde), FormatoFechas.diaEpoch(hasta)));
+    }
+
+    /**
+     * Ingresos totales del rango, sin bloquear al llamante.
+     *
+     * @param desde Fecha inicial en milisegundos.
+     * @param hasta Fecha final en milisegundos.
+     * @return Futuro con la suma de ingresos en euros.
+     */
+    public CompletableFuture<Double> getIngresosTotalesAsync(long desde, long hasta) {
+        return OperacionesBD.enviar("AnaliticaRepository.getIngresosTotales", AppRoomDatabase.databaseReadExecutor, () ->
+                mAnaliticaDao.getIngresosTotales(FormatoFechas.diaEpoch(desde), FormatoFechas.diaEpoch(hasta)));
+    }
+
+    /**
+     * Ingresos totales del rango.
+     *
+     * @param desde Fecha inicial en milisegundos.
+     * @param hasta Fecha final en milisegundos.
+     * @return Suma de ingresos en euros, o -1 en caso de error.
+     */
+    public double getIngresosTotales(long desde, long hasta) {
+        return OperacionesBD.esperar("AnaliticaRepository.getIngresosTotales", getIngresosTotalesAsync(desde, hasta), -1.0);
+    }
+
+    /**
+     * Días reservados de cada quad en el rango, sin bloquear al llamante.
+     * <p>
+     * La utilización de cada quad se obtiene con
+     * {@link UtilizacionQuad#getUtilizacion(int)} pasando
+     * {@link #diasDelRango(long, long)}.
+     * </p>
+     *
+     * @param desde Fecha inicial en milisegundos.
+     * @param hasta Fecha final en milisegundos.
+     * @return Futuro con los días reservados por quad; los quads sin reservas no aparecen.
+     */
+    public CompletableFuture<List<UtilizacionQuad>> getUtilizacionAsync(long desde, long hasta) {
+        return OperacionesBD.enviar("AnaliticaRepository.getUtilizacion", AppRoomDatabase.databaseReadExecutor, () ->
+                mAnaliticaDao.getUtilizacion(FormatoFechas.diaEpoch(desde), FormatoFechas.diaEpoch(hasta)));
+    }
+
+    /**
+     * Días disponibles de un rango, tal como los cuentan los informes.
+     *
+     * @param desde Fecha inicial en milisegundos.
+     * @param hasta Fecha final en milisegundos.
+     * @return Número de días locales entre ambas fechas, ambas incluidas.
+     */
+    public static int diasDelRango(long desde, long hasta) {
+        return (int) Math.max(0, FormatoFechas.diaEpoch(hasta) - FormatoFechas.diaEpoch(desde) + 1);
+    }
+
+    /**
+     * Recalcula la tabla de resúmenes a partir de todas las reservas, sin bloquear al llamante.
+     *
+     * @return Futuro que se completa al terminar.
+     */
+    public CompletableFuture<Void> reconstruirAsync() {
+        return OperacionesBD.enviar("AnaliticaRepository.reconstruir", AppRoomDatabase.databaseWriteExecutor, () -> {
+            mAnaliticaDao.reconstruir();
+            return null;
+        });
+    }
+
+    /**
+     * Recalcula la tabla de resúmenes si se calculó en otra zona horaria.
+     * <p>
+     * Debe llamarse al arrancar y cuando cambia la zona del sistema, después
+     * de {@link FormatoFechas#reiniciar()}. Se ejecuta en el hilo escritor,
+     * así que ninguna escritura intermedia usa días de la zona anterior
+     * mientras se recalcula.
+     * </p>
+     *
+     * @return Futuro que se completa con true si se ha recalculado.
+     */
+    public CompletableFuture<Boolean> comprobarZonaAsync() {
+        return OperacionesBD.enviar("AnaliticaRepository.comprobarZona", AppRoomDatabase.databaseWriteExecutor, () -> {
+            SharedPreferences prefs = mApplication.getSharedPreferences(PREFERENCIAS, Context.MODE_PRIVATE);
+            String zona = TimeZone.getDefault().getID();
+            String anterior = prefs.getString(PREF_ZONA, null);
+            if (zona.equals(anterior)) return false;
+            // Sin zona guardada la tabla se calculó con la del dispositivo hasta ahora: se recalcula una vez
+            mAnaliticaDao.reconstruir();
+            prefs.edit().putString(PREF_ZONA, zona).apply();
+            return true;
+        });
+    }
+
+    /**
+     * Guarda la zona horaria actual como la de la tabla de resúmenes.
+     * <p>
+     * Se llama cuando la tabla se acaba de calcular entera en la zona
+     * actual: al crear la base de datos y al regenerar sus datos. Así
+     * {@link #comprobarZonaAsync()} no la recalcula sin necesidad en el
+     * primer arranque.
+     * </p>
+     *
+     * @param context Contexto de la aplicación.
+     */
+    static void guardarZona(Context context) {
+        context.getSharedPreferences(PREFERENCIAS, Context.MODE_PRIVATE).edit()
+                .putString(PREF_ZONA, TimeZone.getDefault().getID()).apply();
+    }
+
+    /**
+     * Ejecuta una escritura que cambia las asociaciones de unas reservas
+     * manteniendo sus resúmenes, todo en una única transacción.
+     * <p>
+     * Resta la aportación de cada reserva antes de escribir y la vuelve a
+     * sumar después, con los quads que tenga entonces.
+     * </p>
+     *
+     * @param db Base de datos.
+     * @param reservaIds Reservas afectadas por la escritura.
+     * @param escritura Escritura a ejecutar.
+     * @param <T> Tipo del resultado de la escritura.
+     * @return Resultado de la escritura.
+     */
+    static <T> T conResumenes(AppRoomDatabase db, Collection<Integer> reservaIds, Callable<T> escritura) {
+        AnaliticaDao dao = db.analiticaDao();
+        return db.runInTransaction(() -> {
+            for (int reservaId : reservaIds) dao.aplicarReserva(reservaId, -1);
+            T resultado = escritura.call();
+            for (int reservaId : reservaIds) dao.aplicarReserva(reservaId, 1);
+            return resultado;
+        });
+    }
+}
@@ -8,6 +8,7 @@ import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -16,16 +17,31 @@ import java.util.concurrent.Executors;
  * <p>
  * Esta clase abstracta define la configuración de la base de datos SQLite
  * utilizando la librería Room. Incluye tres entidades: {@link Quad},
- * {@link Reserva} y {@link ReservaQuad}.
+ * {@link Reserva} y {@link ReservaQuad}, más los índices de texto completo
+ * {@link QuadFts} y {@link ReservaFts} para las búsquedas, la tabla
+ * {@link Contador} con el número de quads y reservas, y la tabla
+ * {@link ResumenDiario} con los resúmenes precalculados de los informes.
+ * </p>
+ * <p>
+ * Los contadores los mantienen triggers de SQLite creados al abrir la base
+ * de datos, así que los límites de quads y reservas se comprueban con una
+ * lectura por clave en lugar de un {@code COUNT(*)} en cada inserción.
  * </p>
  * <p>
  * Implementa el patrón Singleton para garantizar una única instancia de
- * la base de datos en toda la aplicación. Proporciona un ExecutorService
- * para ejecutar operaciones de escritura en hilos de fondo.
+ * la base de datos en toda la aplicación. Proporciona dos carriles de
+ * ejecución en segundo plano: un único hilo escritor, por el que pasan todas
+ * las escrituras y transacciones en orden, y un pool acotado de lectores.
+ * </p>
+ * <p>
+ * La base de datos se abre en modo WAL (write-ahead logging), de modo que las
+ * lecturas del pool no esperan a que termine una escritura en curso: SQLite
+ * sirve a los lectores la última versión confirmada mientras el escritor
+ * trabaja en el log.
  * </p>
  * <p>
  * Al crear la base de datos por primera vez, se insertan datos de ejemplo
- * para facilitar las pruebas (5 quads, 5 reservas y sus relaciones).
+ * para facilitar las pruebas (ver {@link #setPerfilInicial}).
  * </p>
  *
  * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
@@ -37,7 +53,9 @@ import java.util.concurrent.Executors;
  * @see ReservaDao
  * @see ReservaQuadDao
  */
-@Database(entities = {Quad.class, Reserva.class, ReservaQuad.class}, version = 4, exportSchema = false)
+@Database(entities = {Quad.class, Reserva.class, ReservaQuad.class, QuadFts.class, ReservaFts.class,
+        Contador.class, ResumenDiario.class},
+        version = 9, exportSchema = false)
 public abstract class AppRoomDatabase extends RoomDatabase {
 
     /**
@@ -58,28 +76,59 @@ public abstract class AppRoomDatabase extends RoomDatabase {
      */
     public abstract ReservaQuadDao reservaQuadDao();
 
+    /**
+     * Proporciona acceso al DAO de Contador.
+     * @return Instancia del ContadorDao.
+     */
+    public abstract ContadorDao contadorDao();
+
+    /**
+     * Proporciona acceso al DAO de los informes.
+     * @return Instancia del AnaliticaDao.
+     */
+    public abstract AnaliticaDao analiticaDao();
+
     /** Instancia única de la base de datos (patrón Singleton) */
     private static volatile AppRoomDatabase INSTANCE;
 
-    /** Número de hilos en el pool para operaciones de escritura */
-    private static final int NUMBER_OF_THREADS = 4;
+    /**
+     * Número de hilos del pool de lectura. SQLite en modo WAL abre como mucho
+     * unas pocas conexiones de lectura, así que no tiene sentido superar 4.
+     */
+    private static final int NUMBER_OF_READ_THREADS =
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
 
     /**
-     * ExecutorService para ejecutar operaciones de base de datos en segundo plano.
+     * Carril de escritura: un único hilo para todas las modificaciones.
      * <p>
-     * Utiliza un pool de hilos fijo para gestionar múltiples operaciones concurrentes
-     * de forma eficiente sin bloquear el hilo principal de la UI.
+     * SQLite solo admite un escritor a la vez; serializar las escrituras en un
+     * hilo evita que compitan por el bloqueo y garantiza que se aplican en el
+     * orden en que se envían. También es el executor de transacciones de Room.
      * </p>
      */
     static final ExecutorService databaseWriteExecutor =
-            Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+            Executors.newSingleThreadExecutor();
+
+    /**
+     * Carril de lectura: pool acotado para consultas puntuales.
+     * <p>
+     * Las lecturas (getQuadById, disponibilidad, etc.) ya no esperan en la cola
+     * detrás de las escrituras. Room también lo usa para las consultas que
+     * devuelven LiveData y para las fuentes de paginación.
+     * </p>
+     */
+    static final ExecutorService databaseReadExecutor =
+            Executors.newFixedThreadPool(NUMBER_OF_READ_THREADS);
 
     /**
      * Obtiene la instancia única de la base de datos (patrón Singleton).
      * <p>
      * Si la base de datos no existe, la crea y configura con:
      * - Migración destructiva (fallbackToDestructiveMigration)
-     * - Callback para poblar datos de ejemplo al crearla
+     * - Modo WAL explícito, con los executors de lectura y escritura
+     * - Callback para poblar datos de ejemplo al crearla y guardar la zona
+     *   horaria de sus resúmenes ({@link AnaliticaRepository#guardarZona})
+     * - Si está activada, la traza de consultas lentas ({@link TrazaConsultas})
      * </p>
      * <p>
      * Este método es thread-safe gracias a la doble verificación con bloqueo.
@@ -92,10 +141,30 @@ public abstract class AppRoomDatabase extends RoomDatabase {
         if (INSTANCE == null) {
             synchronized (AppRoomDatabase.class) {
                 if (INSTANCE == null) {
-                        INSTANCE = Room.databaseBuilder(context.getApplicationContext(),
-                                AppRoomDatabase.class, "quad_database")
-                            .fallbackToDestructiveMigration()
-                            .addCallback(sRoomDatabaseCallback)
+                    final Context aplicacion = context.getApplicationContext();
+                    Builder<AppRoomDatabase> builder = Room.databaseBuilder(aplicacion,
+                            AppRoomDatabase.class, "quad_database")
+                        .fallbackToDestructiveMigration()
+                        .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING)
+                        .addCallback(sRoomDatabaseCallback)
+                        .addCallback(new RoomDatabase.Callback() {
+                            @Override
+                            public void onCreate(@NonNull SupportSQLiteDatabase db) {
+                                // Tras generar los datos: la tabla de resúmenes ya está en la zona actual
+                                AnaliticaRepository.guardarZona(aplicacion);
+                            }
+                        });
+                    Executor lectura = databaseReadExecutor;
+                    Executor transacciones = databaseWriteExecutor;
+                    if (TrazaConsultas.estaActiva()) {
+                        // El callback corre en el hilo de la consulta: así se conoce el hilo y el inicio.
+                        // Se envuelven los mismos executors: la traza no cambia en qué hilo corre cada consulta
+                        builder.setQueryCallback(TrazaConsultas.callback(context), Runnable::run);
+                        lectura = TrazaConsultas.envolver(lectura);
+                        transacciones = TrazaConsultas.envolver(transacciones);
+                    }
+                    INSTANCE = builder.setQueryExecutor(lectura)
+                            .setTransactionExecutor(transacciones)
                             .build();
                 }
             }
@@ -103,91 +172,81 @@ public abstract class AppRoomDatabase extends RoomDatabase {
         return INSTANCE;
     }
 
+    /**
+     * Triggers que mantienen la tabla contador y filas iniciales de los contadores.
+     * <p>
+     * Son idempotentes: se ejecutan en cada apertura, también tras una
+     * migración destructiva, que borra la tabla contador junto con las demás.
+     * La fila inicial solo se calcula con COUNT(*) si aún no existe.
+     * </p>
+     */
+    private static final String[] SQL_CONTADORES = {
+            "INSERT INTO contador (tabla, total) SELECT 'quad', (SELECT COUNT(*) FROM quad)"
+                    + " WHERE NOT EXISTS (SELECT 1 FROM contador WHERE tabla = 'quad')",
+            "INSERT INTO contador (tabla, total) SELECT 'reserva', (SELECT COUNT(*) FROM reserva)"
+                    + " WHERE NOT EXISTS (SELECT 1 FROM contador WHERE tabla = 'reserva')",
+            "CREATE TRIGGER IF NOT EXISTS contador_quad_insert AFTER INSERT ON quad BEGIN"
+                    + " UPDATE contador SET total = total + 1 WHERE tabla = 'quad'; END",
+            "CREATE TRIGGER IF NOT EXISTS contador_quad_delete AFTER DELETE ON quad BEGIN"
+                    + " UPDATE contador SET total = total - 1 WHERE tabla = 'quad'; END",
+            "CREATE TRIGGER IF NOT EXISTS contador_reserva_insert AFTER INSERT ON reserva BEGIN"
+                    + " UPDATE contador SET total = total + 1 WHERE tabla = 'reserva'; END",
+            "CREATE TRIGGER IF NOT EXISTS contador_reserva_delete AFTER DELETE ON reserva BEGIN"
+                    + " UPDATE contador SET total = total - 1 WHERE tabla = 'reserva'; END"
+    };
+
+    /** Datos generados al crear la base de datos; null para empezar vacía */
+    private static volatile GeneradorDatos.Perfil sPerfilInicial = GeneradorDatos.Perfil.demo();
+
+    /**
+     * Elige los datos con los que se crea la base de datos.
+     * <p>
+     * Solo tiene efecto si se llama antes de abrirla por primera vez, por
+     * ejemplo desde {@code Application.onCreate()}. Con
+     * {@link GeneradorDatos.Perfil#completo()} una instalación nueva arranca
+     * con el volumen máximo del sistema, para pruebas de rendimiento.
+     * </p>
+     *
+     * @param perfil Perfil de datos, o null para crear la base de datos vacía.
+     */
+    public static void setPerfilInicial(GeneradorDatos.Perfil perfil) {
+        sPerfilInicial = perfil;
+    }
+
     /**
      * Callback que se ejecuta cuando se crea la base de datos por primera vez.
      * <p>
-     * Inserta datos de ejemplo:
-     * - 5 quads con diferentes tipos y precios
-     * - 5 reservas con diferentes clientes y fechas
-     * - 8 asociaciones reserva-quad que demuestran la relación N:N
+     * Genera los datos del perfil inicial (por defecto, 5 quads y 5 reservas
+     * de ejemplo) con {@link GeneradorDatos}, en la misma transacción de
+     * creación, de modo que la primera consulta ya los encuentra.
      * </p>
      * <p>
-     * Estos datos facilitan las pruebas de la aplicación.
-     * Para mantener los datos entre reinicios, comenta el bloque
-     * databaseWriteExecutor.execute().
+     * En cada apertura crea, si no existen, los triggers de la tabla contador.
      * </p>
      */
     private static RoomDatabase.Callback sRoomDatabaseCallback = new RoomDatabase.Callback() {
+        @Override
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            super.onOpen(db);
+            // Antes de cualquier otra consulta. Los datos de ejemplo de onCreate se insertan
+            // antes de que existan los triggers: los contadores salen bien porque la fila
+            // inicial de cada tabla se calcula con COUNT(*) sobre lo ya insertado
+            db.beginTransaction();
+            try {
+                for (String sql : SQL_CONTADORES) db.execSQL(sql);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+
         @Override
         public void onCreate(@NonNull SupportSQLiteDatabase db) {
             super.onCreate(db);
-
-            // If you want to keep data through app restarts,
-            // comment out the following block
-            databaseWriteExecutor.execute(() -> {
-                // Populate the database in the background with sample data (5 quads, 5 reservas)
-                QuadDao quadDao = INSTANCE.quadDao();
-                ReservaDao reservaDao = INSTANCE.reservaDao();
-                ReservaQuadDao rqDao = INSTANCE.reservaQuadDao();
-
-                // Clean existing
-                quadDao.deleteAll();
-                reservaDao.deleteAll();
-                rqDao.deleteAll();
-
-                // Insert 5 quads
-                Quad q1 = new Quad(Quad.Tipo.UNIPLAZA, 80, "AAA-001", "Quad demo 1");
-                Quad q2 = new Quad(Quad.Tipo.BIPLAZA, 100, "BBB-002", "Quad demo 2");
-                Quad q3 = new Quad(Quad.Tipo.UNIPLAZA, 90, "CCC-003", "Quad demo 3");
-                Quad q4 = new Quad(Quad.Tipo.BIPLAZA, 110, "DDD-004", "Quad demo 4");
-                Quad q5 = new Quad(Quad.Tipo.UNIPLAZA, 95, "EEE-005", "Quad demo 5");
-
-                long id1 = quadDao.insertQuad(q1);
-                long id2 = quadDao.insertQuad(q2);
-                long id3 = quadDao.insertQuad(q3);
-                long id4 = quadDao.insertQuad(q4);
-                long id5 = quadDao.insertQuad(q5);
-
-                // Prepare 5 reservas with different dates
-                long now = System.currentTimeMillis();
-                long oneDay = 24L * 60L * 60L * 1000L;
-
-                Reserva r1 = new Reserva(now + oneDay, now + 2 * oneDay, 80.0, 600111222, "Cliente A");
-                Reserva r2 = new Reserva(now + 2 * oneDay, now + 4 * oneDay, 190.0, 600222333, "Cliente B");
-                Reserva r3 = new Reserva(now + 3 * oneDay, now + 5 * oneDay, 285.0, 600333444, "Cliente C");
-                Reserva r4 = new Reserva(now + 4 * oneDay, now + 6 * oneDay, 205.0, 600444555, "Cliente D");
-                Reserva r5 = new Reserva(now + 5 * oneDay, now + 6 * oneDay, 95.0, 600555666, "Cliente E");
-
-                long res1 = reservaDao.insertReserva(r1);
-                long res2 = reservaDao.insertReserva(r2);
-                long res3 = reservaDao.insertReserva(r3);
-                long res4 = reservaDao.insertReserva(r4);
-                long res5 = reservaDao.insertReserva(r5);
-
-                // Link reservas to quads via ReservaQuad
-                // r1 -> q1
-                ReservaQuad rq1 = new ReservaQuad((int) res1, (int) id1, 2);
-                // r2 -> q2, q3
-                ReservaQuad rq2 = new ReservaQuad((int) res2, (int) id2, 1);
-                ReservaQuad rq3 = new ReservaQuad((int) res2, (int) id3, 2);
-                // r3 -> q1, q4, q5
-                ReservaQuad rq4 = new ReservaQuad((int) res3, (int) id1, 1);
-                ReservaQuad rq5 = new ReservaQuad((int) res3, (int) id4, 1);
-                ReservaQuad rq6 = new ReservaQuad((int) res3, (int) id5, 0);
-                // r4 -> q2
-                ReservaQuad rq7 = new ReservaQuad((int) res4, (int) id2, 1);
-                // r5 -> q5
-                ReservaQuad rq8 = new ReservaQuad((int) res5, (int) id5, 1);
-
-                rqDao.insert(rq1);
-                rqDao.insert(rq2);
-                rqDao.insert(rq3);
-                rqDao.insert(rq4);
-                rqDao.insert(rq5);
-                rqDao.insert(rq6);
-                rqDao.insert(rq7);
-                rqDao.insert(rq8);
-            });
+            // Se usa la conexión recibida y no INSTANCE, que aún puede no estar asignada.
+            // Si no se quieren datos de ejemplo, setPerfilInicial(null) antes de abrir la base de datos
+            GeneradorDatos.Perfil perfil = sPerfilInicial;
+            if (perfil != null) GeneradorDatos.generar(db, perfil);
         }
     };
 
@@ -0,0 +1,47 @@
+package es.unizar.eina.notepad.database;
+
+/**
+ * Traduce el texto escrito por el usuario a una expresión MATCH de FTS4.
+ * <p>
+ * Cada palabra se convierte en una búsqueda por prefijo ({@code palabra*})
+ * y todas deben aparecer (AND implícito). Se descartan los caracteres que
+ * no son letras ni dígitos, de modo que el texto del usuario nunca se
+ * interpreta como sintaxis de FTS (comillas, NEAR, OR, etc.).
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see ReservaFts
+ * @see QuadFts
+ */
+public final class BusquedaFts {
+
+    private BusquedaFts() {}
+
+    /**
+     * Construye la expresión MATCH para un texto de búsqueda.
+     * <p>
+     * Por ejemplo, {@code "AAA-00"} se convierte en {@code "AAA* 00*"}, que
+     * encuentra la matrícula AAA-001 porque el tokenizador separa por guiones.
+     * </p>
+     *
+     * @param texto Texto introducido por el usuario.
+     * @return Expresión MATCH, o cadena vacía si el texto no contiene palabras.
+     */
+    public static String aConsulta(String texto) {
+        if (texto == null) return "";
+        StringBuilder consulta = new StringBuilder();
+        StringBuilder palabra = new StringBuilder();
+        for (int i = 0; i <= texto.length(); i++) {
+            char c = i < texto.length() ? texto.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                palabra.append(c);
+            } else if (palabra.length() > 0) {
+                if (consulta.length() > 0) consulta.append(' ');
+                consulta.append(palabra).append('*');
+                palabra.setLength(0);
+            }
+        }
+        return consulta.toString();
+    }
+}
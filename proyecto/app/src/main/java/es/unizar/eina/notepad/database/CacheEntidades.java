@@ -0,0 +1,134 @@
+package es.unizar.eina.notepad.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.InvalidationTracker;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.IntFunction;
+
+/**
+ * Caché LRU de entidades por identificador, con tamaño máximo.
+ * <p>
+ * Se vacía cuando cambia su tabla: se registra como observador del
+ * {@link InvalidationTracker} de Room, que avisa tras cualquier escritura
+ * confirmada, venga del repositorio que sea. El registro se hace en el
+ * carril de lectura, porque los repositorios se crean en el hilo principal. Los repositorios además
+ * descartan la entrada afectada en cuanto escriben, sin esperar al aviso.
+ * </p>
+ * <p>
+ * Cada invalidación incrementa una generación. Una lectura que empezó antes
+ * de una invalidación no guarda su resultado, de modo que una consulta lenta
+ * no puede volver a meter en la caché un valor ya obsoleto.
+ * </p>
+ * <p>
+ * Los objetos cacheados se comparten entre llamantes y no deben modificarse.
+ * </p>
+ *
+ * @param <V> Tipo de la entidad.
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see QuadRepository
+ * @see ReservaRepository
+ */
+final class CacheEntidades<V> {
+
+    private final Map<Integer, V> mEntradas;
+    private long mGeneracion;
+
+    /**
+     * Crea la caché y la registra, en segundo plano, para vaciarse al cambiar una tabla.
+     *
+     * @param db Base de datos cuyas escrituras se observan.
+     * @param tabla Tabla de la entidad.
+     * @param capacidad Número máximo de entradas.
+     */
+    CacheEntidades(AppRoomDatabase db, String tabla, int capacidad) {
+        this(db, tabla, capacidad, AppRoomDatabase.databaseReadExecutor);
+    }
+
+    /**
+     * Crea la caché registrándola en el executor indicado.
+     * <p>
+     * Las pruebas pasan un executor directo para que el observador esté
+     * registrado al volver del constructor.
+     * </p>
+     *
+     * @param db Base de datos cuyas escrituras se observan.
+     * @param tabla Tabla de la entidad.
+     * @param capacidad Número máximo de entradas.
+     * @param registro Executor en el que se registra el observador.
+     */
+    CacheEntidades(AppRoomDatabase db, String tabla, int capacidad, Executor registro) {
+        mEntradas = new LinkedHashMap<Integer, V>(capacidad, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, V> eldest) {
+                return size() > capacidad;
+            }
+        };
+        // addObserver puede abrir la base de datos: no debe llamarse en el hilo principal
+        registro.execute(() -> {
+            db.getInvalidationTracker().addObserver(new InvalidationTracker.Observer(tabla) {
+                @Override
+                public void onInvalidated(@NonNull Set<String> tables) {
+                    invalidar();
+                }
+            });
+            // Lo cargado antes de registrarse pudo perder algún aviso
+            invalidar();
+        });
+    }
+
+    /**
+     * Devuelve la entidad cacheada, o null si no está.
+     * @param id Identificador de la entidad.
+     * @return Entidad o null.
+     */
+    synchronized V get(int id) {
+        return mEntradas.get(id);
+    }
+
+    /**
+     * Devuelve la entidad cacheada o la carga y la guarda.
+     * <p>
+     * La carga se hace fuera del cerrojo; si entretanto se invalida la
+     * caché, el resultado se devuelve pero no se guarda.
+     * </p>
+     *
+     * @param id Identificador de la entidad.
+     * @param cargar Carga desde la base de datos (bloqueante).
+     * @return Entidad, o null si no existe.
+     */
+    V get(int id, IntFunction<V> cargar) {
+        long generacion;
+        synchronized (this) {
+            V valor = mEntradas.get(id);
+            if (valor != null) return valor;
+            generacion = mGeneracion;
+        }
+        V valor = cargar.apply(id);
+        if (valor != null) {
+            synchronized (this) {
+                if (generacion == mGeneracion) mEntradas.put(id, valor);
+            }
+        }
+        return valor;
+    }
+
+    /**
+     * Descarta una entidad tras escribirla.
+     * @param id Identificador de la entidad.
+     */
+    synchronized void descartar(int id) {
+        mGeneracion++;
+        mEntradas.remove(id);
+    }
+
+    /** Vacía la caché. */
+    synchronized void invalidar() {
+        mGeneracion++;
+        mEntradas.clear();
+    }
+}
@@ -0,0 +1,37 @@
+package es.unizar.eina.notepad.database;
+
+import java.util.Collections;
+import java.util.List;
+
+import es.unizar.eina.notepad.domain.ValidadorConflictos.Conflicto;
+
+/**
+ * Excepción lanzada cuando se intenta guardar una reserva que usa un quad
+ * ya reservado en fechas que se solapan.
+ * <p>
+ * La lanzan los repositorios en el hilo escritor antes de modificar la base
+ * de datos, de modo que no se escribe nada. El futuro de la operación se
+ * completa con esta excepción, que lleva las reservas en conflicto.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see OcupacionRepository
+ */
+public class ConflictoReservaException extends RuntimeException {
+
+    private final List<Conflicto> mConflictos;
+
+    /**
+     * @param conflictos Reservas existentes que se solapan (no vacía).
+     */
+    public ConflictoReservaException(List<Conflicto> conflictos) {
+        super(conflictos.size() + " conflicto(s) con reservas existentes");
+        mConflictos = Collections.unmodifiableList(conflictos);
+    }
+
+    /**
+     * @return Reservas existentes que se solapan con la que se quería guardar.
+     */
+    public List<Conflicto> getConflictos() { return mConflictos; }
+}
@@ -0,0 +1,70 @@
+package es.unizar.eina.notepad.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Entidad que guarda el número de filas de una tabla.
+ * <p>
+ * Hay una fila por tabla contada ({@code quad} y {@code reserva}). No se
+ * escribe desde Java: la mantienen los triggers de SQLite que crea
+ * {@link AppRoomDatabase} al abrir la base de datos, de modo que el total
+ * está siempre al día con cualquier inserción o borrado y se consulta por
+ * clave primaria, sin recorrer la tabla con {@code COUNT(*)}.
+ * </p>
+ * <p>
+ * Los límites corresponden a los requisitos R.N.F. 1 y R.N.F. 2.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see ContadorDao
+ * @see AppRoomDatabase
+ */
+@Entity(tableName = "contador")
+public class Contador {
+
+    /** Nombre de la fila que cuenta los quads */
+    public static final String QUADS = "quad";
+    /** Nombre de la fila que cuenta las reservas */
+    public static final String RESERVAS = "reserva";
+
+    /** Número máximo de quads (R.N.F. 1) */
+    public static final int MAX_QUADS = 100;
+    /** Número máximo de reservas (R.N.F. 2) */
+    public static final int MAX_RESERVAS = 20000;
+
+    @PrimaryKey
+    @NonNull
+    @ColumnInfo(name = "tabla")
+    private String tabla;
+
+    @ColumnInfo(name = "total")
+    private int total;
+
+    /**
+     * Construye un contador.
+     *
+     * @param tabla Nombre de la tabla contada.
+     * @param total Número de filas.
+     */
+    public Contador(@NonNull String tabla, int total) {
+        this.tabla = tabla;
+        this.total = total;
+    }
+
+    /**
+     * Devuelve el nombre de la tabla contada.
+     * @return Nombre de la tabla.
+     */
+    @NonNull
+    public String getTabla() { return tabla; }
+
+    /**
+     * Devuelve el número de filas de la tabla.
+     * @return Número de filas.
+     */
+    public int getTotal() { return total; }
+}
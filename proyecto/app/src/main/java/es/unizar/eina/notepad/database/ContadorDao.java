@@ -0,0 +1,26 @@
+package es.unizar.eina.notepad.database;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+
+/**
+ * Data Access Object (DAO) para la entidad Contador.
+ * <p>
+ * Solo lee: los totales los mantienen los triggers de SQLite.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see Contador
+ */
+@Dao
+public interface ContadorDao {
+    /**
+     * Obtiene el número de filas de una tabla consultando su contador.
+     *
+     * @param tabla Nombre de la tabla ({@link Contador#QUADS} o {@link Contador#RESERVAS}).
+     * @return Número de filas, o 0 si el contador aún no existe.
+     */
+    @Query("SELECT IFNULL((SELECT total FROM contador WHERE tabla = :tabla), 0)")
+    int getTotal(String tabla);
+}
@@ -0,0 +1,399 @@
+package es.unizar.eina.notepad.database;
+
+import android.app.Application;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import es.unizar.eina.notepad.domain.CalculadoraPrecios;
+import es.unizar.eina.notepad.domain.FormatoFechas;
+import es.unizar.eina.notepad.domain.TipoQuad;
+
+/**
+ * Generador de datos sintéticos para instalaciones de demostración y
+ * pruebas de rendimiento.
+ * <p>
+ * Sustituye todo el contenido de la base de datos por el que describe un
+ * {@link Perfil}: número de quads de cada tipo, reservas por mes, quads por
+ * reserva y duración de las reservas. Con el perfil {@link Perfil#completo()}
+ * produce el volumen máximo del sistema (100 quads y 20000 reservas).
+ * </p>
+ * <p>
+ * Escribe con sentencias preparadas ({@link SupportSQLiteStatement}) en una
+ * única transacción, sin crear entidades ni pasar por los DAO. Las reservas
+ * generadas nunca se solapan en un mismo quad, como exigen los repositorios,
+ * y los resúmenes de informes se escriben a la vez con el mismo reparto que
+ * {@link AnaliticaDao#aplicarReserva(int, int)}. Los contadores de quads y
+ * reservas los mantienen los triggers o, si aún no existen, se calculan al
+ * abrir la base de datos.
+ * </p>
+ * <p>
+ * La generación es determinista: el mismo perfil produce siempre los mismos
+ * datos, salvo por la fecha de inicio, que por defecto es la actual.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see AppRoomDatabase
+ * @see Contador
+ * @see ResumenDiario
+ */
+public final class GeneradorDatos {
+
+    private static final String[] NOMBRES = {"Ana", "Luis", "Marta", "Pablo", "Lucía", "Javier",
+            "Elena", "Carlos", "Sara", "Diego", "Laura", "Jorge", "Irene", "Miguel", "Paula", "Raúl"};
+    private static final String[] APELLIDOS = {"García", "López", "Martín", "Sánchez", "Pérez",
+            "Gómez", "Ruiz", "Díaz", "Moreno", "Navarro", "Romero", "Alonso", "Gil", "Lázaro"};
+    /** Intentos de encontrar fecha y quads libres antes de descartar una reserva */
+    private static final int INTENTOS = 20;
+    /** Hora de recogida y devolución de las reservas generadas */
+    private static final int HORA = 10;
+
+    private GeneradorDatos() {}
+
+    /**
+     * Configuración del conjunto de datos a generar.
+     * <p>
+     * Los métodos modificadores devuelven el propio perfil para poder
+     * encadenarlos, por ejemplo
+     * {@code Perfil.demo().quads(10, 10).reservas(12, 50)}.
+     * </p>
+     */
+    public static final class Perfil {
+        int mUniplazas = 3;
+        int mBiplazas = 2;
+        int mMeses = 1;
+        int mReservasPorMes = 5;
+        int mMinQuads = 1;
+        int mMaxQuads = 3;
+        int mMinDias = 1;
+        int mMaxDias = 3;
+        LocalDate mDesde;
+        long mSemilla = 42;
+
+        private Perfil() {}
+
+        /**
+         * Datos de ejemplo de una instalación nueva: 5 quads y 5 reservas
+         * en el próximo mes.
+         * @return Perfil de demostración.
+         */
+        public static Perfil demo() {
+            return new Perfil();
+        }
+
+        /**
+         * Volumen máximo del sistema: 100 quads (50 de cada tipo) y 20000
+         * reservas de 1 o 2 quads y de 1 a 3 días, repartidas en los 50
+         * meses que terminan un año después de hoy.
+         * @return Perfil de carga completa.
+         */
+        public static Perfil completo() {
+            return new Perfil()
+                    .quads(50, 50)
+                    .reservas(50, 400)
+                    .quadsPorReserva(1, 2)
+                    .dias(1, 3)
+                    .desde(LocalDate.now().plusYears(1).minusMonths(50).withDayOfMonth(1));
+        }
+
+        /**
+         * @param uniplazas Número de quads uniplaza.
+         * @param biplazas Número de quads biplaza.
+         * @return Este perfil.
+         */
+        public Perfil quads(int uniplazas, int biplazas) {
+            mUniplazas = uniplazas;
+            mBiplazas = biplazas;
+            return this;
+        }
+
+        /**
+         * @param meses Número de meses con reservas, desde la fecha de inicio.
+         * @param reservasPorMes Reservas que empiezan en cada mes.
+         * @return Este perfil.
+         */
+        public Perfil reservas(int meses, int reservasPorMes) {
+            mMeses = meses;
+            mReservasPorMes = reservasPorMes;
+            return this;
+        }
+
+        /**
+         * @param min Mínimo de quads por reserva.
+         * @param max Máximo de quads por reserva.
+         * @return Este perfil.
+         */
+        public Perfil quadsPorReserva(int min, int max) {
+            mMinQuads = min;
+            mMaxQuads = max;
+            return this;
+        }
+
+        /**
+         * @param min Mínimo de días cobrados por reserva.
+         * @param max Máximo de días cobrados por reserva.
+         * @return Este perfil.
+         */
+        public Perfil dias(int min, int max) {
+            mMinDias = min;
+            mMaxDias = max;
+            return this;
+        }
+
+        /**
+         * @param desde Primer día en que pueden empezar las reservas (por defecto, hoy).
+         * @return Este perfil.
+         */
+        public Perfil desde(LocalDate desde) {
+            mDesde = desde;
+            return this;
+        }
+
+        /**
+         * @param semilla Semilla del generador aleatorio.
+         * @return Este perfil.
+         */
+        public Perfil semilla(long semilla) {
+            mSemilla = semilla;
+            return this;
+        }
+
+        private void validar() {
+            int quads = mUniplazas + mBiplazas;
+            if (mUniplazas < 0 || mBiplazas < 0 || quads > Contador.MAX_QUADS) {
+                throw new IllegalArgumentException("Número de quads fuera de rango: " + quads);
+            }
+            long reservas = (long) mMeses * mReservasPorMes;
+            if (mMeses < 0 || mReservasPorMes < 0 || reservas > Contador.MAX_RESERVAS) {
+                throw new IllegalArgumentException("Número de reservas fuera de rango: " + reservas);
+            }
+            if (mMinQuads < 1 || mMaxQuads < mMinQuads || mMinDias < 1 || mMaxDias < mMinDias) {
+                throw new IllegalArgumentException("Rangos de quads o días por reserva no válidos");
+            }
+        }
+    }
+
+    /** Resumen de una generación. */
+    public static final class Resultado {
+        public final int quads;
+        public final int reservas;
+        public final int lineas;
+        /** Reservas descartadas por no encontrar quads libres */
+        public final int descartadas;
+        public final long millis;
+
+        Resultado(int quads, int reservas, int lineas, int descartadas, long millis) {
+            this.quads = quads;
+            this.reservas = reservas;
+            this.lineas = lineas;
+            this.descartadas = descartadas;
+            this.millis = millis;
+        }
+
+        @Override
+        public String toString() {
+            return quads + " quads, " + reservas + " reservas, " + lineas + " asociaciones, "
+                    + descartadas + " descartadas en " + millis + " ms";
+        }
+    }
+
+    /**
+     * Sustituye los datos de una base de datos abierta, sin bloquear.
+     * <p>
+     * Se ejecuta en el hilo escritor como una transacción de Room, así que
+     * las consultas observables y las cachés se actualizan al terminar; el
+     * índice de ocupación se reconstruye en la siguiente consulta. Los
+     * resúmenes quedan calculados en la zona horaria actual, que se guarda.
+     * </p>
+     *
+     * @param application Contexto de la aplicación para acceder a la base de datos.
+     * @param perfil Datos a generar.
+     * @return Futuro con el resumen de la generación.
+     */
+    public static CompletableFuture<Resultado> generarAsync(Application application, Perfil perfil) {
+        AppRoomDatabase db = AppRoomDatabase.getDatabase(application);
+        return OperacionesBD.enviar("GeneradorDatos.generar", AppRoomDatabase.databaseWriteExecutor, () -> {
+            Resultado resultado = db.runInTransaction(() ->
+                    generar(db.getOpenHelper().getWritableDatabase(), perfil));
+            AnaliticaRepository.guardarZona(application);
+            OcupacionRepository.descartar();
+            return resultado;
+        });
+    }
+
+    /**
+     * Sustituye los datos en una única transacción.
+     * <p>
+     * Puede llamarse desde el callback de creación de la base de datos, ya
+     * que solo usa la conexión recibida.
+     * </p>
+     *
+     * @param db Conexión SQLite abierta.
+     * @param perfil Datos a generar.
+     * @return Resumen de la generación.
+     * @throws IllegalArgumentException Si el perfil supera los límites del sistema.
+     */
+    public static Resultado generar(SupportSQLiteDatabase db, Perfil perfil) {
+        perfil.validar();
+        long inicio = System.currentTimeMillis();
+        Random random = new Random(perfil.mSemilla);
+        ZoneId zona = ZoneId.systemDefault();
+        LocalDate desde = perfil.mDesde != null ? perfil.mDesde : LocalDate.now(zona);
+
+        SupportSQLiteStatement insertQuad = null;
+        SupportSQLiteStatement insertReserva = null;
+        SupportSQLiteStatement insertLinea = null;
+        SupportSQLiteStatement insertResumen = null;
+        db.beginTransaction();
+        try {
+            // Las asociaciones primero por la clave ajena; los índices FTS los mantienen sus triggers
+            db.execSQL("DELETE FROM reserva_quad");
+            db.execSQL("DELETE FROM reserva");
+            db.execSQL("DELETE FROM quad");
+            db.execSQL("DELETE FROM resumen_diario");
+            insertQuad = db.compileStatement(
+                    "INSERT INTO quad (tipo, precio, matricula, descripcion) VALUES (?, ?, ?, ?)");
+            insertReserva = db.compileStatement("INSERT INTO reserva (fecha_recogida, fecha_devolucion, "
+                    + "precio_total, telefono, nom_cliente) VALUES (?, ?, ?, ?, ?)");
+            insertLinea = db.compileStatement(
+                    "INSERT INTO reserva_quad (reserva_id, quad_id, num_cascos) VALUES (?, ?, ?)");
+            insertResumen = db.compileStatement(
+                    "INSERT INTO resumen_diario (dia, quad_id, ingresos, dias_reservados) VALUES (?, ?, ?, 1)");
+
+            int numQuads = perfil.mUniplazas + perfil.mBiplazas;
+            long[] quadIds = new long[numQuads];
+            int[] precios = new int[numQuads];
+            boolean[] biplaza = new boolean[numQuads];
+            for (int q = 0; q < numQuads; q++) {
+                biplaza[q] = q >= perfil.mUniplazas;
+                precios[q] = biplaza[q] ? 90 + random.nextInt(51) : 60 + random.nextInt(41);
+                insertQuad.bindString(1, (biplaza[q] ? TipoQuad.BIPLAZA : TipoQuad.UNIPLAZA).name());
+                insertQuad.bindLong(2, precios[q]);
+                insertQuad.bindString(3, String.format(Locale.ROOT, "%04d-%s", q + 1, biplaza[q] ? "BIP" : "UNI"));
+                insertQuad.bindString(4, "Quad generado " + (q + 1));
+                quadIds[q] = insertQuad.executeInsert();
+                insertQuad.clearBindings();
+            }
+
+            // Días ocupados de cada quad, contados desde 'desde', con ambos extremos incluidos
+            int horizonte = (int) (desde.plusMonths(perfil.mMeses).toEpochDay() - desde.toEpochDay())
+                    + perfil.mMaxDias + 1;
+            BitSet[] ocupados = new BitSet[numQuads];
+            for (int q = 0; q < numQuads; q++) ocupados[q] = new BitSet(horizonte);
+            int[] elegidos = new int[perfil.mMaxQuads];
+            int[] libres = new int[numQuads];
+
+            int reservas = 0;
+            int lineas = 0;
+            int descartadas = 0;
+            for (int mes = 0; mes < perfil.mMeses; mes++) {
+                LocalDate primero = desde.plusMonths(mes);
+                int diasMes = (int) (desde.plusMonths(mes + 1).toEpochDay() - primero.toEpochDay());
+                for (int r = 0; r < perfil.mReservasPorMes; r++) {
+                    int k = perfil.mMinQuads + random.nextInt(perfil.mMaxQuads - perfil.mMinQuads + 1);
+                    int dias = perfil.mMinDias + random.nextInt(perfil.mMaxDias - perfil.mMinDias + 1);
+                    int n = 0;
+                    int dia = 0;
+                    for (int intento = 0; intento < INTENTOS && n < k; intento++) {
+                        dia = (int) (primero.toEpochDay() - desde.toEpochDay()) + random.nextInt(diasMes);
+                        n = elegirLibres(ocupados, dia, dia + dias, k, libres, elegidos, random);
+                    }
+                    if (n < k) {
+                        descartadas++;
+                        continue;
+                    }
+                    LocalDate dRecogida = desde.plusDays(dia);
+                    long recogida = dRecogida.atTime(HORA, 0).atZone(zona).toInstant().toEpochMilli();
+                    long devolucion = dRecogida.plusDays(dias).atTime(HORA, 0).atZone(zona).toInstant().toEpochMilli();
+                    long diasCobrados = CalculadoraPrecios.dias(recogida, devolucion);
+                    double precio = 0;
+                    for (int i = 0; i < k; i++) precio += (double) precios[elegidos[i]] * diasCobrados;
+
+                    insertReserva.bindLong(1, recogida);
+                    insertReserva.bindLong(2, devolucion);
+                    insertReserva.bindDouble(3, precio);
+                    insertReserva.bindLong(4, 600000000 + random.nextInt(100000000));
+                    insertReserva.bindString(5, NOMBRES[random.nextInt(NOMBRES.length)] + " "
+                            + APELLIDOS[random.nextInt(APELLIDOS.length)] + " "
+                            + APELLIDOS[random.nextInt(APELLIDOS.length)]);
+                    long reservaId = insertReserva.executeInsert();
+                    insertReserva.clearBindings();
+                    reservas++;
+
+                    // Mismo reparto que AnaliticaDao.aplicarReserva: a partes iguales entre días y quads
+                    long diaDesde = FormatoFechas.diaEpoch(recogida);
+                    long diaHasta = Math.max(diaDesde, FormatoFechas.diaEpoch(devolucion));
+                    double parte = precio / ((diaHasta - diaDesde + 1) * k);
+                    for (int i = 0; i < k; i++) {
+                        int q = elegidos[i];
+                        ocupados[q].set(dia, dia + dias + 1);
+                        insertLinea.bindLong(1, reservaId);
+                        insertLinea.bindLong(2, quadIds[q]);
+                        insertLinea.bindLong(3, random.nextInt(biplaza[q] ? 3 : 2));
+                        insertLinea.executeInsert();
+                        insertLinea.clearBindings();
+                        lineas++;
+                        for (long d = diaDesde; d <= diaHasta; d++) {
+                            insertResumen.bindLong(1, d);
+                            insertResumen.bindLong(2, quadIds[q]);
+                            insertResumen.bindDouble(3, parte);
+                            insertResumen.executeInsert();
+                            insertResumen.clearBindings();
+                        }
+                    }
+                }
+            }
+            db.setTransactionSuccessful();
+            Resultado resultado = new Resultado(numQuads, reservas, lineas, descartadas,
+                    System.currentTimeMillis() - inicio);
+            Log.d("GeneradorDatos", resultado.toString());
+            return resultado;
+        } finally {
+            db.endTransaction();
+            cerrar(insertQuad);
+            cerrar(insertReserva);
+            cerrar(insertLinea);
+            cerrar(insertResumen);
+        }
+    }
+
+    // Elige al azar hasta k quads sin ningún día ocupado en [desde, hasta]
+    private static int elegirLibres(BitSet[] ocupados, int desde, int hasta, int k,
+                                    int[] libres, int[] elegidos, Random random) {
+        int numLibres = 0;
+        for (int q = 0; q < ocupados.length; q++) {
+            int siguiente = ocupados[q].nextSetBit(desde);
+            if (siguiente < 0 || siguiente > hasta) libres[numLibres++] = q;
+        }
+        int n = Math.min(k, numLibres);
+        // Fisher-Yates parcial
+        for (int i = 0; i < n; i++) {
+            int j = i + random.nextInt(numLibres - i);
+            int tmp = libres[i];
+            libres[i] = libres[j];
+            libres[j] = tmp;
+            elegidos[i] = libres[i];
+        }
+        return n;
+    }
+
+    private static void cerrar(Closeable sentencia) {
+        if (sentencia == null) return;
+        try {
+            sentencia.close();
+        } catch (IOException ex) {
+            Log.d("GeneradorDatos", ex.getClass().getSimpleName() + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package es.unizar.eina.notepad.database;
+
+import androidx.room.ColumnInfo;
+
+/**
+ * Ingresos totales de un periodo (un día o un mes).
+ * <p>
+ * No es una entidad: es el resultado de agregar {@link ResumenDiario}.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see AnaliticaDao
+ */
+public class IngresoPeriodo {
+
+    /** Periodo: día como "yyyy-MM-dd" o mes como "yyyy-MM" */
+    @ColumnInfo(name = "periodo")
+    public final String periodo;
+
+    /** Ingresos del periodo en euros */
+    @ColumnInfo(name = "ingresos")
+    public final double ingresos;
+
+    /**
+     * @param periodo Día ("yyyy-MM-dd") o mes ("yyyy-MM").
+     * @param ingresos Ingresos del periodo en euros.
+     */
+    public IngresoPeriodo(String periodo, double ingresos) {
+        this.periodo = periodo;
+        this.ingresos = ingresos;
+    }
+}
@@ -0,0 +1,48 @@
+package es.unizar.eina.notepad.database;
+
+import androidx.room.ColumnInfo;
+
+/**
+ * Intervalo durante el cual un quad pertenece a una reserva.
+ * <p>
+ * No es una entidad: es el resultado de unir reserva_quad con reserva y
+ * sirve para construir los índices en memoria sin cargar reservas completas.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see ReservaQuadDao#getIntervalos()
+ * @see OcupacionRepository
+ */
+public class IntervaloOcupacion {
+
+    /** Identificador de la reserva */
+    @ColumnInfo(name = "reserva_id")
+    public final int reservaId;
+
+    /** Identificador del quad */
+    @ColumnInfo(name = "quad_id")
+    public final int quadId;
+
+    /** Fecha de recogida en milisegundos */
+    @ColumnInfo(name = "fecha_recogida")
+    public final long recogida;
+
+    /** Fecha de devolución en milisegundos */
+    @ColumnInfo(name = "fecha_devolucion")
+    public final long devolucion;
+
+    /**
+     * Construye un intervalo.
+     * @param reservaId Identificador de la reserva.
+     * @param quadId Identificador del quad.
+     * @param recogida Fecha de recogida en milisegundos.
+     * @param devolucion Fecha de devolución en milisegundos.
+     */
+    public IntervaloOcupacion(int reservaId, int quadId, long recogida, long devolucion) {
+        this.reservaId = reservaId;
+        this.quadId = quadId;
+        this.recogida = recogida;
+        this.devolucion = devolucion;
+    }
+}
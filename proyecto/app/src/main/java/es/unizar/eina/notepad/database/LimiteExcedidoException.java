@@ -0,0 +1,32 @@
+package es.unizar.eina.notepad.database;
+
+/**
+ * Excepción lanzada cuando una inserción superaría el número máximo de
+ * quads o de reservas que admite el sistema.
+ * <p>
+ * La lanzan los repositorios dentro de la transacción de inserción, antes
+ * de escribir, por lo que no se inserta nada.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see Contador
+ */
+public class LimiteExcedidoException extends RuntimeException {
+
+    private final int mLimite;
+
+    /**
+     * @param tabla Tabla que ha alcanzado el límite.
+     * @param limite Número máximo de filas permitido.
+     */
+    public LimiteExcedidoException(String tabla, int limite) {
+        super("Se ha alcanzado el máximo de " + limite + " filas en " + tabla);
+        mLimite = limite;
+    }
+
+    /**
+     * @return Número máximo de filas permitido.
+     */
+    public int getLimite() { return mLimite; }
+}
@@ -0,0 +1,39 @@
+package es.unizar.eina.notepad.database;
+
+import androidx.room.Embedded;
+import androidx.room.Relation;
+
+/**
+ * Línea de una reserva: la asociación {@link ReservaQuad} junto con su {@link Quad}.
+ * <p>
+ * No es una entidad; Room la rellena a partir de la tabla reserva_quad y
+ * resuelve el quad de cada línea mediante la relación quad_id → id, de modo
+ * que matrícula, tipo y precio llegan sin consultas adicionales.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see ReservaCompleta
+ * @see ReservaQuad
+ * @see Quad
+ */
+public class LineaReserva {
+
+    @Embedded
+    private ReservaQuad reservaQuad;
+
+    @Relation(parentColumn = "quad_id", entityColumn = "id")
+    private Quad quad;
+
+    /** @return Asociación reserva-quad (incluye el número de cascos). */
+    public ReservaQuad getReservaQuad() { return reservaQuad; }
+
+    /** @param reservaQuad Asociación reserva-quad. */
+    public void setReservaQuad(ReservaQuad reservaQuad) { this.reservaQuad = reservaQuad; }
+
+    /** @return Quad asociado a la línea. */
+    public Quad getQuad() { return quad; }
+
+    /** @param quad Quad asociado a la línea. */
+    public void setQuad(Quad quad) { this.quad = quad; }
+}
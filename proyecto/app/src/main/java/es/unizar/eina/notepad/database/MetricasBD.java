@@ -0,0 +1,249 @@
+package es.unizar.eina.notepad.database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Métricas en memoria de las operaciones de base de datos de los repositorios.
+ * <p>
+ * {@link OperacionesBD} registra cada operación con su nombre
+ * ({@code Repositorio.metodo}). Por operación se guardan tres histogramas de
+ * latencia: el tiempo que espera en la cola del executor, el que tarda en
+ * ejecutarse y la suma de ambos. También se cuentan las operaciones que
+ * fallan, las que se rechazan por una regla de negocio
+ * ({@link ConflictoReservaException} o {@link LimiteExcedidoException}, que no
+ * son fallos de la base de datos) y las esperas síncronas que superan
+ * {@link OperacionesBD#TIMEOUT}. Las lecturas por id servidas desde la caché
+ * de entidades también se registran, como ejecuciones sin espera, y se
+ * cuentan aparte como aciertos.
+ * </p>
+ * <p>
+ * Los histogramas usan cubetas de potencias de dos en microsegundos, así que
+ * registrar una muestra es un incremento atómico sin reservar memoria. Los
+ * percentiles se dan como el límite superior de su cubeta: tienen un error
+ * de como mucho el doble, suficiente para distinguir un p99 de 2 ms de uno
+ * de 200 ms. Las métricas se pierden al cerrar el proceso.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see OperacionesBD
+ */
+public final class MetricasBD {
+
+    private static final Map<String, Operacion> sOperaciones = new ConcurrentHashMap<>();
+
+    private MetricasBD() {}
+
+    /**
+     * Registra una operación terminada.
+     *
+     * @param operacion Nombre de la operación.
+     * @param esperaNanos Tiempo en la cola del executor.
+     * @param ejecucionNanos Tiempo de ejecución.
+     * @param fallo true si la operación lanzó una excepción inesperada.
+     * @param rechazo true si la operación se rechazó por conflicto de fechas o por límite.
+     */
+    static void registrar(String operacion, long esperaNanos, long ejecucionNanos, boolean fallo, boolean rechazo) {
+        Operacion op = de(operacion);
+        op.mEspera.registrar(esperaNanos);
+        op.mEjecucion.registrar(ejecucionNanos);
+        op.mTotal.registrar(esperaNanos + ejecucionNanos);
+        if (fallo) op.mFallos.incrementAndGet();
+        if (rechazo) op.mRechazos.incrementAndGet();
+    }
+
+    /**
+     * Registra una lectura servida desde una caché en memoria, sin pasar por
+     * el executor: cuenta como una ejecución sin espera y como acierto.
+     *
+     * @param operacion Nombre de la operación.
+     * @param nanos Tiempo de la búsqueda en la caché.
+     */
+    static void registrarAcierto(String operacion, long nanos) {
+        registrar(operacion, 0, nanos, false, false);
+        de(operacion).mAciertos.incrementAndGet();
+    }
+
+    /**
+     * Registra una espera síncrona que ha superado el timeout.
+     *
+     * @param operacion Nombre de la operación.
+     */
+    static void registrarTimeout(String operacion) {
+        de(operacion).mTimeouts.incrementAndGet();
+    }
+
+    /**
+     * Devuelve el estado actual de todas las operaciones registradas.
+     *
+     * @return Resúmenes ordenados por nombre de operación.
+     */
+    public static List<Resumen> instantanea() {
+        List<Resumen> resumenes = new ArrayList<>();
+        for (Map.Entry<String, Operacion> e : sOperaciones.entrySet()) {
+            resumenes.add(new Resumen(e.getKey(), e.getValue()));
+        }
+        Collections.sort(resumenes, (a, b) -> a.getOperacion().compareTo(b.getOperacion()));
+        return resumenes;
+    }
+
+    /**
+     * Devuelve el estado actual de una operación.
+     *
+     * @param operacion Nombre de la operación ({@code Repositorio.metodo}).
+     * @return Resumen de la operación, o null si aún no se ha ejecutado.
+     */
+    public static Resumen resumen(String operacion) {
+        Operacion op = sOperaciones.get(operacion);
+        return op == null ? null : new Resumen(operacion, op);
+    }
+
+    /** Borra todas las métricas registradas. */
+    public static void reiniciar() {
+        sOperaciones.clear();
+    }
+
+    private static Operacion de(String operacion) {
+        Operacion op = sOperaciones.get(operacion);
+        if (op == null) {
+            Operacion nueva = new Operacion();
+            op = sOperaciones.putIfAbsent(operacion, nueva);
+            if (op == null) op = nueva;
+        }
+        return op;
+    }
+
+    // Contadores de una operación; se actualizan desde varios hilos sin bloqueo
+    private static final class Operacion {
+        final Histograma mEspera = new Histograma();
+        final Histograma mEjecucion = new Histograma();
+        final Histograma mTotal = new Histograma();
+        final AtomicLong mFallos = new AtomicLong();
+        final AtomicLong mRechazos = new AtomicLong();
+        final AtomicLong mAciertos = new AtomicLong();
+        final AtomicLong mTimeouts = new AtomicLong();
+    }
+
+    // Cubeta i: [2^(i-1), 2^i) microsegundos; la 0 guarda lo que no llega a 1 µs
+    private static final class Histograma {
+        private static final int CUBETAS = 40;
+        private final AtomicLongArray mCuentas = new AtomicLongArray(CUBETAS);
+        private final AtomicLong mSumaNanos = new AtomicLong();
+        private final AtomicLong mMaxNanos = new AtomicLong();
+
+        void registrar(long nanos) {
+            if (nanos < 0) nanos = 0;
+            long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+            int cubeta = Math.min(CUBETAS - 1, 64 - Long.numberOfLeadingZeros(micros));
+            mCuentas.incrementAndGet(cubeta);
+            mSumaNanos.addAndGet(nanos);
+            long max;
+            do {
+                max = mMaxNanos.get();
+            } while (nanos > max && !mMaxNanos.compareAndSet(max, nanos));
+        }
+    }
+
+    /**
+     * Distribución de una latencia, en milisegundos.
+     */
+    public static final class Distribucion {
+        private final long mMuestras;
+        private final double mMedia;
+        private final double mP50;
+        private final double mP95;
+        private final double mP99;
+        private final double mMax;
+
+        private Distribucion(Histograma h) {
+            long[] cuentas = new long[Histograma.CUBETAS];
+            long total = 0;
+            for (int i = 0; i < cuentas.length; i++) {
+                cuentas[i] = h.mCuentas.get(i);
+                total += cuentas[i];
+            }
+            mMuestras = total;
+            mMedia = total == 0 ? 0 : h.mSumaNanos.get() / 1e6 / total;
+            mMax = h.mMaxNanos.get() / 1e6;
+            mP50 = percentil(cuentas, total, 0.50);
+            mP95 = percentil(cuentas, total, 0.95);
+            mP99 = percentil(cuentas, total, 0.99);
+        }
+
+        // Límite superior de la cubeta donde cae el percentil, sin pasar del máximo observado
+        private double percentil(long[] cuentas, long total, double p) {
+            if (total == 0) return 0;
+            long objetivo = (long) Math.ceil(p * total);
+            long acumulado = 0;
+            for (int i = 0; i < cuentas.length; i++) {
+                acumulado += cuentas[i];
+                if (acumulado >= objetivo) return Math.min((1L << i) / 1000.0, mMax);
+            }
+            return mMax;
+        }
+
+        /** @return Número de muestras. */
+        public long getMuestras() { return mMuestras; }
+        /** @return Media en milisegundos. */
+        public double getMedia() { return mMedia; }
+        /** @return Percentil 50 en milisegundos. */
+        public double getP50() { return mP50; }
+        /** @return Percentil 95 en milisegundos. */
+        public double getP95() { return mP95; }
+        /** @return Percentil 99 en milisegundos. */
+        public double getP99() { return mP99; }
+        /** @return Máximo observado en milisegundos. */
+        public double getMax() { return mMax; }
+    }
+
+    /**
+     * Copia del estado de una operación en un instante.
+     */
+    public static final class Resumen {
+        private final String mOperacion;
+        private final Distribucion mEspera;
+        private final Distribucion mEjecucion;
+        private final Distribucion mTotal;
+        private final long mFallos;
+        private final long mRechazos;
+        private final long mAciertos;
+        private final long mTimeouts;
+
+        private Resumen(String operacion, Operacion op) {
+            mOperacion = operacion;
+            mEspera = new Distribucion(op.mEspera);
+            mEjecucion = new Distribucion(op.mEjecucion);
+            mTotal = new Distribucion(op.mTotal);
+            mFallos = op.mFallos.get();
+            mRechazos = op.mRechazos.get();
+            mAciertos = op.mAciertos.get();
+            mTimeouts = op.mTimeouts.get();
+        }
+
+        /** @return Nombre de la operación ({@code Repositorio.metodo}). */
+        public String getOperacion() { return mOperacion; }
+        /** @return Número de ejecuciones terminadas, con o sin error. */
+        public long getLlamadas() { return mTotal.getMuestras(); }
+        /** @return Tiempo en la cola del executor. */
+        public Distribucion getEspera() { return mEspera; }
+        /** @return Tiempo de ejecución en el executor. */
+        public Distribucion getEjecucion() { return mEjecucion; }
+        /** @return Espera más ejecución. */
+        public Distribucion getTotal() { return mTotal; }
+        /** @return Ejecuciones que lanzaron una excepción inesperada. */
+        public long getFallos() { return mFallos; }
+        /** @return Ejecuciones rechazadas por conflicto de fechas o por límite de registros. */
+        public long getRechazos() { return mRechazos; }
+        /** @return Ejecuciones servidas desde la caché, sin tocar la base de datos. */
+        public long getAciertos() { return mAciertos; }
+        /** @return Esperas síncronas que superaron el timeout. */
+        public long getTimeouts() { return mTimeouts; }
+    }
+}
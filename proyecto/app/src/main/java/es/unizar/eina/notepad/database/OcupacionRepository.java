@@ -0,0 +1,305 @@
+package es.unizar.eina.notepad.database;
+
+import android.app.Application;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import es.unizar.eina.notepad.domain.FormatoFechas;
+import es.unizar.eina.notepad.domain.IndiceOcupacion;
+import es.unizar.eina.notepad.domain.TipoQuad;
+import es.unizar.eina.notepad.domain.ValidadorConflictos.Conflicto;
+import es.unizar.eina.notepad.domain.ValidadorConflictos;
+
+/**
+ * Repositorio del índice de ocupación en memoria.
+ * <p>
+ * Mantiene un único {@link IndiceOcupacion} para toda la aplicación, junto
+ * con un {@link ValidadorConflictos} con los mismos intervalos en
+ * milisegundos para detectar reservas solapadas al guardar. Se
+ * construye desde reserva y reserva_quad la primera vez que se consulta y,
+ * a partir de ahí, los repositorios lo actualizan tras cada escritura
+ * reconstruyendo solo las filas de los quads afectados.
+ * </p>
+ * <p>
+ * La construcción y todas las actualizaciones se ejecutan en el hilo
+ * escritor de la base de datos, por lo que se aplican en el mismo orden que
+ * las escrituras y el índice nunca refleja un estado anterior al último
+ * commit. Las consultas no tocan SQLite.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see IndiceOcupacion
+ * @see ValidadorConflictos
+ * @see QuadRepository
+ * @see ReservaRepository
+ * @see ReservaQuadRepository
+ */
+public class OcupacionRepository {
+
+    private static final IndiceOcupacion sIndice = new IndiceOcupacion();
+    private static final ValidadorConflictos sValidador = new ValidadorConflictos();
+    /** Futuro de la construcción inicial; null si hay que (re)construir */
+    private static CompletableFuture<IndiceOcupacion> sListo;
+    /** Solo se modifica en el hilo escritor */
+    private static volatile boolean sConstruido;
+
+    private final QuadDao mQuadDao;
+    private final ReservaQuadDao mReservaQuadDao;
+
+    /**
+     * Constructor del repositorio.
+     *
+     * @param application Contexto de la aplicación para acceder a la base de datos.
+     */
+    public OcupacionRepository(Application application) {
+        AppRoomDatabase db = AppRoomDatabase.getDatabase(application);
+        mQuadDao = db.quadDao();
+        mReservaQuadDao = db.reservaQuadDao();
+    }
+
+    /**
+     * Devuelve el índice de ocupación, construyéndolo si es la primera vez.
+     *
+     * @return Futuro que se completa cuando el índice está al día.
+     */
+    public CompletableFuture<IndiceOcupacion> getIndiceAsync() {
+        synchronized (OcupacionRepository.class) {
+            if (sListo == null) {
+                sListo = OperacionesBD.enviar("OcupacionRepository.construirIndice", AppRoomDatabase.databaseWriteExecutor, () -> {
+                    construir();
+                    return sIndice;
+                });
+            }
+            return sListo;
+        }
+    }
+
+    /**
+     * Indica si un quad está libre todos los días entre dos fechas (ambas incluidas).
+     *
+     * @param quadId Identificador del quad.
+     * @param recogida Fecha de recogida en milisegundos.
+     * @param devolucion Fecha de devolución en milisegundos.
+     * @return Futuro con true si el quad no tiene reservas esos días.
+     */
+    public CompletableFuture<Boolean> estaLibreAsync(int quadId, long recogida, long devolucion) {
+        return getIndiceAsync().thenApply(indice -> indice.estaLibre(quadId,
+                FormatoFechas.diaEpoch(recogida), FormatoFechas.diaEpoch(devolucion)));
+    }
+
+    /**
+     * Número de quads de un tipo libres en un día.
+     *
+     * @param tipo Tipo de quad.
+     * @param dia Cualquier instante del día, en milisegundos.
+     * @return Futuro con el número de quads de ese tipo sin reservas ese día.
+     */
+    public CompletableFuture<Integer> contarLibresAsync(TipoQuad tipo, long dia) {
+        return getIndiceAsync().thenApply(indice -> indice.contarLibres(tipo.ordinal(), FormatoFechas.diaEpoch(dia)));
+    }
+
+    /**
+     * Busca reservas existentes que se solaparían con una reserva, sin escribir nada.
+     * <p>
+     * Sirve para avisar al usuario antes de guardar; el guardado vuelve a
+     * comprobarlo en el hilo escritor.
+     * </p>
+     *
+     * @param excluirReservaId Reserva que se está editando, o -1 si es nueva.
+     * @param recogida Fecha de recogida en milisegundos.
+     * @param devolucion Fecha de devolución en milisegundos.
+     * @param quadIds Quads seleccionados.
+     * @return Futuro con los conflictos encontrados, vacío si no hay ninguno.
+     */
+    public CompletableFuture<List<Conflicto>> buscarConflictosAsync(int excluirReservaId, long recogida,
+                                                                     long devolucion, Collection<Integer> quadIds) {
+        return getIndiceAsync().thenApply(indice -> sValidador.buscar(quadIds, recogida, devolucion, excluirReservaId));
+    }
+
+    /**
+     * Comprueba en el hilo escritor, antes de escribir, que una reserva no
+     * reutiliza un quad ya reservado en fechas que se solapan.
+     *
+     * @param excluirReservaId Reserva que se está guardando, o -1 si es nueva.
+     * @param recogida Fecha de recogida en milisegundos.
+     * @param devolucion Fecha de devolución en milisegundos.
+     * @param quadIds Quads de la reserva.
+     * @throws ConflictoReservaException Si algún quad está ocupado en esas fechas.
+     */
+    void comprobarConflictos(int excluirReservaId, long recogida, long devolucion, Collection<Integer> quadIds) {
+        if (quadIds == null || quadIds.isEmpty()) return;
+        if (!sConstruido) {
+            // Estamos en el hilo escritor: se construye aquí y se publica para las consultas
+            construir();
+            synchronized (OcupacionRepository.class) {
+                if (sListo == null) sListo = CompletableFuture.completedFuture(sIndice);
+            }
+        }
+        List<Conflicto> conflictos = sValidador.buscar(quadIds, recogida, devolucion, excluirReservaId);
+        if (!conflictos.isEmpty()) throw new ConflictoReservaException(conflictos);
+    }
+
+    /**
+     * Igual que {@link #comprobarConflictos}, a partir de las asociaciones reserva-quad.
+     *
+     * @param excluirReservaId Reserva que se está guardando, o -1 si es nueva.
+     * @param recogida Fecha de recogida en milisegundos.
+     * @param devolucion Fecha de devolución en milisegundos.
+     * @param lineas Asociaciones que se van a escribir.
+     * @throws ConflictoReservaException Si algún quad está ocupado en esas fechas.
+     */
+    void comprobarLineas(int excluirReservaId, long recogida, long devolucion, List<ReservaQuad> lineas) {
+        if (lineas == null) return;
+        List<Integer> quadIds = new ArrayList<>(lineas.size());
+        for (ReservaQuad rq : lineas) quadIds.add(rq.getQuadId());
+        comprobarConflictos(excluirReservaId, recogida, devolucion, quadIds);
+    }
+
+    /*
+     * Ganchos de escritura. Los repositorios los llaman en el hilo escritor,
+     * justo después de modificar la base de datos. Si el índice aún no se ha
+     * construido no hacen nada: la construcción leerá el estado ya modificado.
+     */
+
+    /**
+     * Actualiza el índice tras insertar o modificar un quad.
+     * @param quadId Identificador del quad.
+     */
+    void alGuardarQuad(int quadId) {
+        if (!sConstruido) return;
+        seguro(() -> reconstruirQuad(quadId));
+    }
+
+    /**
+     * Actualiza el índice tras eliminar un quad.
+     * @param quadId Identificador del quad.
+     */
+    void alEliminarQuad(int quadId) {
+        if (!sConstruido) return;
+        sIndice.eliminarQuad(quadId);
+        sValidador.eliminarQuad(quadId);
+    }
+
+    /**
+     * Actualiza el índice tras modificar reservas o asociaciones de unos quads.
+     * @param quadIds Identificadores de los quads afectados.
+     */
+    void alCambiarQuads(Collection<Integer> quadIds) {
+        if (!sConstruido || quadIds == null) return;
+        seguro(() -> {
+            for (Integer quadId : quadIds) reconstruirQuad(quadId);
+        });
+    }
+
+    /**
+     * Actualiza el índice tras escribir unas asociaciones reserva-quad.
+     * @param lineas Asociaciones escritas.
+     */
+    void alCambiarLineas(List<ReservaQuad> lineas) {
+        if (!sConstruido || lineas == null) return;
+        List<Integer> quadIds = new ArrayList<>(lineas.size());
+        for (ReservaQuad rq : lineas) quadIds.add(rq.getQuadId());
+        alCambiarQuads(quadIds);
+    }
+
+    /**
+     * Quads de una reserva, para saber qué filas actualizar tras modificarla.
+     * Debe llamarse antes de borrarla.
+     *
+     * @param reservaId Identificador de la reserva.
+     * @return Identificadores de sus quads (vacío si el índice no está construido).
+     */
+    List<Integer> quadsDeReserva(int reservaId) {
+        if (!sConstruido) return new ArrayList<>();
+        return mReservaQuadDao.getQuadIdsByReservaId(reservaId);
+    }
+
+    /**
+     * Descarta el índice al cambiar la zona horaria: sus días se calcularon
+     * en la zona anterior. Se reconstruye en la siguiente consulta.
+     */
+    public void alCambiarZona() {
+        AppRoomDatabase.databaseWriteExecutor.execute(OcupacionRepository::descartar);
+    }
+
+    /**
+     * Descarta el índice tras una carga masiva que no pasa por los
+     * repositorios; se reconstruye en la siguiente consulta.
+     */
+    static void descartar() {
+        sConstruido = false;
+        synchronized (OcupacionRepository.class) {
+            sListo = null;
+        }
+    }
+
+    // Carga completa: todos los quads y todos los intervalos en dos consultas
+    private void construir() {
+        List<Quad> quads = mQuadDao.getQuadsSync();
+        Map<Integer, List<IntervaloOcupacion>> porQuad = new HashMap<>();
+        for (IntervaloOcupacion intervalo : mReservaQuadDao.getIntervalos()) {
+            List<IntervaloOcupacion> lista = porQuad.get(intervalo.quadId);
+            if (lista == null) {
+                lista = new ArrayList<>();
+                porQuad.put(intervalo.quadId, lista);
+            }
+            lista.add(intervalo);
+        }
+        sIndice.vaciar();
+        sValidador.vaciar();
+        for (Quad quad : quads) {
+            List<IntervaloOcupacion> intervalos = porQuad.get(quad.getId());
+            cargarQuad(quad, intervalos != null ? intervalos : new ArrayList<>());
+        }
+        sConstruido = true;
+        Log.d("OcupacionRepository", "índice construido: " + quads.size() + " quads");
+    }
+
+    private void reconstruirQuad(int quadId) {
+        Quad quad = mQuadDao.getQuadById(quadId);
+        if (quad == null) {
+            sIndice.eliminarQuad(quadId);
+            sValidador.eliminarQuad(quadId);
+        } else {
+            cargarQuad(quad, mReservaQuadDao.getIntervalosByQuadId(quadId));
+        }
+    }
+
+    private static void cargarQuad(Quad quad, List<IntervaloOcupacion> intervalos) {
+        int n = intervalos.size();
+        int[] reservaIds = new int[n];
+        long[] recogidas = new long[n];
+        long[] devoluciones = new long[n];
+        long[] desde = new long[n];
+        long[] hasta = new long[n];
+        for (int i = 0; i < n; i++) {
+            IntervaloOcupacion intervalo = intervalos.get(i);
+            reservaIds[i] = intervalo.reservaId;
+            recogidas[i] = intervalo.recogida;
+            devoluciones[i] = intervalo.devolucion;
+            desde[i] = FormatoFechas.diaEpoch(intervalo.recogida);
+            hasta[i] = FormatoFechas.diaEpoch(intervalo.devolucion);
+        }
+        int tipo = quad.getTipo() == null ? -1 : quad.getTipo().ordinal();
+        sIndice.reemplazarQuad(quad.getId(), tipo, desde, hasta, n);
+        sValidador.reemplazarQuad(quad.getId(), reservaIds, recogidas, devoluciones, n);
+    }
+
+    // Un fallo al actualizar el índice no debe hacer fallar la escritura ya confirmada:
+    // se descarta el índice y se reconstruye en la siguiente consulta
+    private static void seguro(Runnable actualizacion) {
+        try {
+            actualizacion.run();
+        } catch (RuntimeException ex) {
+            Log.d("OcupacionRepository", ex.getClass().getSimpleName() + ex.getMessage());
+            descartar();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package es.unizar.eina.notepad.database;
+
+import android.util.Log;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Utilidades comunes para lanzar operaciones de base de datos desde los repositorios.
+ * <p>
+ * Las operaciones se envían a un executor de la base de datos y devuelven un
+ * {@link CompletableFuture}. Las variantes síncronas de los repositorios se
+ * construyen esperando ese futuro con {@link #esperar}, de modo que ambas APIs
+ * comparten una única implementación.
+ * </p>
+ * <p>
+ * Cada operación lleva un nombre ({@code Repositorio.metodo}) con el que se
+ * registran en {@link MetricasBD} su espera en la cola del executor, su tiempo
+ * de ejecución, sus fallos, sus rechazos por conflicto o límite y los
+ * timeouts de las esperas síncronas.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see AppRoomDatabase
+ * @see MetricasBD
+ */
+final class OperacionesBD {
+
+    /** Timeout en milisegundos para las esperas síncronas */
+    static final long TIMEOUT = 15000;
+
+    private OperacionesBD() {}
+
+    /**
+     * Ejecuta una operación de base de datos de forma asíncrona.
+     *
+     * @param nombre Nombre de la operación en las métricas ({@code Repositorio.metodo}).
+     * @param executor Executor de la base de datos donde se ejecuta la operación.
+     * @param operacion Operación a ejecutar (normalmente una llamada al DAO).
+     * @param <T> Tipo del resultado.
+     * @return Futuro que se completa con el resultado o con la excepción lanzada.
+     */
+    static <T> CompletableFuture<T> enviar(String nombre, Executor executor, Supplier<T> operacion) {
+        long encolada = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> {
+            long inicio = System.nanoTime();
+            boolean fallo = true;
+            boolean rechazo = false;
+            try {
+                T resultado = operacion.get();
+                fallo = false;
+                return resultado;
+            } catch (ConflictoReservaException | LimiteExcedidoException ex) {
+                // Validaciones de negocio: la base de datos funcionó, no es un fallo
+                fallo = false;
+                rechazo = true;
+                throw ex;
+            } finally {
+                MetricasBD.registrar(nombre, inicio - encolada, System.nanoTime() - inicio, fallo, rechazo);
+                TrazaConsultas.cerrar();
+            }
+        }, executor);
+    }
+
+    /**
+     * Devuelve un resultado ya disponible en una caché y lo registra en las
+     * métricas como una ejecución sin espera, para que las lecturas servidas
+     * desde memoria también cuenten en los histogramas de la operación.
+     *
+     * @param nombre Nombre de la operación, el mismo que en {@link #enviar}.
+     * @param inicio {@link System#nanoTime()} al empezar a buscar en la caché.
+     * @param valor Valor encontrado.
+     * @param <T> Tipo del resultado.
+     * @return Futuro ya completado con {@code valor}.
+     */
+    static <T> CompletableFuture<T> desdeCache(String nombre, long inicio, T valor) {
+        MetricasBD.registrarAcierto(nombre, System.nanoTime() - inicio);
+        return CompletableFuture.completedFuture(valor);
+    }
+
+    /**
+     * Espera el resultado de una operación como mucho {@link #TIMEOUT} milisegundos.
+     * <p>
+     * Bloquea el hilo llamante: no debe usarse desde el hilo principal.
+     * </p>
+     *
+     * @param nombre Nombre de la operación, el mismo que en {@link #enviar}; la
+     *               parte del repositorio se usa como etiqueta del log.
+     * @param future Futuro de la operación.
+     * @param porDefecto Valor a devolver si la operación falla o expira.
+     * @param <T> Tipo del resultado.
+     * @return El resultado de la operación, o {@code porDefecto} en caso de error.
+     */
+    static <T> T esperar(String nombre, Future<T> future, T porDefecto) {
+        try {
+            return future.get(TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            // La operación sigue en curso; su latencia real se registra al terminar
+            MetricasBD.registrarTimeout(nombre);
+            Log.d(etiqueta(nombre), ex.getClass().getSimpleName() + ex.getMessage());
+            return porDefecto;
+        } catch (InterruptedException | ExecutionException ex) {
+            // Los fallos de la operación ya se cuentan al ejecutarla
+            Log.d(etiqueta(nombre), ex.getClass().getSimpleName() + ex.getMessage());
+            return porDefecto;
+        }
+    }
+
+    // "QuadRepository.insert" -> "QuadRepository"
+    private static String etiqueta(String nombre) {
+        int punto = nombre.indexOf('.');
+        return punto < 0 ? nombre : nombre.substring(0, punto);
+    }
+}
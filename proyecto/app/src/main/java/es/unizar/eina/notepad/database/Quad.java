@@ -3,8 +3,11 @@ package es.unizar.eina.notepad.database;
 import androidx.annotation.NonNull;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
+import es.unizar.eina.notepad.domain.TipoQuad;
+
 /**
  * Entidad que representa un Quad (vehículo) en el sistema de alquiler.
  * <p>
@@ -14,6 +17,13 @@ import androidx.room.PrimaryKey;
  * </p>
  * <p>
  * La clase utiliza anotaciones de Room para persistencia en base de datos SQLite.
+ * El tipo es {@link TipoQuad}, del módulo de dominio, y se guarda por su nombre.
+ * </p>
+ * <p>
+ * Los índices cubren los criterios de ordenación de la lista de quads
+ * (matrícula, precio y tipo), de modo que SQLite devuelve las filas ya
+ * ordenadas recorriendo el índice en lugar de ordenarlas en memoria. El de
+ * tipo es descendente para que los UNIPLAZA aparezcan antes que los BIPLAZA.
  * </p>
  *
  * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
@@ -21,14 +31,19 @@ import androidx.room.PrimaryKey;
  * @see QuadDao
  * @see Reserva
  */
-@Entity(tableName = "quad")
+@Entity(tableName = "quad",
+        indices = {
+            @Index("matricula"),
+            @Index({"precio", "matricula"}),
+            @Index(value = {"tipo", "matricula"}, orders = {Index.Order.DESC, Index.Order.ASC})
+        })
 public class Quad {
     @PrimaryKey(autoGenerate = true)
     @ColumnInfo(name = "id")
     private int id;
 
     @ColumnInfo(name = "tipo")
-    private Tipo tipo;
+    private TipoQuad tipo;
 
     @ColumnInfo(name = "precio")
     private int precio;
@@ -48,7 +63,7 @@ public class Quad {
      * @param matricula Matrícula única del quad. No puede ser nula.
      * @param descripcion Descripción opcional del quad.
      */
-    public Quad(Tipo tipo, int precio, @NonNull String matricula, String descripcion) {
+    public Quad(TipoQuad tipo, int precio, @NonNull String matricula, String descripcion) {
         this.tipo = tipo;
         this.precio = precio;
         this.matricula = matricula;
@@ -66,7 +81,7 @@ public class Quad {
      * @param body Cuerpo descriptivo (se mapea a descripción).
      */
     public Quad(@NonNull String title, String body) {
-        this.tipo = Tipo.UNIPLAZA;
+        this.tipo = TipoQuad.UNIPLAZA;
         this.precio = 0;
         this.matricula = title != null ? title : "";
         this.descripcion = body;
@@ -88,13 +103,13 @@ public class Quad {
      * Devuelve el tipo de quad.
      * @return Tipo del quad (UNIPLAZA o BIPLAZA).
      */
-    public Tipo getTipo() { return tipo; }
+    public TipoQuad getTipo() { return tipo; }
 
     /**
      * Establece el tipo de quad.
      * @param tipo Tipo del quad (UNIPLAZA o BIPLAZA).
      */
-    public void setTipo(Tipo tipo) { this.tipo = tipo; }
+    public void setTipo(TipoQuad tipo) { this.tipo = tipo; }
 
     /**
      * Devuelve el precio de alquiler por día.
@@ -132,18 +147,4 @@ public class Quad {
      */
     public void setDescripcion(String descripcion) { this.descripcion = descripcion; }
 
-    /**
-     * Enumerado que define los tipos de quad disponibles.
-     * <p>
-     * UNIPLAZA: Quad para una persona.<br>
-     * BIPLAZA: Quad para dos personas.
-     * </p>
-     */
-    public enum Tipo {
-        /** Quad de una plaza */
-        UNIPLAZA,
-        /** Quad de dos plazas */
-        BIPLAZA
-    }
-
 }
@@ -83,6 +83,67 @@ public interface QuadDao {
     @Query("SELECT * FROM quad ORDER BY matricula ASC")
     LiveData<List<Quad>> getAllQuads();
 
+    /**
+     * Obtiene todos los quads ordenados por precio y, a igualdad, por matrícula.
+     * <p>
+     * La ordenación la resuelve el índice (precio, matricula).
+     * </p>
+     *
+     * @return LiveData con la lista de quads ordenada por precio.
+     */
+    @Query("SELECT * FROM quad ORDER BY precio ASC, matricula ASC")
+    LiveData<List<Quad>> getQuadsPorPrecio();
+
+    /**
+     * Obtiene todos los quads ordenados por tipo (UNIPLAZA primero) y matrícula.
+     * <p>
+     * El tipo se guarda con el nombre del enumerado, así que el orden
+     * descendente coloca UNIPLAZA antes que BIPLAZA. La ordenación la resuelve
+     * el índice (tipo DESC, matricula ASC).
+     * </p>
+     *
+     * @return LiveData con la lista de quads ordenada por tipo.
+     */
+    @Query("SELECT * FROM quad ORDER BY tipo DESC, matricula ASC")
+    LiveData<List<Quad>> getQuadsPorTipo();
+
+    /**
+     * Busca quads por matrícula o descripción usando el índice FTS4.
+     * <p>
+     * La búsqueda consulta el índice invertido de quad_fts y une por rowid
+     * con la tabla quad, sin recorrerla entera.
+     * </p>
+     *
+     * @param consulta Expresión MATCH (ver {@link BusquedaFts#aConsulta(String)}).
+     * @return LiveData con los quads que coinciden, ordenados por matrícula.
+     */
+    @Query("SELECT quad.* FROM quad JOIN quad_fts ON quad.rowid = quad_fts.rowid "
+            + "WHERE quad_fts MATCH :consulta ORDER BY quad.matricula ASC")
+    LiveData<List<Quad>> buscarQuads(String consulta);
+
+    /**
+     * Busca quads por matrícula o descripción, ordenados por precio y matrícula.
+     *
+     * @param consulta Expresión MATCH (ver {@link BusquedaFts#aConsulta(String)}).
+     * @return LiveData con los quads que coinciden, ordenados por precio.
+     * @see #buscarQuads(String)
+     */
+    @Query("SELECT quad.* FROM quad JOIN quad_fts ON quad.rowid = quad_fts.rowid "
+            + "WHERE quad_fts MATCH :consulta ORDER BY quad.precio ASC, quad.matricula ASC")
+    LiveData<List<Quad>> buscarQuadsPorPrecio(String consulta);
+
+    /**
+     * Busca quads por matrícula o descripción, ordenados por tipo (UNIPLAZA
+     * primero) y matrícula.
+     *
+     * @param consulta Expresión MATCH (ver {@link BusquedaFts#aConsulta(String)}).
+     * @return LiveData con los quads que coinciden, ordenados por tipo.
+     * @see #buscarQuads(String)
+     */
+    @Query("SELECT quad.* FROM quad JOIN quad_fts ON quad.rowid = quad_fts.rowid "
+            + "WHERE quad_fts MATCH :consulta ORDER BY quad.tipo DESC, quad.matricula ASC")
+    LiveData<List<Quad>> buscarQuadsPorTipo(String consulta);
+
     /**
      * Obtiene un quad específico por su identificador.
      * <p>
@@ -94,5 +155,60 @@ public interface QuadDao {
      */
     @Query("SELECT * FROM quad WHERE id = :id")
     Quad getQuadById(int id);
+
+    /**
+     * Observa un quad por su identificador.
+     * <p>
+     * Room vuelve a emitir cada vez que se confirma una escritura en la
+     * tabla quad, así que la UI ve el quad actualizado sin volver a pedirlo.
+     * Emite null si el quad no existe o se elimina.
+     * </p>
+     *
+     * @param id Identificador del quad.
+     * @return LiveData con el quad.
+     */
+    @Query("SELECT * FROM quad WHERE id = :id")
+    LiveData<Quad> observeQuadById(int id);
+
+    /**
+     * Obtiene todos los quads de forma síncrona.
+     * <p>
+     * Para procesos en segundo plano (índices en memoria); la UI debe usar
+     * {@link #getAllQuads()}.
+     * </p>
+     *
+     * @return Lista de todos los quads.
+     */
+    @Query("SELECT * FROM quad")
+    List<Quad> getQuadsSync();
+
+    /**
+     * Obtiene los quads libres en un intervalo de fechas.
+     * <p>
+     * Un quad está ocupado si pertenece a alguna reserva cuyo intervalo
+     * [fecha_recogida, fecha_devolucion] se solapa con el solicitado
+     * (intervalos cerrados: un quad devuelto un día no puede recogerse ese
+     * mismo día en otra reserva). La subconsulta recorre el índice
+     * (fecha_recogida, fecha_devolucion) de reserva y los índices de
+     * reserva_quad, por lo que se resuelve en una única consulta.
+     * </p>
+     * <p>
+     * Método síncrono que debe ejecutarse en un hilo de fondo.
+     * </p>
+     *
+     * @param recogida Fecha de recogida solicitada en milisegundos.
+     * @param devolucion Fecha de devolución solicitada en milisegundos.
+     * @param excluirReservaId Reserva que no debe contar como ocupación
+     *                         (la que se está editando), o -1 si no hay ninguna.
+     * @return Lista de quads libres ordenada por matrícula.
+     */
+    @Query("SELECT * FROM quad WHERE id NOT IN ("
+            + "SELECT rq.quad_id FROM reserva r "
+            + "JOIN reserva_quad rq ON rq.reserva_id = r.id "
+            + "WHERE r.fecha_recogida <= :devolucion "
+            + "AND r.fecha_devolucion >= :recogida "
+            + "AND r.id != :excluirReservaId) "
+            + "ORDER BY matricula ASC")
+    List<Quad> getQuadsDisponibles(long recogida, long devolucion, int excluirReservaId);
 }
 
@@ -0,0 +1,46 @@
+package es.unizar.eina.notepad.database;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+
+/**
+ * Índice de texto completo (FTS4) sobre los quads.
+ * <p>
+ * Tabla de contenido externo sobre {@link Quad} que indexa la matrícula y
+ * la descripción. Room mantiene el índice sincronizado mediante triggers y
+ * la fila FTS comparte rowid con el quad.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see Quad
+ * @see QuadDao
+ */
+@Fts4(contentEntity = Quad.class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "quad_fts")
+public class QuadFts {
+
+    @ColumnInfo(name = "matricula")
+    private String matricula;
+
+    @ColumnInfo(name = "descripcion")
+    private String descripcion;
+
+    /**
+     * Construye una fila del índice.
+     * @param matricula Matrícula del quad.
+     * @param descripcion Descripción del quad.
+     */
+    public QuadFts(String matricula, String descripcion) {
+        this.matricula = matricula;
+        this.descripcion = descripcion;
+    }
+
+    /** @return Matrícula indexada. */
+    public String getMatricula() { return matricula; }
+
+    /** @return Descripción indexada. */
+    public String getDescripcion() { return descripcion; }
+}
@@ -6,11 +6,10 @@ import android.util.Log;
 
 import androidx.lifecycle.LiveData;
 
+import java.util.EnumMap;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Repositorio que gestiona el acceso a la fuente de datos de Quads.
@@ -21,6 +20,13 @@ import java.util.concurrent.TimeoutException;
  * de fondo y maneja los errores de sincronización.
  * </p>
  * <p>
+ * Cada operación existe en dos variantes: una asíncrona (sufijo
+ * {@code Async}) que devuelve un {@link CompletableFuture} sin bloquear al
+ * llamante, y una síncrona que espera ese futuro hasta un timeout. Desde el
+ * hilo principal deben usarse las asíncronas, encadenando el resultado con
+ * {@code thenAcceptAsync(..., executor)} para elegir el hilo del callback.
+ * </p>
+ * <p>
  * Implementa el patrón Repository del patrón arquitectónico MVVM,
  * ocultando los detalles de implementación de la persistencia de datos.
  * </p>
@@ -34,25 +40,55 @@ import java.util.concurrent.TimeoutException;
  */
 public class QuadRepository {
 
+    /**
+     * Criterios de ordenación disponibles para la lista de quads.
+     */
+    public enum Orden {
+        /** Por matrícula */
+        MATRICULA,
+        /** Por tipo (UNIPLAZA primero) */
+        TIPO,
+        /** Por precio por día */
+        PRECIO
+    }
+
+    private final AppRoomDatabase mDb;
     private final QuadDao mQuadDao;
-    private final LiveData<List<Quad>> mAllQuads;
+    private final ContadorDao mContadorDao;
+    private final ReservaQuadDao mReservaQuadDao;
+    // Consultas observables, creadas la primera vez que se piden y compartidas por todos los observadores
+    private final Map<Orden, LiveData<List<Quad>>> mPorOrden = new EnumMap<>(Orden.class);
+    private final OcupacionRepository mOcupacion;
+    private final CacheEntidades<Quad> mCache;
 
-    /** Timeout en milisegundos para operaciones de base de datos */
-    private final long TIMEOUT = 15000;
+    /** Caché de quads por id compartida por todas las instancias del repositorio */
+    private static CacheEntidades<Quad> sCache;
+    /** Hay como mucho 100 quads (R.N.F. 1): caben todos */
+    private static final int TAM_CACHE = 128;
 
     /**
      * Constructor del repositorio.
      * <p>
      * Obtiene la instancia de la base de datos y el DAO correspondiente.
-     * Inicializa el LiveData con todos los quads.
+     * Las consultas observables se crean la primera vez que se piden. En la
+     * aplicación se usa la instancia compartida de {@code BookuadApplication}.
      * </p>
      *
      * @param application Contexto de la aplicación para acceder a la base de datos.
+     * @param ocupacion Índice de ocupación compartido, que este repositorio mantiene al día.
      */
-    public QuadRepository(Application application) {
-        AppRoomDatabase db = AppRoomDatabase.getDatabase(application);
-        mQuadDao = db.quadDao();
-        mAllQuads = mQuadDao.getAllQuads();
+    public QuadRepository(Application application, OcupacionRepository ocupacion) {
+        mDb = AppRoomDatabase.getDatabase(application);
+        mQuadDao = mDb.quadDao();
+        mContadorDao = mDb.contadorDao();
+        mReservaQuadDao = mDb.reservaQuadDao();
+        mOcupacion = ocupacion;
+        mCache = cache(mDb);
+    }
+
+    private static synchronized CacheEntidades<Quad> cache(AppRoomDatabase db) {
+        if (sCache == null) sCache = new CacheEntidades<>(db, "quad", TAM_CACHE);
+        return sCache;
     }
 
     /**
@@ -64,34 +100,122 @@ public class QuadRepository {
      *
      * @return LiveData con la lista observable de todos los quads.
      */
-    public LiveData<List<Quad>> getAllQuads() { return mAllQuads; }
+    public LiveData<List<Quad>> getAllQuads() { return getQuads(Orden.MATRICULA); }
 
     /**
-     * Inserta un nuevo quad en la base de datos.
+     * Devuelve un LiveData con todos los quads en el orden indicado.
      * <p>
-     * La operación se ejecuta de forma asíncrona en un hilo de fondo
-     * para no bloquear el hilo principal de la UI.
+     * La ordenación se hace en SQLite apoyándose en los índices de la tabla,
+     * no en memoria.
      * </p>
      *
+     * @param orden Criterio de ordenación.
+     * @return LiveData con la lista observable de quads ordenada.
+     */
+    public synchronized LiveData<List<Quad>> getQuads(Orden orden) {
+        LiveData<List<Quad>> quads = mPorOrden.get(orden);
+        if (quads == null) {
+            switch (orden) {
+                case TIPO:
+                    quads = mQuadDao.getQuadsPorTipo();
+                    break;
+                case PRECIO:
+                    quads = mQuadDao.getQuadsPorPrecio();
+                    break;
+                case MATRICULA:
+                default:
+                    quads = mQuadDao.getAllQuads();
+                    break;
+            }
+            mPorOrden.put(orden, quads);
+        }
+        return quads;
+    }
+
+    /**
+     * Busca quads por matrícula o descripción mediante el índice de texto completo.
+     *
+     * @param texto Texto de búsqueda tal como lo escribe el usuario.
+     * @return LiveData con los quads que coinciden, ordenados por matrícula.
+     */
+    public LiveData<List<Quad>> buscarQuads(String texto) { return buscarQuads(texto, Orden.MATRICULA); }
+
+    /**
+     * Busca quads por matrícula o descripción y los devuelve en el orden
+     * indicado. Como en {@link #getQuads(Orden)}, la ordenación se hace en SQLite.
+     *
+     * @param texto Texto de búsqueda tal como lo escribe el usuario.
+     * @param orden Criterio de ordenación.
+     * @return LiveData con los quads que coinciden, ordenados.
+     */
+    public LiveData<List<Quad>> buscarQuads(String texto, Orden orden) {
+        String consulta = BusquedaFts.aConsulta(texto);
+        switch (orden) {
+            case TIPO:
+                return mQuadDao.buscarQuadsPorTipo(consulta);
+            case PRECIO:
+                return mQuadDao.buscarQuadsPorPrecio(consulta);
+            case MATRICULA:
+            default:
+                return mQuadDao.buscarQuads(consulta);
+        }
+    }
+
+    /**
+     * Inserta un nuevo quad en la base de datos sin bloquear al llamante.
+     *
      * @param quad Quad a insertar. Debe tener una matrícula no nula y no vacía.
-     * @return Identificador del quad insertado (&gt; 0) si tuvo éxito, -1 en caso de error.
+     * @return Futuro con el identificador del quad insertado, o -1 si se ignoró.
+     *         Se completa con {@link LimiteExcedidoException} si ya hay
+     *         {@link Contador#MAX_QUADS} quads.
      */
-    public long insert(Quad quad) {
+    public CompletableFuture<Long> insertAsync(Quad quad) {
         /* Para que la App funcione correctamente y no lance una excepción, la modificación de la
          * base de datos se debe lanzar en un hilo de ejecución separado
-         * (databaseWriteExecutor.submit). Para poder sincronizar la recuperación del resultado
-         * devuelto por la base de datos, se puede utilizar un Future.
+         * (databaseWriteExecutor). El resultado se entrega a través de un CompletableFuture.
          */
-        Future<Long> future = AppRoomDatabase.databaseWriteExecutor.submit(
-            () -> mQuadDao.insertQuad(quad));
-        try {
-            long id = future.get(TIMEOUT, TimeUnit.MILLISECONDS);
+        return OperacionesBD.enviar("QuadRepository.insert", AppRoomDatabase.databaseWriteExecutor, () -> {
+            // R.N.F. 1: el contador se lee en la misma transacción que la inserción
+            long id = mDb.runInTransaction(() -> {
+                if (mContadorDao.getTotal(Contador.QUADS) >= Contador.MAX_QUADS) {
+                    throw new LimiteExcedidoException(Contador.QUADS, Contador.MAX_QUADS);
+                }
+                return mQuadDao.insertQuad(quad);
+            });
             Log.d("QuadRepository", "inserted quad id=" + id + " matricula=" + (quad.getMatricula()!=null?quad.getMatricula():""));
+            if (id > 0) mOcupacion.alGuardarQuad((int) id);
             return id;
-        } catch (InterruptedException | ExecutionException | TimeoutException ex) {
-            Log.d("QuadRepository", ex.getClass().getSimpleName() + ex.getMessage());
-            return -1;
-        }
+        });
+    }
+
+    /**
+     * Inserta un nuevo quad en la base de datos.
+     * <p>
+     * La operación se ejecuta en un hilo de fondo, pero este método espera
+     * su resultado: no debe llamarse desde el hilo principal.
+     * </p>
+     *
+     * @param quad Quad a insertar. Debe tener una matrícula no nula y no vacía.
+     * @return Identificador del quad insertado (&gt; 0) si tuvo éxito, -1 en caso de error
+     *         o si se ha alcanzado el máximo de quads.
+     */
+    public long insert(Quad quad) {
+        return OperacionesBD.esperar("QuadRepository.insert", insertAsync(quad), -1L);
+    }
+
+    /**
+     * Actualiza un quad existente sin bloquear al llamante.
+     *
+     * @param quad Quad con los datos actualizados. Debe tener un id válido (&gt; 0).
+     * @return Futuro con el número de filas afectadas.
+     */
+    public CompletableFuture<Integer> updateAsync(Quad quad) {
+        return OperacionesBD.enviar("QuadRepository.update", AppRoomDatabase.databaseWriteExecutor, () -> {
+            int filas = mQuadDao.updateQuad(quad);
+            mCache.descartar(quad.getId());
+            if (filas > 0) mOcupacion.alGuardarQuad(quad.getId());
+            return filas;
+        });
     }
 
     /**
@@ -105,16 +229,26 @@ public class QuadRepository {
      * @return 1 si se actualizó correctamente, 0 si no se encontró el quad, -1 en caso de error.
      */
     public int update(Quad quad) {
-        Future<Integer> future = AppRoomDatabase.databaseWriteExecutor.submit(
-            () -> mQuadDao.updateQuad(quad));
-        try {
-            return future.get(TIMEOUT, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException ex) {
-            Log.d("QuadRepository", ex.getClass().getSimpleName() + ex.getMessage());
-            return -1;
-        }
+        return OperacionesBD.esperar("QuadRepository.update", updateAsync(quad), -1);
     }
 
+    /**
+     * Elimina un quad sin bloquear al llamante.
+     *
+     * @param quad Quad a eliminar. Debe tener un id válido (&gt; 0).
+     * @return Futuro con el número de filas afectadas.
+     */
+    public CompletableFuture<Integer> deleteAsync(Quad quad) {
+        return OperacionesBD.enviar("QuadRepository.delete", AppRoomDatabase.databaseWriteExecutor, () -> {
+            // El CASCADE quita el quad de sus reservas: sus resúmenes se rehacen en la misma transacción
+            int filas = AnaliticaRepository.conResumenes(mDb,
+                    ReservaQuadRepository.reservasDeQuad(mReservaQuadDao, quad.getId()),
+                    () -> mQuadDao.deleteQuad(quad));
+            mCache.descartar(quad.getId());
+            if (filas > 0) mOcupacion.alEliminarQuad(quad.getId());
+            return filas;
+        });
+    }
 
     /**
      * Elimina un quad de la base de datos.
@@ -128,14 +262,25 @@ public class QuadRepository {
      * @return 1 si se eliminó correctamente, 0 si no se encontró, -1 en caso de error.
      */
     public int delete(Quad quad) {
-        Future<Integer> future = AppRoomDatabase.databaseWriteExecutor.submit(
-            () -> mQuadDao.deleteQuad(quad));
-        try {
-            return future.get(TIMEOUT, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException ex) {
-            Log.d("QuadRepository", ex.getClass().getSimpleName() + ex.getMessage());
-            return -1;
-        }
+        return OperacionesBD.esperar("QuadRepository.delete", deleteAsync(quad), -1);
+    }
+
+    /**
+     * Obtiene un quad por su identificador sin bloquear al llamante.
+     * <p>
+     * Si el quad está en la caché, el futuro ya está completo y no se pasa
+     * por el executor de lectura; la consulta cuenta igualmente en las
+     * métricas, como acierto de caché. El quad devuelto no debe modificarse.
+     * </p>
+     *
+     * @param id Identificador del quad.
+     * @return Futuro con el quad encontrado, o null si no existe.
+     */
+    public CompletableFuture<Quad> getQuadByIdAsync(int id) {
+        long inicio = System.nanoTime();
+        Quad enCache = mCache.get(id);
+        if (enCache != null) return OperacionesBD.desdeCache("QuadRepository.getQuadById", inicio, enCache);
+        return OperacionesBD.enviar("QuadRepository.getQuadById", AppRoomDatabase.databaseReadExecutor, () -> mCache.get(id, mQuadDao::getQuadById));
     }
 
     /**
@@ -149,12 +294,63 @@ public class QuadRepository {
      * @return El quad encontrado, o null si no existe o hay error.
      */
     public Quad getQuadById(int id) {
-        Future<Quad> future = AppRoomDatabase.databaseWriteExecutor.submit(() -> mQuadDao.getQuadById(id));
-        try {
-            return future.get(TIMEOUT, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException ex) {
-            Log.d("QuadRepository", ex.getClass().getSimpleName() + ex.getMessage());
-            return null;
-        }
+        return OperacionesBD.esperar("QuadRepository.getQuadById", getQuadByIdAsync(id), null);
+    }
+
+    /**
+     * Observa un quad: emite su valor actual y vuelve a emitir tras cada
+     * escritura confirmada en la tabla quad.
+     *
+     * @param id Identificador del quad.
+     * @return LiveData con el quad, o null si no existe.
+     */
+    public LiveData<Quad> observeQuadById(int id) {
+        return mQuadDao.observeQuadById(id);
+    }
+
+    /**
+     * Obtiene los quads libres entre una fecha de recogida y una de devolución.
+     * <p>
+     * Se resuelve con una única consulta de solapamiento de intervalos
+     * apoyada en índices, en lugar de recorrer las asociaciones de cada quad.
+     * </p>
+     *
+     * @param recogida Fecha de recogida en milisegundos.
+     * @param devolucion Fecha de devolución en milisegundos.
+     * @return Lista de quads disponibles, o null si hay error.
+     */
+    public List<Quad> getQuadsDisponibles(long recogida, long devolucion) {
+        return getQuadsDisponibles(recogida, devolucion, -1);
+    }
+
+    /**
+     * Obtiene los quads libres en un intervalo ignorando una reserva concreta,
+     * sin bloquear al llamante.
+     *
+     * @param recogida Fecha de recogida en milisegundos.
+     * @param devolucion Fecha de devolución en milisegundos.
+     * @param excluirReservaId Identificador de la reserva a ignorar, o -1.
+     * @return Futuro con la lista de quads disponibles.
+     */
+    public CompletableFuture<List<Quad>> getQuadsDisponiblesAsync(long recogida, long devolucion, int excluirReservaId) {
+        return OperacionesBD.enviar("QuadRepository.getQuadsDisponibles", AppRoomDatabase.databaseReadExecutor,
+                () -> mQuadDao.getQuadsDisponibles(recogida, devolucion, excluirReservaId));
+    }
+
+    /**
+     * Obtiene los quads libres en un intervalo ignorando una reserva concreta.
+     * <p>
+     * Útil al editar una reserva: sus propios quads no deben aparecer
+     * como ocupados.
+     * </p>
+     *
+     * @param recogida Fecha de recogida en milisegundos.
+     * @param devolucion Fecha de devolución en milisegundos.
+     * @param excluirReservaId Identificador de la reserva a ignorar, o -1.
+     * @return Lista de quads disponibles, o null si hay error.
+     */
+    public List<Quad> getQuadsDisponibles(long recogida, long devolucion, int excluirReservaId) {
+        return OperacionesBD.esperar("QuadRepository.getQuadsDisponibles",
+                getQuadsDisponiblesAsync(recogida, devolucion, excluirReservaId), null);
     }
 }
@@ -3,8 +3,11 @@ package es.unizar.eina.notepad.database;
 import androidx.annotation.NonNull;
 import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
+import es.unizar.eina.notepad.domain.FormatoFechas;
+
 /**
  * Entidad que representa una reserva de alquiler de quads.
  * <p>
@@ -17,6 +20,13 @@ import androidx.room.PrimaryKey;
  * relación muchos-a-muchos gestionada por {@link ReservaQuad}.
  * Las fechas se almacenan como timestamps (long) en milisegundos.
  * </p>
+ * <p>
+ * El índice compuesto sobre (fecha_recogida, fecha_devolucion) permite
+ * resolver las consultas de solapamiento de intervalos (disponibilidad de
+ * quads) recorriendo solo el índice, sin acceder a la tabla. Ese mismo
+ * índice, junto con los de fecha_devolucion y nom_cliente, sirve las
+ * ordenaciones de la lista de reservas sin ordenar en memoria.
+ * </p>
  *
  * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
  * @version 1.0
@@ -24,7 +34,12 @@ import androidx.room.PrimaryKey;
  * @see Quad
  * @see ReservaQuad
  */
-@Entity(tableName = "reserva")
+@Entity(tableName = "reserva",
+        indices = {
+            @Index({"fecha_recogida", "fecha_devolucion"}),
+            @Index("fecha_devolucion"),
+            @Index("nom_cliente")
+        })
 public class Reserva {
     @PrimaryKey(autoGenerate = true)
     @ColumnInfo(name = "id")
@@ -227,36 +242,21 @@ public class Reserva {
      * @return Timestamp en milisegundos, o 0 si no se puede parsear.
      */
     private static long parseDateString(String s) {
-        if (s == null) return 0L;
-        s = s.trim();
-        if (s.isEmpty()) return 0L;
-        // try millis
-        try { return Long.parseLong(s); } catch (NumberFormatException ignored) {}
-        java.text.DateFormat[] formats = new java.text.DateFormat[] {
-                new java.text.SimpleDateFormat("yyyy-MM-dd"),
-                new java.text.SimpleDateFormat("dd/MM/yyyy"),
-                java.text.DateFormat.getDateInstance(java.text.DateFormat.SHORT)
-        };
-        for (java.text.DateFormat df : formats) {
-            try {
-                java.util.Date d = df.parse(s);
-                if (d != null) return d.getTime();
-            } catch (Exception ignored) {}
-        }
-        return 0L;
+        return FormatoFechas.parsear(s, 0L);
     }
 
     /**
      * Formatea un timestamp en una cadena de fecha legible.
+     * <p>
+     * Usa la caché compartida de {@link FormatoFechas}, de modo que las
+     * listas no crean un formateador por fila.
+     * </p>
      *
      * @param millis Timestamp en milisegundos.
-     * @return Fecha formateada en formato local medio, o cadena vacía si hay error.
+     * @return Fecha formateada en formato local medio.
      */
     private static String formatDate(long millis) {
-        try {
-            java.util.Date d = new java.util.Date(millis);
-            return java.text.DateFormat.getDateInstance(java.text.DateFormat.MEDIUM).format(d);
-        } catch (Exception e) { return ""; }
+        return FormatoFechas.medio(millis);
     }
 
 }
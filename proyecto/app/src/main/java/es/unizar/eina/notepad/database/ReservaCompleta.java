@@ -0,0 +1,43 @@
+package es.unizar.eina.notepad.database;
+
+import androidx.room.Embedded;
+import androidx.room.Relation;
+
+import java.util.List;
+
+/**
+ * Agregado de una reserva con todos sus quads.
+ * <p>
+ * Contiene la {@link Reserva} y sus líneas ({@link LineaReserva}), cada una
+ * con el número de cascos y el {@link Quad} correspondiente. Room lo carga
+ * con {@link ReservaDao#getReservaCompleta(int)} dentro de una transacción,
+ * por lo que las pantallas de detalle y edición obtienen todos los datos en
+ * una sola operación en lugar de consultar asociación por asociación.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see Reserva
+ * @see LineaReserva
+ * @see ReservaDao
+ */
+public class ReservaCompleta {
+
+    @Embedded
+    private Reserva reserva;
+
+    @Relation(parentColumn = "id", entityColumn = "reserva_id", entity = ReservaQuad.class)
+    private List<LineaReserva> lineas;
+
+    /** @return La reserva. */
+    public Reserva getReserva() { return reserva; }
+
+    /** @param reserva La reserva. */
+    public void setReserva(Reserva reserva) { this.reserva = reserva; }
+
+    /** @return Líneas de la reserva (asociaciones con su quad). */
+    public List<LineaReserva> getLineas() { return lineas; }
+
+    /** @param lineas Líneas de la reserva. */
+    public void setLineas(List<LineaReserva> lineas) { this.lineas = lineas; }
+}
@@ -1,11 +1,13 @@
 package es.unizar.eina.notepad.database;
 
 import androidx.lifecycle.LiveData;
+import androidx.paging.PagingSource;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
 import java.util.List;
@@ -80,6 +82,49 @@ public interface ReservaDao {
     @Query("SELECT * FROM reserva ORDER BY fecha_recogida ASC")
     LiveData<List<Reserva>> getAllReservas();
 
+    /**
+     * Obtiene las reservas paginadas ordenadas por fecha de recogida.
+     * <p>
+     * Room genera un {@link PagingSource} que carga la tabla por bloques
+     * (LIMIT/OFFSET) y se invalida automáticamente al cambiar los datos,
+     * de modo que solo se materializan las filas visibles y las precargadas.
+     * </p>
+     *
+     * @return Fuente paginada de reservas.
+     */
+    @Query("SELECT * FROM reserva ORDER BY fecha_recogida ASC, id ASC")
+    PagingSource<Integer, Reserva> getReservasPaginadasPorRecogida();
+
+    /**
+     * Obtiene las reservas paginadas ordenadas por fecha de devolución.
+     *
+     * @return Fuente paginada de reservas.
+     */
+    @Query("SELECT * FROM reserva ORDER BY fecha_devolucion ASC, id ASC")
+    PagingSource<Integer, Reserva> getReservasPaginadasPorDevolucion();
+
+    /**
+     * Obtiene las reservas paginadas ordenadas por nombre de cliente.
+     *
+     * @return Fuente paginada de reservas.
+     */
+    @Query("SELECT * FROM reserva ORDER BY nom_cliente ASC, id ASC")
+    PagingSource<Integer, Reserva> getReservasPaginadasPorCliente();
+
+    /**
+     * Busca reservas por nombre de cliente usando el índice FTS4, paginadas.
+     * <p>
+     * La búsqueda consulta el índice invertido de reserva_fts y une por
+     * rowid con la tabla reserva, por lo que no depende del tamaño de la tabla.
+     * </p>
+     *
+     * @param consulta Expresión MATCH (ver {@link BusquedaFts#aConsulta(String)}).
+     * @return Fuente paginada de reservas que coinciden, ordenadas por cliente.
+     */
+    @Query("SELECT reserva.* FROM reserva JOIN reserva_fts ON reserva.rowid = reserva_fts.rowid "
+            + "WHERE reserva_fts MATCH :consulta ORDER BY reserva.nom_cliente ASC, reserva.id ASC")
+    PagingSource<Integer, Reserva> buscarReservasPaginadas(String consulta);
+
     /**
      * Obtiene una reserva específica por su identificador.
      * <p>
@@ -91,4 +136,81 @@ public interface ReservaDao {
      */
     @Query("SELECT * FROM reserva WHERE id = :id LIMIT 1")
     Reserva getReservaById(int id);
+
+    /**
+     * Observa una reserva por su identificador.
+     * <p>
+     * Vuelve a emitir cada vez que se confirma una escritura en la tabla
+     * reserva; emite null si la reserva no existe o se elimina.
+     * </p>
+     *
+     * @param id Identificador de la reserva.
+     * @return LiveData con la reserva.
+     */
+    @Query("SELECT * FROM reserva WHERE id = :id LIMIT 1")
+    LiveData<Reserva> observeReservaById(int id);
+
+    /**
+     * Obtiene una reserva junto con sus asociaciones y los quads de cada una.
+     * <p>
+     * Room resuelve las relaciones con una consulta por nivel (reserva,
+     * reserva_quad y quad) dentro de una misma transacción, de modo que el
+     * agregado es consistente y no depende del número de quads de la reserva.
+     * Método síncrono que debe ejecutarse en un hilo de fondo.
+     * </p>
+     *
+     * @param id Identificador de la reserva.
+     * @return El agregado de la reserva, o null si no existe.
+     */
+    @Transaction
+    @Query("SELECT * FROM reserva WHERE id = :id LIMIT 1")
+    ReservaCompleta getReservaCompleta(int id);
+
+    /**
+     * Observa una reserva junto con sus asociaciones y sus quads.
+     * <p>
+     * Room observa las tres tablas del agregado, de modo que emite de nuevo
+     * en cuanto se confirma cualquier cambio en la reserva, en sus
+     * asociaciones o en los quads.
+     * </p>
+     *
+     * @param id Identificador de la reserva.
+     * @return LiveData con el agregado, o null si la reserva no existe.
+     */
+    @Transaction
+    @Query("SELECT * FROM reserva WHERE id = :id LIMIT 1")
+    LiveData<ReservaCompleta> observeReservaCompleta(int id);
+
+    /**
+     * Inserta en bloque las asociaciones de una reserva con sus quads.
+     *
+     * @param reservaQuads Asociaciones a insertar.
+     * @return Identificadores de las asociaciones insertadas.
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long[] insertReservaQuads(List<ReservaQuad> reservaQuads);
+
+    /**
+     * Inserta una reserva junto con todas sus asociaciones a quads.
+     * <p>
+     * Ambas escrituras se realizan en una única transacción SQLite: o se
+     * guardan la reserva y todas sus asociaciones, o no se guarda nada.
+     * El identificador generado para la reserva se asigna a cada
+     * {@link ReservaQuad} antes de insertarla.
+     * </p>
+     *
+     * @param reserva Reserva a insertar.
+     * @param reservaQuads Asociaciones de la reserva con sus quads.
+     * @return Identificador de la reserva insertada, o -1 si falló.
+     */
+    @Transaction
+    default long insertReservaConQuads(Reserva reserva, List<ReservaQuad> reservaQuads) {
+        long id = insertReserva(reserva);
+        if (id <= 0) return -1;
+        for (ReservaQuad rq : reservaQuads) {
+            rq.setReservaId((int) id);
+        }
+        insertReservaQuads(reservaQuads);
+        return id;
+    }
 }
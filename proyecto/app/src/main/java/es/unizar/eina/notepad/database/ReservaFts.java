@@ -0,0 +1,41 @@
+package es.unizar.eina.notepad.database;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+
+/**
+ * Índice de texto completo (FTS4) sobre las reservas.
+ * <p>
+ * Es una tabla de contenido externo: no duplica los datos de
+ * {@link Reserva}, solo mantiene el índice invertido del nombre del cliente.
+ * Room crea los triggers que lo sincronizan con la tabla reserva en cada
+ * inserción, actualización o borrado. La fila FTS comparte rowid con la
+ * reserva, que es su clave primaria.
+ * </p>
+ * <p>
+ * Usa el tokenizador unicode61, que ignora mayúsculas y tildes.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see Reserva
+ * @see ReservaDao
+ */
+@Fts4(contentEntity = Reserva.class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "reserva_fts")
+public class ReservaFts {
+
+    @ColumnInfo(name = "nom_cliente")
+    private String nomCliente;
+
+    /**
+     * Construye una fila del índice.
+     * @param nomCliente Nombre del cliente.
+     */
+    public ReservaFts(String nomCliente) { this.nomCliente = nomCliente; }
+
+    /** @return Nombre del cliente indexado. */
+    public String getNomCliente() { return nomCliente; }
+}
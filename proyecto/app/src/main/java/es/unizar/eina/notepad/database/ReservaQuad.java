@@ -24,6 +24,11 @@ import androidx.room.PrimaryKey;
  * por lo que al eliminar una reserva o un quad, se eliminarán automáticamente
  * las entradas relacionadas en esta tabla.
  * </p>
+ * <p>
+ * El índice compuesto (quad_id, reserva_id) cubre las búsquedas de reservas
+ * por quad, de modo que las consultas de disponibilidad no necesitan leer
+ * las filas de la tabla.
+ * </p>
  *
  * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
  * @version 1.0
@@ -42,7 +47,7 @@ import androidx.room.PrimaryKey;
                     childColumns = "quad_id",
                     onDelete = ForeignKey.CASCADE)
         },
-        indices = {@Index("reserva_id"), @Index("quad_id")})
+        indices = {@Index("reserva_id"), @Index({"quad_id", "reserva_id"})})
 public class ReservaQuad {
 
     @PrimaryKey(autoGenerate = true)
@@ -6,9 +6,13 @@ import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Data Access Object (DAO) para la entidad ReservaQuad.
@@ -82,6 +86,19 @@ public interface ReservaQuadDao {
     @Query("SELECT * FROM reserva_quad WHERE reserva_id = :reservaId")
     List<ReservaQuad> getQuadsByReservaId(int reservaId);
 
+    /**
+     * Observa las asociaciones de una reserva.
+     * <p>
+     * Vuelve a emitir cada vez que se confirma una escritura en
+     * reserva_quad, en lugar de tener que consultar de nuevo tras guardar.
+     * </p>
+     *
+     * @param reservaId Identificador de la reserva.
+     * @return LiveData con las asociaciones de esa reserva.
+     */
+    @Query("SELECT * FROM reserva_quad WHERE reserva_id = :reservaId")
+    LiveData<List<ReservaQuad>> observeQuadsByReservaId(int reservaId);
+
     /**
      * Obtiene todas las reservas asociadas a un quad específico.
      * <p>
@@ -133,4 +150,109 @@ public interface ReservaQuadDao {
      */
     @Query("DELETE FROM reserva_quad WHERE quad_id = :quadId")
     int deleteByQuadId(int quadId);
+
+    /**
+     * Obtiene los identificadores de los quads de una reserva.
+     *
+     * @param reservaId Identificador de la reserva.
+     * @return Identificadores de quad, sin repetir.
+     */
+    @Query("SELECT DISTINCT quad_id FROM reserva_quad WHERE reserva_id = :reservaId")
+    List<Integer> getQuadIdsByReservaId(int reservaId);
+
+    /**
+     * Obtiene el intervalo de fechas de cada asociación reserva-quad.
+     * <p>
+     * Sirve para construir los índices de ocupación en memoria.
+     * Método síncrono que debe ejecutarse en un hilo de fondo.
+     * </p>
+     *
+     * @return Intervalos de todas las asociaciones.
+     */
+    @Query("SELECT rq.reserva_id, rq.quad_id, r.fecha_recogida, r.fecha_devolucion "
+            + "FROM reserva_quad rq JOIN reserva r ON r.id = rq.reserva_id")
+    List<IntervaloOcupacion> getIntervalos();
+
+    /**
+     * Obtiene el intervalo de fechas de cada reserva de un quad.
+     * <p>
+     * Usa el índice (quad_id, reserva_id) de reserva_quad.
+     * </p>
+     *
+     * @param quadId Identificador del quad.
+     * @return Intervalos de las reservas del quad.
+     */
+    @Query("SELECT rq.reserva_id, rq.quad_id, r.fecha_recogida, r.fecha_devolucion "
+            + "FROM reserva_quad rq JOIN reserva r ON r.id = rq.reserva_id "
+            + "WHERE rq.quad_id = :quadId")
+    List<IntervaloOcupacion> getIntervalosByQuadId(int quadId);
+
+    /**
+     * Inserta varias asociaciones.
+     *
+     * @param lineas Asociaciones a insertar.
+     * @return Identificadores de las asociaciones insertadas.
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long[] insertLineas(List<ReservaQuad> lineas);
+
+    /**
+     * Actualiza varias asociaciones.
+     *
+     * @param lineas Asociaciones con los datos actualizados.
+     * @return Número de filas afectadas.
+     */
+    @Update
+    int updateLineas(List<ReservaQuad> lineas);
+
+    /**
+     * Elimina varias asociaciones.
+     *
+     * @param lineas Asociaciones a eliminar.
+     * @return Número de filas afectadas.
+     */
+    @Delete
+    int deleteLineas(List<ReservaQuad> lineas);
+
+    /**
+     * Deja las asociaciones de una reserva iguales a las indicadas,
+     * escribiendo solo las diferencias.
+     * <p>
+     * Compara por quad: las asociaciones que ya existen con el mismo número
+     * de cascos no se tocan y conservan su id; las que cambian de cascos se
+     * actualizan, las nuevas se insertan y las que sobran se eliminan. Todo
+     * en una transacción, así que los observadores de Room reciben un único
+     * aviso. Si un quad aparece repetido en {@code deseadas}, vale la última.
+     * </p>
+     *
+     * @param reservaId Identificador de la reserva.
+     * @param deseadas Quads y número de cascos que debe tener la reserva; su reservaId se ignora.
+     * @return Número de filas insertadas, actualizadas o eliminadas.
+     */
+    @Transaction
+    default int sincronizarLineas(int reservaId, List<ReservaQuad> deseadas) {
+        Map<Integer, Integer> cascos = new LinkedHashMap<>();
+        for (ReservaQuad rq : deseadas) cascos.put(rq.getQuadId(), rq.getNumCascos());
+        List<ReservaQuad> actualizar = new ArrayList<>();
+        List<ReservaQuad> eliminar = new ArrayList<>();
+        for (ReservaQuad actual : getQuadsByReservaId(reservaId)) {
+            // remove: una segunda fila del mismo quad ya no encuentra pareja y se elimina
+            Integer deseado = cascos.remove(actual.getQuadId());
+            if (deseado == null) {
+                eliminar.add(actual);
+            } else if (deseado != actual.getNumCascos()) {
+                actual.setNumCascos(deseado);
+                actualizar.add(actual);
+            }
+        }
+        List<ReservaQuad> insertar = new ArrayList<>(cascos.size());
+        for (Map.Entry<Integer, Integer> e : cascos.entrySet()) {
+            insertar.add(new ReservaQuad(reservaId, e.getKey(), e.getValue()));
+        }
+        int filas = 0;
+        if (!eliminar.isEmpty()) filas += deleteLineas(eliminar);
+        if (!actualizar.isEmpty()) filas += updateLineas(actualizar);
+        if (!insertar.isEmpty()) filas += insertLineas(insertar).length;
+        return filas;
+    }
 }
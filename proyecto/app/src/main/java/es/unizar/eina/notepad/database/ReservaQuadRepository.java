@@ -5,11 +5,10 @@ import android.util.Log;
 
 import androidx.lifecycle.LiveData;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Repositorio para gestionar el acceso a las asociaciones ReservaQuad.
@@ -18,6 +17,11 @@ import java.util.concurrent.TimeoutException;
  * reservas y quads. Permite vincular/desvincular quads de reservas y
  * consultar las asociaciones existentes.
  * </p>
+ * <p>
+ * Cada operación tiene una variante asíncrona (sufijo {@code Async}) que
+ * devuelve un {@link CompletableFuture}, y una síncrona que la espera hasta
+ * un timeout y no debe llamarse desde el hilo principal.
+ * </p>
  *
  * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
  * @version 1.0
@@ -27,20 +31,22 @@ import java.util.concurrent.TimeoutException;
 public class ReservaQuadRepository {
 
     private final ReservaQuadDao mReservaQuadDao;
-    private final LiveData<List<ReservaQuad>> mAllReservaQuads;
-
-    /** Timeout en milisegundos para operaciones de base de datos */
-    private final long TIMEOUT = 15000;
+    private final ReservaDao mReservaDao;
+    private final AppRoomDatabase mDb;
+    private LiveData<List<ReservaQuad>> mAllReservaQuads;
+    private final OcupacionRepository mOcupacion;
 
     /**
      * Constructor del repositorio.
      *
      * @param application Contexto de la aplicación para acceder a la base de datos.
+     * @param ocupacion Índice de ocupación compartido, que este repositorio mantiene al día.
      */
-    public ReservaQuadRepository(Application application) {
-        AppRoomDatabase db = AppRoomDatabase.getDatabase(application);
-        mReservaQuadDao = db.reservaQuadDao();
-        mAllReservaQuads = mReservaQuadDao.getAllReservaQuads();
+    public ReservaQuadRepository(Application application, OcupacionRepository ocupacion) {
+        mDb = AppRoomDatabase.getDatabase(application);
+        mReservaQuadDao = mDb.reservaQuadDao();
+        mReservaDao = mDb.reservaDao();
+        mOcupacion = ocupacion;
     }
 
     /**
@@ -48,26 +54,66 @@ public class ReservaQuadRepository {
      *
      * @return LiveData con la lista observable de todas las asociaciones.
      */
-    public LiveData<List<ReservaQuad>> getAllReservaQuads() {
+    public synchronized LiveData<List<ReservaQuad>> getAllReservaQuads() {
+        // Se crea al pedirla: solo se registra en Room si alguna pantalla la observa
+        if (mAllReservaQuads == null) mAllReservaQuads = mReservaQuadDao.getAllReservaQuads();
         return mAllReservaQuads;
     }
 
     /**
-     * Inserta una nueva asociación entre una reserva y un quad.
+     * Inserta una nueva asociación entre una reserva y un quad sin bloquear al llamante.
      *
      * @param reservaQuad Asociación a insertar.
-     * @return Identificador de la asociación insertada, o -1 en caso de error.
+     * @return Futuro con el identificador de la asociación insertada. Se completa
+     *         con {@link ConflictoReservaException} si el quad ya está reservado
+     *         en las fechas de la reserva.
      */
-    public long insert(ReservaQuad reservaQuad) {
-        Future<Long> future = AppRoomDatabase.databaseWriteExecutor.submit(() -> mReservaQuadDao.insert(reservaQuad));
-        try {
-            long id = future.get(TIMEOUT, TimeUnit.MILLISECONDS);
+    public CompletableFuture<Long> insertAsync(ReservaQuad reservaQuad) {
+        return OperacionesBD.enviar("ReservaQuadRepository.insert", AppRoomDatabase.databaseWriteExecutor, () -> {
+            comprobarConflictos(reservaQuad);
+            long id = AnaliticaRepository.conResumenes(mDb, Collections.singletonList(reservaQuad.getReservaId()),
+                    () -> mReservaQuadDao.insert(reservaQuad));
             Log.d("ReservaQuadRepository", "inserted reservaQuad id=" + id);
+            if (id > 0) mOcupacion.alCambiarQuads(Collections.singletonList(reservaQuad.getQuadId()));
             return id;
-        } catch (InterruptedException | ExecutionException | TimeoutException ex) {
-            Log.d("ReservaQuadRepository", ex.getClass().getSimpleName() + ex.getMessage());
-            return -1;
-        }
+        });
+    }
+
+    /**
+     * Inserta una nueva asociación entre una reserva y un quad.
+     *
+     * @param reservaQuad Asociación a insertar.
+     * @return Identificador de la asociación insertada, o -1 en caso de error o conflicto.
+     */
+    public long insert(ReservaQuad reservaQuad) {
+        return OperacionesBD.esperar("ReservaQuadRepository.insert", insertAsync(reservaQuad), -1L);
+    }
+
+    /**
+     * Actualiza una asociación existente sin bloquear al llamante.
+     *
+     * @param reservaQuad Asociación con los datos actualizados.
+     * @return Futuro con el número de filas afectadas. Se completa con
+     *         {@link ConflictoReservaException} si el quad ya está reservado
+     *         en las fechas de la reserva.
+     */
+    public CompletableFuture<Integer> updateAsync(ReservaQuad reservaQuad) {
+        return OperacionesBD.enviar("ReservaQuadRepository.update", AppRoomDatabase.databaseWriteExecutor, () -> {
+            comprobarConflictos(reservaQuad);
+            // Si cambia el quad de la asociación hay que actualizar el anterior y el nuevo
+            ReservaQuad anterior = mReservaQuadDao.getById(reservaQuad.getId());
+            List<Integer> reservaIds = new ArrayList<>(2);
+            reservaIds.add(reservaQuad.getReservaId());
+            if (anterior != null && anterior.getReservaId() != reservaQuad.getReservaId()) reservaIds.add(anterior.getReservaId());
+            int filas = AnaliticaRepository.conResumenes(mDb, reservaIds, () -> mReservaQuadDao.update(reservaQuad));
+            if (filas > 0) {
+                List<Integer> quadIds = new ArrayList<>(2);
+                quadIds.add(reservaQuad.getQuadId());
+                if (anterior != null && anterior.getQuadId() != reservaQuad.getQuadId()) quadIds.add(anterior.getQuadId());
+                mOcupacion.alCambiarQuads(quadIds);
+            }
+            return filas;
+        });
     }
 
     /**
@@ -77,13 +123,22 @@ public class ReservaQuadRepository {
      * @return Número de filas afectadas, o -1 en caso de error.
      */
     public int update(ReservaQuad reservaQuad) {
-        Future<Integer> future = AppRoomDatabase.databaseWriteExecutor.submit(() -> mReservaQuadDao.update(reservaQuad));
-        try {
-            return future.get(TIMEOUT, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException ex) {
-            Log.d("ReservaQuadRepository", ex.getClass().getSimpleName() + ex.getMessage());
-            return -1;
-        }
+        return OperacionesBD.esperar("ReservaQuadRepository.update", updateAsync(reservaQuad), -1);
+    }
+
+    /**
+     * Elimina una asociación sin bloquear al llamante.
+     *
+     * @param reservaQuad Asociación a eliminar.
+     * @return Futuro con el número de filas afectadas.
+     */
+    public CompletableFuture<Integer> deleteAsync(ReservaQuad reservaQuad) {
+        return OperacionesBD.enviar("ReservaQuadRepository.delete", AppRoomDatabase.databaseWriteExecutor, () -> {
+            int filas = AnaliticaRepository.conResumenes(mDb, Collections.singletonList(reservaQuad.getReservaId()),
+                    () -> mReservaQuadDao.delete(reservaQuad));
+            if (filas > 0) mOcupacion.alCambiarQuads(Collections.singletonList(reservaQuad.getQuadId()));
+            return filas;
+        });
     }
 
     /**
@@ -93,13 +148,59 @@ public class ReservaQuadRepository {
      * @return Número de filas afectadas, o -1 en caso de error.
      */
     public int delete(ReservaQuad reservaQuad) {
-        Future<Integer> future = AppRoomDatabase.databaseWriteExecutor.submit(() -> mReservaQuadDao.delete(reservaQuad));
-        try {
-            return future.get(TIMEOUT, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException ex) {
-            Log.d("ReservaQuadRepository", ex.getClass().getSimpleName() + ex.getMessage());
-            return -1;
-        }
+        return OperacionesBD.esperar("ReservaQuadRepository.delete", deleteAsync(reservaQuad), -1);
+    }
+
+    /**
+     * Deja las asociaciones de una reserva iguales a las indicadas sin bloquear al llamante.
+     * <p>
+     * Solo se escriben las diferencias con las asociaciones actuales (ver
+     * {@link ReservaQuadDao#sincronizarLineas}), en una transacción junto con
+     * los resúmenes de informes; las asociaciones que no cambian conservan su id.
+     * </p>
+     *
+     * @param reservaId Identificador de la reserva.
+     * @param lineas Quads y número de cascos que debe tener la reserva.
+     * @return Futuro con el número de filas insertadas, actualizadas o eliminadas.
+     *         Se completa con {@link ConflictoReservaException} si algún quad
+     *         ya está reservado en las fechas de la reserva; en ese caso no se escribe nada.
+     */
+    public CompletableFuture<Integer> sincronizarLineasAsync(int reservaId, List<ReservaQuad> lineas) {
+        return OperacionesBD.enviar("ReservaQuadRepository.sincronizarLineas", AppRoomDatabase.databaseWriteExecutor, () -> {
+            Reserva reserva = mReservaDao.getReservaById(reservaId);
+            if (reserva != null) {
+                mOcupacion.comprobarLineas(reservaId, reserva.getFechaRecogida(), reserva.getFechaDevolucion(), lineas);
+            }
+            List<Integer> anteriores = mOcupacion.quadsDeReserva(reservaId);
+            int filas = AnaliticaRepository.conResumenes(mDb, Collections.singletonList(reservaId),
+                    () -> mReservaQuadDao.sincronizarLineas(reservaId, lineas));
+            if (filas > 0) {
+                mOcupacion.alCambiarQuads(anteriores);
+                mOcupacion.alCambiarLineas(lineas);
+            }
+            return filas;
+        });
+    }
+
+    /**
+     * Deja las asociaciones de una reserva iguales a las indicadas.
+     *
+     * @param reservaId Identificador de la reserva.
+     * @param lineas Quads y número de cascos que debe tener la reserva.
+     * @return Número de filas escritas, o -1 en caso de error o conflicto.
+     */
+    public int sincronizarLineas(int reservaId, List<ReservaQuad> lineas) {
+        return OperacionesBD.esperar("ReservaQuadRepository.sincronizarLineas", sincronizarLineasAsync(reservaId, lineas), -1);
+    }
+
+    /**
+     * Obtiene todos los quads asociados a una reserva sin bloquear al llamante.
+     *
+     * @param reservaId Identificador de la reserva.
+     * @return Futuro con la lista de asociaciones para esa reserva.
+     */
+    public CompletableFuture<List<ReservaQuad>> getQuadsByReservaIdAsync(int reservaId) {
+        return OperacionesBD.enviar("ReservaQuadRepository.getQuadsByReservaId", AppRoomDatabase.databaseReadExecutor, () -> mReservaQuadDao.getQuadsByReservaId(reservaId));
     }
 
     /**
@@ -109,13 +210,28 @@ public class ReservaQuadRepository {
      * @return Lista de asociaciones para esa reserva, o null en caso de error.
      */
     public List<ReservaQuad> getQuadsByReservaId(int reservaId) {
-        Future<List<ReservaQuad>> future = AppRoomDatabase.databaseWriteExecutor.submit(() -> mReservaQuadDao.getQuadsByReservaId(reservaId));
-        try {
-            return future.get(TIMEOUT, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException ex) {
-            Log.d("ReservaQuadRepository", ex.getClass().getSimpleName() + ex.getMessage());
-            return null;
-        }
+        return OperacionesBD.esperar("ReservaQuadRepository.getQuadsByReservaId", getQuadsByReservaIdAsync(reservaId), null);
+    }
+
+    /**
+     * Observa las asociaciones de una reserva: vuelve a emitir tras cada
+     * escritura confirmada en reserva_quad.
+     *
+     * @param reservaId Identificador de la reserva.
+     * @return LiveData con las asociaciones de esa reserva.
+     */
+    public LiveData<List<ReservaQuad>> observeQuadsByReservaId(int reservaId) {
+        return mReservaQuadDao.observeQuadsByReservaId(reservaId);
+    }
+
+    /**
+     * Obtiene todas las reservas asociadas a un quad sin bloquear al llamante.
+     *
+     * @param quadId Identificador del quad.
+     * @return Futuro con la lista de asociaciones para ese quad.
+     */
+    public CompletableFuture<List<ReservaQuad>> getReservasByQuadIdAsync(int quadId) {
+        return OperacionesBD.enviar("ReservaQuadRepository.getReservasByQuadId", AppRoomDatabase.databaseReadExecutor, () -> mReservaQuadDao.getReservasByQuadId(quadId));
     }
 
     /**
@@ -125,13 +241,18 @@ public class ReservaQuadRepository {
      * @return Lista de asociaciones para ese quad, o null en caso de error.
      */
     public List<ReservaQuad> getReservasByQuadId(int quadId) {
-        Future<List<ReservaQuad>> future = AppRoomDatabase.databaseWriteExecutor.submit(() -> mReservaQuadDao.getReservasByQuadId(quadId));
-        try {
-            return future.get(TIMEOUT, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException ex) {
-            Log.d("ReservaQuadRepository", ex.getClass().getSimpleName() + ex.getMessage());
-            return null;
-        }
+        return OperacionesBD.esperar("ReservaQuadRepository.getReservasByQuadId", getReservasByQuadIdAsync(quadId), null);
+    }
+
+    /**
+     * Obtiene la asociación específica entre una reserva y un quad sin bloquear al llamante.
+     *
+     * @param reservaId Identificador de la reserva.
+     * @param quadId Identificador del quad.
+     * @return Futuro con la asociación encontrada, o null si no existe.
+     */
+    public CompletableFuture<ReservaQuad> getByReservaAndQuadAsync(int reservaId, int quadId) {
+        return OperacionesBD.enviar("ReservaQuadRepository.getByReservaAndQuad", AppRoomDatabase.databaseReadExecutor, () -> mReservaQuadDao.getByReservaAndQuad(reservaId, quadId));
     }
 
     /**
@@ -142,13 +263,17 @@ public class ReservaQuadRepository {
      * @return La asociación encontrada, o null si no existe o hay error.
      */
     public ReservaQuad getByReservaAndQuad(int reservaId, int quadId) {
-        Future<ReservaQuad> future = AppRoomDatabase.databaseWriteExecutor.submit(() -> mReservaQuadDao.getByReservaAndQuad(reservaId, quadId));
-        try {
-            return future.get(TIMEOUT, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException ex) {
-            Log.d("ReservaQuadRepository", ex.getClass().getSimpleName() + ex.getMessage());
-            return null;
-        }
+        return OperacionesBD.esperar("ReservaQuadRepository.getByReservaAndQuad", getByReservaAndQuadAsync(reservaId, quadId), null);
+    }
+
+    /**
+     * Obtiene una asociación por su identificador sin bloquear al llamante.
+     *
+     * @param id Identificador de la asociación.
+     * @return Futuro con la asociación encontrada, o null si no existe.
+     */
+    public CompletableFuture<ReservaQuad> getByIdAsync(int id) {
+        return OperacionesBD.enviar("ReservaQuadRepository.getById", AppRoomDatabase.databaseReadExecutor, () -> mReservaQuadDao.getById(id));
     }
 
     /**
@@ -158,13 +283,23 @@ public class ReservaQuadRepository {
      * @return La asociación encontrada, o null si no existe o hay error.
      */
     public ReservaQuad getById(int id) {
-        Future<ReservaQuad> future = AppRoomDatabase.databaseWriteExecutor.submit(() -> mReservaQuadDao.getById(id));
-        try {
-            return future.get(TIMEOUT, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException ex) {
-            Log.d("ReservaQuadRepository", ex.getClass().getSimpleName() + ex.getMessage());
-            return null;
-        }
+        return OperacionesBD.esperar("ReservaQuadRepository.getById", getByIdAsync(id), null);
+    }
+
+    /**
+     * Elimina todas las asociaciones de una reserva sin bloquear al llamante.
+     *
+     * @param reservaId Identificador de la reserva.
+     * @return Futuro con el número de filas eliminadas.
+     */
+    public CompletableFuture<Integer> deleteByReservaIdAsync(int reservaId) {
+        return OperacionesBD.enviar("ReservaQuadRepository.deleteByReservaId", AppRoomDatabase.databaseWriteExecutor, () -> {
+            List<Integer> quadIds = mOcupacion.quadsDeReserva(reservaId);
+            int filas = AnaliticaRepository.conResumenes(mDb, Collections.singletonList(reservaId),
+                    () -> mReservaQuadDao.deleteByReservaId(reservaId));
+            if (filas > 0) mOcupacion.alCambiarQuads(quadIds);
+            return filas;
+        });
     }
 
     /**
@@ -174,13 +309,22 @@ public class ReservaQuadRepository {
      * @return Número de filas eliminadas, o -1 en caso de error.
      */
     public int deleteByReservaId(int reservaId) {
-        Future<Integer> future = AppRoomDatabase.databaseWriteExecutor.submit(() -> mReservaQuadDao.deleteByReservaId(reservaId));
-        try {
-            return future.get(TIMEOUT, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException ex) {
-            Log.d("ReservaQuadRepository", ex.getClass().getSimpleName() + ex.getMessage());
-            return -1;
-        }
+        return OperacionesBD.esperar("ReservaQuadRepository.deleteByReservaId", deleteByReservaIdAsync(reservaId), -1);
+    }
+
+    /**
+     * Elimina todas las asociaciones de un quad sin bloquear al llamante.
+     *
+     * @param quadId Identificador del quad.
+     * @return Futuro con el número de filas eliminadas.
+     */
+    public CompletableFuture<Integer> deleteByQuadIdAsync(int quadId) {
+        return OperacionesBD.enviar("ReservaQuadRepository.deleteByQuadId", AppRoomDatabase.databaseWriteExecutor, () -> {
+            int filas = AnaliticaRepository.conResumenes(mDb, reservasDeQuad(mReservaQuadDao, quadId),
+                    () -> mReservaQuadDao.deleteByQuadId(quadId));
+            if (filas > 0) mOcupacion.alCambiarQuads(Collections.singletonList(quadId));
+            return filas;
+        });
     }
 
     /**
@@ -190,12 +334,21 @@ public class ReservaQuadRepository {
      * @return Número de filas eliminadas, o -1 en caso de error.
      */
     public int deleteByQuadId(int quadId) {
-        Future<Integer> future = AppRoomDatabase.databaseWriteExecutor.submit(() -> mReservaQuadDao.deleteByQuadId(quadId));
-        try {
-            return future.get(TIMEOUT, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException ex) {
-            Log.d("ReservaQuadRepository", ex.getClass().getSimpleName() + ex.getMessage());
-            return -1;
-        }
+        return OperacionesBD.esperar("ReservaQuadRepository.deleteByQuadId", deleteByQuadIdAsync(quadId), -1);
+    }
+
+    // En el hilo escritor, antes de escribir: el quad no puede tener otra reserva en esas fechas
+    private void comprobarConflictos(ReservaQuad reservaQuad) {
+        Reserva reserva = mReservaDao.getReservaById(reservaQuad.getReservaId());
+        if (reserva == null) return;
+        mOcupacion.comprobarConflictos(reserva.getId(), reserva.getFechaRecogida(), reserva.getFechaDevolucion(),
+                Collections.singletonList(reservaQuad.getQuadId()));
+    }
+
+    // Reservas que usan un quad, para rehacer sus resúmenes cuando se le quitan las asociaciones
+    static List<Integer> reservasDeQuad(ReservaQuadDao dao, int quadId) {
+        List<Integer> reservaIds = new ArrayList<>();
+        for (ReservaQuad rq : dao.getReservasByQuadId(quadId)) reservaIds.add(rq.getReservaId());
+        return reservaIds;
     }
 }
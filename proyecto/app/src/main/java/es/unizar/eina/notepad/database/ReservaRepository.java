@@ -1,15 +1,12 @@
 package es.unizar.eina.notepad.database;
 
 import android.app.Application;
-import android.util.Log;
 
 import androidx.lifecycle.LiveData;
+import androidx.paging.PagingSource;
 
 import java.util.List;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Repositorio que gestiona el acceso a la fuente de datos de Reservas.
@@ -18,6 +15,11 @@ import java.util.concurrent.TimeoutException;
  * una API limpia para operaciones CRUD sobre reservas. Gestiona la
  * ejecución de operaciones en hilos de fondo y el manejo de errores.
  * </p>
+ * <p>
+ * Las operaciones con sufijo {@code Async} devuelven un {@link CompletableFuture}
+ * y no bloquean al llamante; las variantes síncronas esperan ese mismo futuro
+ * hasta un timeout y no deben usarse desde el hilo principal.
+ * </p>
  *
  * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
  * @version 1.0
@@ -26,43 +28,193 @@ import java.util.concurrent.TimeoutException;
  */
 public class ReservaRepository {
 
+    /**
+     * Criterios de ordenación disponibles para la lista paginada de reservas.
+     */
+    public enum Orden {
+        /** Por nombre de cliente */
+        CLIENTE,
+        /** Por fecha de recogida */
+        RECOGIDA,
+        /** Por fecha de devolución */
+        DEVOLUCION
+    }
+
+    private final AppRoomDatabase mDb;
     private final ReservaDao mReservaDao;
-    private final LiveData<List<Reserva>> mAllReservas;
+    private final ContadorDao mContadorDao;
+    private final AnaliticaDao mAnaliticaDao;
+    private final ReservaQuadDao mReservaQuadDao;
+    private LiveData<List<Reserva>> mAllReservas;
+    private final OcupacionRepository mOcupacion;
+    private final CacheEntidades<Reserva> mCache;
 
-    /** Timeout en milisegundos para operaciones de base de datos */
-    private final long TIMEOUT = 15000;
+    /** Caché de reservas por id compartida por todas las instancias del repositorio */
+    private static CacheEntidades<Reserva> sCache;
+    /** Reservas recientes retenidas en memoria */
+    private static final int TAM_CACHE = 256;
 
     /**
      * Constructor del repositorio.
      *
      * @param application Contexto de la aplicación para acceder a la base de datos.
+     * @param ocupacion Índice de ocupación compartido, que este repositorio mantiene al día.
      */
-    public ReservaRepository(Application application) {
-        AppRoomDatabase db = AppRoomDatabase.getDatabase(application);
-        mReservaDao = db.reservaDao();
-        mAllReservas = mReservaDao.getAllReservas();
+    public ReservaRepository(Application application, OcupacionRepository ocupacion) {
+        mDb = AppRoomDatabase.getDatabase(application);
+        mReservaDao = mDb.reservaDao();
+        mReservaQuadDao = mDb.reservaQuadDao();
+        mContadorDao = mDb.contadorDao();
+        mAnaliticaDao = mDb.analiticaDao();
+        mOcupacion = ocupacion;
+        mCache = cache(mDb);
+    }
+
+    private static synchronized CacheEntidades<Reserva> cache(AppRoomDatabase db) {
+        if (sCache == null) sCache = new CacheEntidades<>(db, "reserva", TAM_CACHE);
+        return sCache;
     }
     /**
      * Devuelve un LiveData con todas las reservas.
      *
      * @return LiveData con la lista observable de todas las reservas.
      */
-    public LiveData<List<Reserva>> getAllReservas() { return mAllReservas; }
+    public synchronized LiveData<List<Reserva>> getAllReservas() {
+        // Se crea al pedirla: solo se registra en Room si alguna pantalla la observa
+        if (mAllReservas == null) mAllReservas = mReservaDao.getAllReservas();
+        return mAllReservas;
+    }
+
+    /**
+     * Crea una nueva fuente paginada de reservas con el orden indicado.
+     * <p>
+     * Cada invalidación de la tabla requiere una fuente nueva, por lo que
+     * este método debe usarse como factoría de un {@code Pager}.
+     * </p>
+     *
+     * @param orden Criterio de ordenación.
+     * @return Fuente paginada de reservas.
+     */
+    public PagingSource<Integer, Reserva> getReservasPaginadas(Orden orden) {
+        switch (orden) {
+            case CLIENTE:
+                return mReservaDao.getReservasPaginadasPorCliente();
+            case DEVOLUCION:
+                return mReservaDao.getReservasPaginadasPorDevolucion();
+            case RECOGIDA:
+            default:
+                return mReservaDao.getReservasPaginadasPorRecogida();
+        }
+    }
+
+    /**
+     * Crea una nueva fuente paginada con las reservas cuyo cliente coincide con el texto.
+     *
+     * @param texto Texto de búsqueda tal como lo escribe el usuario.
+     * @return Fuente paginada de reservas que coinciden.
+     */
+    public PagingSource<Integer, Reserva> buscarReservasPaginadas(String texto) {
+        return mReservaDao.buscarReservasPaginadas(BusquedaFts.aConsulta(texto));
+    }
+
+    /**
+     * Inserta una nueva reserva sin bloquear al llamante.
+     *
+     * @param reserva Reserva a insertar.
+     * @return Futuro con el identificador de la reserva insertada, o -1 si se ignoró.
+     *         Se completa con {@link LimiteExcedidoException} si ya hay
+     *         {@link Contador#MAX_RESERVAS} reservas.
+     */
+    public CompletableFuture<Long> insertAsync(Reserva reserva) {
+        return OperacionesBD.enviar("ReservaRepository.insert", AppRoomDatabase.databaseWriteExecutor, () -> mDb.runInTransaction(() -> {
+            comprobarLimite();
+            long id = mReservaDao.insertReserva(reserva);
+            if (id > 0) mAnaliticaDao.aplicarReserva((int) id, 1);
+            return id;
+        }));
+    }
 
     /**
      * Inserta una nueva reserva en la base de datos.
      *
      * @param reserva Reserva a insertar.
-     * @return Identificador de la reserva insertada (&gt; 0) si tuvo éxito, -1 en caso de error.
+     * @return Identificador de la reserva insertada (&gt; 0) si tuvo éxito, -1 en caso de error
+     *         o si se ha alcanzado el máximo de reservas.
      */
     public long insert(Reserva reserva) {
-        Future<Long> future = AppRoomDatabase.databaseWriteExecutor.submit(() -> mReservaDao.insertReserva(reserva));
-        try {
-            return future.get(TIMEOUT, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException ex) {
-            Log.d("ReservaRepository", ex.getClass().getSimpleName() + ex.getMessage());
-            return -1;
-        }
+        return OperacionesBD.esperar("ReservaRepository.insert", insertAsync(reserva), -1L);
+    }
+
+    /**
+     * Inserta una reserva y todas sus asociaciones con quads de forma atómica,
+     * sin bloquear al llamante.
+     *
+     * @param reserva Reserva a insertar.
+     * @param reservaQuads Asociaciones con los quads seleccionados.
+     * @return Futuro con el identificador de la reserva insertada, o -1 si falló.
+     *         Se completa con {@link ConflictoReservaException} si algún quad
+     *         ya está reservado en esas fechas, o con {@link LimiteExcedidoException}
+     *         si ya hay {@link Contador#MAX_RESERVAS} reservas.
+     */
+    public CompletableFuture<Long> insertWithQuadsAsync(Reserva reserva, List<ReservaQuad> reservaQuads) {
+        return OperacionesBD.enviar("ReservaRepository.insertWithQuads", AppRoomDatabase.databaseWriteExecutor,
+                () -> {
+                    // Antes de escribir nada: ningún quad puede estar ya reservado en esas fechas
+                    mOcupacion.comprobarLineas(-1, reserva.getFechaRecogida(), reserva.getFechaDevolucion(), reservaQuads);
+                    long id = mDb.runInTransaction(() -> {
+                        comprobarLimite();
+                        long nuevo = mReservaDao.insertReservaConQuads(reserva, reservaQuads);
+                        if (nuevo > 0) mAnaliticaDao.aplicarReserva((int) nuevo, 1);
+                        return nuevo;
+                    });
+                    if (id > 0) mOcupacion.alCambiarLineas(reservaQuads);
+                    return id;
+                });
+    }
+
+    /**
+     * Inserta una reserva y todas sus asociaciones con quads de forma atómica.
+     * <p>
+     * La reserva y sus {@link ReservaQuad} se escriben en una sola transacción
+     * y un único viaje al executor, por lo que las asociaciones son visibles
+     * a la vez que la reserva.
+     * </p>
+     *
+     * @param reserva Reserva a insertar.
+     * @param reservaQuads Asociaciones con los quads seleccionados; su
+     *                     reservaId se rellena con el id generado.
+     * @return Identificador de la reserva insertada (&gt; 0) si tuvo éxito, -1 en caso
+     *         de error, si algún quad ya está reservado en esas fechas o si se ha
+     *         alcanzado el máximo de reservas.
+     */
+    public long insertWithQuads(Reserva reserva, List<ReservaQuad> reservaQuads) {
+        return OperacionesBD.esperar("ReservaRepository.insertWithQuads", insertWithQuadsAsync(reserva, reservaQuads), -1L);
+    }
+
+    /**
+     * Actualiza una reserva existente sin bloquear al llamante.
+     *
+     * @param reserva Reserva con los datos actualizados.
+     * @return Futuro con el número de filas afectadas. Se completa con
+     *         {@link ConflictoReservaException} si las nuevas fechas solapan
+     *         otra reserva de alguno de sus quads.
+     */
+    public CompletableFuture<Integer> updateAsync(Reserva reserva) {
+        return OperacionesBD.enviar("ReservaRepository.update", AppRoomDatabase.databaseWriteExecutor, () -> {
+            // Las nuevas fechas no pueden solapar a otra reserva de los mismos quads
+            List<Integer> quadIds = mReservaQuadDao.getQuadIdsByReservaId(reserva.getId());
+            mOcupacion.comprobarConflictos(reserva.getId(), reserva.getFechaRecogida(), reserva.getFechaDevolucion(), quadIds);
+            // Los resúmenes se corrigen en la misma transacción: se resta la reserva antigua y se suma la nueva
+            int filas = mDb.runInTransaction(() -> {
+                mAnaliticaDao.aplicarReserva(reserva.getId(), -1);
+                int n = mReservaDao.updateReserva(reserva);
+                mAnaliticaDao.aplicarReserva(reserva.getId(), 1);
+                return n;
+            });
+            mCache.descartar(reserva.getId());
+            if (filas > 0) mOcupacion.alCambiarQuads(quadIds);
+            return filas;
+        });
     }
 
     /**
@@ -72,13 +224,74 @@ public class ReservaRepository {
      * @return 1 si se actualizó, 0 si no se encontró, -1 en caso de error.
      */
     public int update(Reserva reserva) {
-        Future<Integer> future = AppRoomDatabase.databaseWriteExecutor.submit(() -> mReservaDao.updateReserva(reserva));
-        try {
-            return future.get(TIMEOUT, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException ex) {
-            Log.d("ReservaRepository", ex.getClass().getSimpleName() + ex.getMessage());
-            return -1;
-        }
+        return OperacionesBD.esperar("ReservaRepository.update", updateAsync(reserva), -1);
+    }
+
+    /**
+     * Actualiza una reserva y sus asociaciones con quads de forma atómica,
+     * sin bloquear al llamante.
+     * <p>
+     * Los conflictos se comprueban con las fechas y los quads nuevos,
+     * excluyendo a la propia reserva, antes de escribir. La reserva, las
+     * diferencias de sus asociaciones (ver {@link ReservaQuadDao#sincronizarLineas})
+     * y los resúmenes de informes se escriben en una única transacción.
+     * </p>
+     *
+     * @param reserva Reserva con los datos actualizados.
+     * @param reservaQuads Quads y número de cascos que debe tener la reserva.
+     * @return Futuro con el número de filas de reserva actualizadas. Se completa
+     *         con {@link ConflictoReservaException} si algún quad ya está
+     *         reservado en esas fechas; en ese caso no se escribe nada.
+     */
+    public CompletableFuture<Integer> updateWithQuadsAsync(Reserva reserva, List<ReservaQuad> reservaQuads) {
+        return OperacionesBD.enviar("ReservaRepository.updateWithQuads", AppRoomDatabase.databaseWriteExecutor, () -> {
+            mOcupacion.comprobarLineas(reserva.getId(), reserva.getFechaRecogida(), reserva.getFechaDevolucion(), reservaQuads);
+            List<Integer> anteriores = mReservaQuadDao.getQuadIdsByReservaId(reserva.getId());
+            int filas = mDb.runInTransaction(() -> {
+                mAnaliticaDao.aplicarReserva(reserva.getId(), -1);
+                int n = mReservaDao.updateReserva(reserva);
+                if (n > 0) mReservaQuadDao.sincronizarLineas(reserva.getId(), reservaQuads);
+                mAnaliticaDao.aplicarReserva(reserva.getId(), 1);
+                return n;
+            });
+            mCache.descartar(reserva.getId());
+            if (filas > 0) {
+                mOcupacion.alCambiarQuads(anteriores);
+                mOcupacion.alCambiarLineas(reservaQuads);
+            }
+            return filas;
+        });
+    }
+
+    /**
+     * Actualiza una reserva y sus asociaciones con quads de forma atómica.
+     *
+     * @param reserva Reserva con los datos actualizados.
+     * @param reservaQuads Quads y número de cascos que debe tener la reserva.
+     * @return 1 si se actualizó, 0 si no se encontró, -1 en caso de error o conflicto.
+     */
+    public int updateWithQuads(Reserva reserva, List<ReservaQuad> reservaQuads) {
+        return OperacionesBD.esperar("ReservaRepository.updateWithQuads", updateWithQuadsAsync(reserva, reservaQuads), -1);
+    }
+
+    /**
+     * Elimina una reserva sin bloquear al llamante.
+     *
+     * @param reserva Reserva a eliminar.
+     * @return Futuro con el número de filas afectadas.
+     */
+    public CompletableFuture<Integer> deleteAsync(Reserva reserva) {
+        return OperacionesBD.enviar("ReservaRepository.delete", AppRoomDatabase.databaseWriteExecutor, () -> {
+            // Los quads se leen antes de borrar: el CASCADE elimina las asociaciones
+            List<Integer> quadIds = mOcupacion.quadsDeReserva(reserva.getId());
+            int filas = mDb.runInTransaction(() -> {
+                mAnaliticaDao.aplicarReserva(reserva.getId(), -1);
+                return mReservaDao.deleteReserva(reserva);
+            });
+            mCache.descartar(reserva.getId());
+            if (filas > 0) mOcupacion.alCambiarQuads(quadIds);
+            return filas;
+        });
     }
 
     /**
@@ -91,13 +304,25 @@ public class ReservaRepository {
      * @return 1 si se eliminó, 0 si no se encontró, -1 en caso de error.
      */
     public int delete(Reserva reserva) {
-        Future<Integer> future = AppRoomDatabase.databaseWriteExecutor.submit(() -> mReservaDao.deleteReserva(reserva));
-        try {
-            return future.get(TIMEOUT, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException ex) {
-            Log.d("ReservaRepository", ex.getClass().getSimpleName() + ex.getMessage());
-            return -1;
-        }
+        return OperacionesBD.esperar("ReservaRepository.delete", deleteAsync(reserva), -1);
+    }
+
+    /**
+     * Obtiene una reserva por su identificador sin bloquear al llamante.
+     * <p>
+     * Si la reserva está en la caché, el futuro ya está completo y no se
+     * pasa por el executor de lectura; la consulta cuenta igualmente en las
+     * métricas, como acierto de caché. La reserva devuelta no debe modificarse.
+     * </p>
+     *
+     * @param id Identificador de la reserva.
+     * @return Futuro con la reserva encontrada, o null si no existe.
+     */
+    public CompletableFuture<Reserva> getReservaByIdAsync(int id) {
+        long inicio = System.nanoTime();
+        Reserva enCache = mCache.get(id);
+        if (enCache != null) return OperacionesBD.desdeCache("ReservaRepository.getReservaById", inicio, enCache);
+        return OperacionesBD.enviar("ReservaRepository.getReservaById", AppRoomDatabase.databaseReadExecutor, () -> mCache.get(id, mReservaDao::getReservaById));
     }
 
     /**
@@ -107,12 +332,45 @@ public class ReservaRepository {
      * @return La reserva encontrada, o null si no existe o hay error.
      */
     public Reserva getReservaById(int id) {
-        Future<Reserva> future = AppRoomDatabase.databaseWriteExecutor.submit(() -> mReservaDao.getReservaById(id));
-        try {
-            return future.get(TIMEOUT, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException | ExecutionException | TimeoutException ex) {
-            Log.d("ReservaRepository", ex.getClass().getSimpleName() + ex.getMessage());
-            return null;
+        return OperacionesBD.esperar("ReservaRepository.getReservaById", getReservaByIdAsync(id), null);
+    }
+
+    /**
+     * Observa una reserva: emite su valor actual y vuelve a emitir tras cada
+     * escritura confirmada en la tabla reserva.
+     *
+     * @param id Identificador de la reserva.
+     * @return LiveData con la reserva, o null si no existe.
+     */
+    public LiveData<Reserva> observeReservaById(int id) {
+        return mReservaDao.observeReservaById(id);
+    }
+
+    /**
+     * Obtiene una reserva con sus quads en una única operación, sin bloquear al llamante.
+     *
+     * @param id Identificador de la reserva.
+     * @return Futuro con el agregado de la reserva, o null si no existe.
+     */
+    public CompletableFuture<ReservaCompleta> getReservaCompletaAsync(int id) {
+        return OperacionesBD.enviar("ReservaRepository.getReservaCompleta", AppRoomDatabase.databaseReadExecutor, () -> mReservaDao.getReservaCompleta(id));
+    }
+
+    /**
+     * Observa una reserva con sus quads: vuelve a emitir en cuanto se
+     * confirma un cambio en la reserva, en sus asociaciones o en los quads.
+     *
+     * @param id Identificador de la reserva.
+     * @return LiveData con el agregado, o null si la reserva no existe.
+     */
+    public LiveData<ReservaCompleta> observeReservaCompleta(int id) {
+        return mReservaDao.observeReservaCompleta(id);
+    }
+
+    // R.N.F. 2: se llama dentro de la transacción de inserción, así que el total no cambia entre la lectura y la escritura
+    private void comprobarLimite() {
+        if (mContadorDao.getTotal(Contador.RESERVAS) >= Contador.MAX_RESERVAS) {
+            throw new LimiteExcedidoException(Contador.RESERVAS, Contador.MAX_RESERVAS);
         }
     }
 }
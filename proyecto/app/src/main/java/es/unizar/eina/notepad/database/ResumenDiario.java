@@ -0,0 +1,72 @@
+package es.unizar.eina.notepad.database;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+
+/**
+ * Entidad con el resumen precalculado de un quad en un día.
+ * <p>
+ * Cada fila acumula, para un día (días desde la época en la zona horaria
+ * local) y un quad, los días-quad reservados y la parte de los ingresos de
+ * las reservas que le corresponde. El precio de una reserva se reparte a
+ * partes iguales entre todos sus días y quads. Las reservas sin quads
+ * guardan sus ingresos con {@code quad_id = 0} para que cuenten en los
+ * totales pero no en la utilización.
+ * </p>
+ * <p>
+ * La tabla se mantiene de forma incremental en la misma transacción que
+ * cada escritura de reservas o asociaciones (ver {@link AnaliticaDao}), de
+ * modo que los informes se resuelven con un rango sobre la clave primaria
+ * en lugar de recorrer todas las reservas.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see AnaliticaDao
+ * @see AnaliticaRepository
+ */
+@Entity(tableName = "resumen_diario",
+        primaryKeys = {"dia", "quad_id"},
+        indices = {@Index({"quad_id", "dia"})})
+public class ResumenDiario {
+
+    @ColumnInfo(name = "dia")
+    private long dia;
+
+    @ColumnInfo(name = "quad_id")
+    private int quadId;
+
+    @ColumnInfo(name = "ingresos")
+    private double ingresos;
+
+    @ColumnInfo(name = "dias_reservados")
+    private int diasReservados;
+
+    /**
+     * Construye un resumen.
+     *
+     * @param dia Día (días desde la época).
+     * @param quadId Identificador del quad, o 0 para reservas sin quads.
+     * @param ingresos Ingresos atribuidos a ese quad ese día, en euros.
+     * @param diasReservados Número de reservas del quad ese día.
+     */
+    public ResumenDiario(long dia, int quadId, double ingresos, int diasReservados) {
+        this.dia = dia;
+        this.quadId = quadId;
+        this.ingresos = ingresos;
+        this.diasReservados = diasReservados;
+    }
+
+    /** @return Día (días desde la época). */
+    public long getDia() { return dia; }
+
+    /** @return Identificador del quad, o 0 para reservas sin quads. */
+    public int getQuadId() { return quadId; }
+
+    /** @return Ingresos atribuidos a ese quad ese día, en euros. */
+    public double getIngresos() { return ingresos; }
+
+    /** @return Número de reservas del quad ese día. */
+    public int getDiasReservados() { return diasReservados; }
+}
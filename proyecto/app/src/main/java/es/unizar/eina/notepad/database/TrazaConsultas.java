@@ -0,0 +1,237 @@
+package es.unizar.eina.notepad.database;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.room.RoomDatabase;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registro de consultas lentas de Room, desactivado por defecto.
+ * <p>
+ * Cuando está activo, {@link AppRoomDatabase#getDatabase} instala un
+ * {@link RoomDatabase.QueryCallback} que recibe cada sentencia (SQL y
+ * parámetros) en el hilo que la lanza. Las que superan el umbral se añaden a
+ * {@code files/trazas/consultas_lentas.log} con su duración y el hilo que la
+ * ejecutó. El fichero rota al llegar a {@link #TAMANO_MAXIMO} bytes y se
+ * conservan {@link #FICHEROS} ficheros.
+ * </p>
+ * <p>
+ * Room avisa justo antes de ejecutar la sentencia y no al terminar, así que la
+ * duración se cierra cuando el mismo hilo lanza la siguiente sentencia o
+ * termina la tarea del executor en la que se ejecutaba. Incluye por tanto la
+ * lectura del cursor y la conversión de las filas en entidades, que es lo que
+ * nota quien espera el resultado.
+ * </p>
+ * <p>
+ * Se activa guardando la preferencia con {@link #guardar} (por ejemplo desde
+ * la pantalla de métricas) y se aplica al abrir la base de datos en el
+ * siguiente arranque. Sin activar, la base de datos se abre exactamente igual
+ * que antes y no se paga nada por consulta. Como el registro incluye los
+ * parámetros de las consultas (nombres y teléfonos de clientes), solo se
+ * lee la preferencia en las compilaciones de depuración.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see AppRoomDatabase
+ * @see MetricasBD
+ */
+public final class TrazaConsultas {
+
+    /** Umbral por defecto en milisegundos */
+    public static final long UMBRAL_POR_DEFECTO = 50;
+    /** Tamaño a partir del cual rota el fichero, en bytes */
+    static final long TAMANO_MAXIMO = 256 * 1024;
+    /** Ficheros conservados contando el actual */
+    static final int FICHEROS = 3;
+
+    private static final String PREFERENCIAS = "depuracion";
+    private static final String PREF_ACTIVA = "traza_consultas";
+    private static final String PREF_UMBRAL = "traza_umbral_ms";
+    private static final String FICHERO = "consultas_lentas.log";
+
+    private static volatile boolean sActiva;
+    private static volatile long sUmbralNanos = TimeUnit.MILLISECONDS.toNanos(UMBRAL_POR_DEFECTO);
+    private static volatile File sDirectorio;
+
+    /** Sentencia en curso en cada hilo */
+    private static final ThreadLocal<Pendiente> sPendiente = new ThreadLocal<>();
+
+    /** Escribe el fichero fuera de los hilos de la base de datos, en orden */
+    private static final ExecutorService sEscritor = Executors.newSingleThreadExecutor(r -> {
+        Thread hilo = new Thread(r, "bookuad-traza");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    private TrazaConsultas() {}
+
+    // Una sentencia lanzada y aún sin cerrar
+    private static final class Pendiente {
+        final String mSql;
+        final List<Object> mArgs;
+        final long mInicio;
+
+        Pendiente(String sql, List<?> args, long inicio) {
+            mSql = sql;
+            // Room reutiliza la lista de parámetros de una sentencia compilada
+            mArgs = new ArrayList<>(args);
+            mInicio = inicio;
+        }
+    }
+
+    /**
+     * Lee de las preferencias si la traza está activa y con qué umbral.
+     * Debe llamarse antes de abrir la base de datos, desde {@code Application.onCreate()}.
+     *
+     * @param context Contexto de la aplicación.
+     */
+    public static void configurar(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFERENCIAS, Context.MODE_PRIVATE);
+        sUmbralNanos = TimeUnit.MILLISECONDS.toNanos(prefs.getLong(PREF_UMBRAL, UMBRAL_POR_DEFECTO));
+        sActiva = prefs.getBoolean(PREF_ACTIVA, false);
+    }
+
+    /**
+     * Guarda la configuración para el siguiente arranque. El umbral se aplica
+     * en el momento; activar o desactivar la traza requiere reabrir la base de datos.
+     *
+     * @param context Contexto de la aplicación.
+     * @param activa true para registrar las consultas lentas.
+     * @param umbralMs Duración mínima, en milisegundos, de las consultas registradas.
+     */
+    public static void guardar(Context context, boolean activa, long umbralMs) {
+        context.getSharedPreferences(PREFERENCIAS, Context.MODE_PRIVATE).edit()
+                .putBoolean(PREF_ACTIVA, activa)
+                .putLong(PREF_UMBRAL, umbralMs)
+                .apply();
+        sUmbralNanos = TimeUnit.MILLISECONDS.toNanos(umbralMs);
+    }
+
+    /**
+     * @param context Contexto de la aplicación.
+     * @return true si está guardado que la traza esté activa en el siguiente arranque.
+     */
+    public static boolean estaGuardada(Context context) {
+        return context.getSharedPreferences(PREFERENCIAS, Context.MODE_PRIVATE).getBoolean(PREF_ACTIVA, false);
+    }
+
+    /** @return Umbral actual en milisegundos. */
+    public static long getUmbralMs() {
+        return TimeUnit.NANOSECONDS.toMillis(sUmbralNanos);
+    }
+
+    /**
+     * @param context Contexto de la aplicación.
+     * @return Fichero actual del registro (puede no existir aún).
+     */
+    public static File getFichero(Context context) {
+        return new File(new File(context.getFilesDir(), "trazas"), FICHERO);
+    }
+
+    static boolean estaActiva() {
+        return sActiva;
+    }
+
+    /**
+     * Prepara el directorio del registro y devuelve el callback para Room.
+     * Se ejecuta en el hilo que lanza la sentencia, así que debe registrarse
+     * con un executor directo.
+     */
+    static RoomDatabase.QueryCallback callback(Context context) {
+        sDirectorio = getFichero(context).getParentFile();
+        return (sql, args) -> {
+            long ahora = System.nanoTime();
+            cerrar(ahora);
+            sPendiente.set(new Pendiente(sql, args, ahora));
+        };
+    }
+
+    /**
+     * Envuelve un executor de Room para cerrar la última sentencia de cada tarea.
+     *
+     * @param executor Executor de lectura o de transacciones.
+     * @return Executor que, al terminar cada tarea, cierra la sentencia pendiente.
+     */
+    static Executor envolver(Executor executor) {
+        return tarea -> executor.execute(() -> {
+            try {
+                tarea.run();
+            } finally {
+                cerrar();
+            }
+        });
+    }
+
+    /** Cierra la sentencia pendiente del hilo actual; no hace nada si la traza está inactiva. */
+    static void cerrar() {
+        if (sActiva) cerrar(System.nanoTime());
+    }
+
+    private static void cerrar(long fin) {
+        Pendiente p = sPendiente.get();
+        if (p == null) return;
+        sPendiente.remove();
+        long duracion = fin - p.mInicio;
+        if (duracion < sUmbralNanos) return;
+        String linea = formatear(p, duracion, Thread.currentThread().getName());
+        sEscritor.execute(() -> escribir(linea));
+    }
+
+    // fecha \t ms \t hilo \t sql \t parámetros
+    private static String formatear(Pendiente p, long duracionNanos, String hilo) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.ROOT).format(new Date()));
+        sb.append('\t').append(String.format(Locale.ROOT, "%.1f", duracionNanos / 1e6)).append(" ms");
+        sb.append('\t').append(hilo);
+        sb.append('\t').append(p.mSql.replace('\n', ' '));
+        sb.append("\t[");
+        for (int i = 0; i < p.mArgs.size(); i++) {
+            if (i > 0) sb.append(", ");
+            Object arg = p.mArgs.get(i);
+            if (arg instanceof byte[]) sb.append("<blob ").append(((byte[]) arg).length).append(" bytes>");
+            else sb.append(arg);
+        }
+        return sb.append("]\n").toString();
+    }
+
+    private static void escribir(String linea) {
+        File dir = sDirectorio;
+        if (dir == null) return;
+        try {
+            if (!dir.isDirectory() && !dir.mkdirs()) return;
+            File actual = new File(dir, FICHERO);
+            if (actual.length() + linea.length() > TAMANO_MAXIMO) rotar(dir);
+            try (Writer w = new FileWriter(actual, true)) {
+                w.write(linea);
+            }
+        } catch (IOException ex) {
+            Log.d("TrazaConsultas", ex.getClass().getSimpleName() + ex.getMessage());
+        }
+    }
+
+    // consultas_lentas.log -> .1 -> .2 ...; el más antiguo se borra
+    private static void rotar(File dir) {
+        File ultimo = new File(dir, FICHERO + "." + (FICHEROS - 1));
+        if (ultimo.exists() && !ultimo.delete()) return;
+        for (int i = FICHEROS - 2; i >= 0; i--) {
+            File origen = new File(dir, i == 0 ? FICHERO : FICHERO + "." + i);
+            if (origen.exists()) origen.renameTo(new File(dir, FICHERO + "." + (i + 1)));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package es.unizar.eina.notepad.database;
+
+import androidx.room.ColumnInfo;
+
+/**
+ * Días reservados de un quad en un rango de fechas.
+ * <p>
+ * No es una entidad: es el resultado de agregar {@link ResumenDiario}.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see AnaliticaDao
+ */
+public class UtilizacionQuad {
+
+    /** Identificador del quad */
+    @ColumnInfo(name = "quad_id")
+    public final int quadId;
+
+    /** Días del rango en que el quad estaba reservado */
+    @ColumnInfo(name = "dias_reservados")
+    public final int diasReservados;
+
+    /**
+     * @param quadId Identificador del quad.
+     * @param diasReservados Días reservados en el rango.
+     */
+    public UtilizacionQuad(int quadId, int diasReservados) {
+        this.quadId = quadId;
+        this.diasReservados = diasReservados;
+    }
+
+    /**
+     * Fracción del rango en que el quad estuvo reservado.
+     *
+     * @param diasDisponibles Días del rango consultado.
+     * @return Días reservados / días disponibles, entre 0 y 1.
+     */
+    public double getUtilizacion(int diasDisponibles) {
+        return diasDisponibles <= 0 ? 0.0 : Math.min(1.0, (double) diasReservados / diasDisponibles);
+    }
+}
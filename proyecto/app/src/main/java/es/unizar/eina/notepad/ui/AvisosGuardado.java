@@ -0,0 +1,94 @@
+package es.unizar.eina.notepad.ui;
+
+import android.app.Activity;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AlertDialog;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import es.unizar.eina.notepad.database.ConflictoReservaException;
+import es.unizar.eina.notepad.database.Contador;
+import es.unizar.eina.notepad.database.LimiteExcedidoException;
+import es.unizar.eina.notepad.domain.FormatoFechas;
+import es.unizar.eina.notepad.domain.ValidadorConflictos.Conflicto;
+
+/**
+ * Avisos al usuario cuando un guardado no se ha podido completar.
+ * <p>
+ * Todas las pantallas que insertan o actualizan quads y reservas reciben el
+ * resultado con {@link GestorTareas} y lo pasan aquí, de modo que un
+ * rechazo por conflicto de fechas o por límite de registros se explica
+ * siempre igual. Si el guardado fue bien no se muestra nada.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see GestorTareas
+ * @see ConflictoReservaException
+ * @see LimiteExcedidoException
+ */
+final class AvisosGuardado {
+
+    private AvisosGuardado() {}
+
+    /**
+     * Avisa si no se ha guardado una reserva.
+     *
+     * @param activity Pantalla que muestra el aviso.
+     * @param resultado Resultado del guardado: id insertado o filas actualizadas.
+     */
+    static void reserva(Activity activity, GestorTareas.Resultado<? extends Number> resultado) {
+        Throwable ex = resultado.getError();
+        if (ex instanceof ConflictoReservaException) {
+            conflictos(activity, ((ConflictoReservaException) ex).getConflictos(),
+                    Collections.<Integer, String>emptyMap());
+        } else if (ex instanceof LimiteExcedidoException) {
+            Toast.makeText(activity, "No se guardó: ya hay " + Contador.MAX_RESERVAS + " reservas",
+                    Toast.LENGTH_LONG).show();
+        } else if (ex != null || resultado.getValor() == null || resultado.getValor().longValue() <= 0) {
+            Toast.makeText(activity, "No se pudo guardar la reserva", Toast.LENGTH_LONG).show();
+        }
+    }
+
+    /**
+     * Avisa si no se ha guardado un quad.
+     *
+     * @param activity Pantalla que muestra el aviso.
+     * @param resultado Resultado de la inserción.
+     */
+    static void quad(Activity activity, GestorTareas.Resultado<Long> resultado) {
+        Throwable ex = resultado.getError();
+        if (ex instanceof LimiteExcedidoException) {
+            Toast.makeText(activity, "No se guardó: ya hay " + Contador.MAX_QUADS + " quads",
+                    Toast.LENGTH_LONG).show();
+        } else if (ex != null || resultado.getValor() == null || resultado.getValor() <= 0) {
+            Toast.makeText(activity, "No se pudo guardar el quad", Toast.LENGTH_LONG).show();
+        }
+    }
+
+    /**
+     * Muestra las reservas existentes que impiden guardar.
+     *
+     * @param activity Pantalla que muestra el aviso.
+     * @param conflictos Reservas que se solapan.
+     * @param matriculas Matrícula de cada quad por id; los que falten se muestran por id.
+     */
+    static void conflictos(Activity activity, List<Conflicto> conflictos, Map<Integer, String> matriculas) {
+        StringBuilder msg = new StringBuilder();
+        for (Conflicto c : conflictos) {
+            String matricula = matriculas.get(c.quadId);
+            msg.append("Quad ").append(matricula != null ? matricula : "#" + c.quadId)
+                    .append(": reserva #").append(c.reservaId)
+                    .append(" (").append(FormatoFechas.corto(c.recogida))
+                    .append(" - ").append(FormatoFechas.corto(c.devolucion)).append(")\n");
+        }
+        new AlertDialog.Builder(activity)
+                .setTitle("Quads ya reservados en esas fechas")
+                .setMessage(msg.toString().trim())
+                .setPositiveButton(android.R.string.ok, (dialog, which) -> dialog.dismiss())
+                .show();
+    }
+}
@@ -14,8 +14,9 @@ import android.widget.Toast;
 
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
-import es.unizar.eina.notepad.database.Quad;
 import es.unizar.eina.notepad.R;
+import es.unizar.eina.notepad.database.Quad;
+import es.unizar.eina.notepad.domain.TipoQuad;
 
 import static androidx.activity.result.contract.ActivityResultContracts.StartActivityForResult;
 
@@ -149,7 +150,8 @@ public class Bookuad extends AppCompatActivity {
     ActivityResultLauncher<Intent> mStartCreateQuad = newActivityResultLauncher(new ExecuteActivityResult() {
         @Override
         public void process(Bundle extras, Quad quad) {
-            mQuadViewModel.insert(quad);
+            mQuadViewModel.getTareas().seguir(Bookuad.this, null, () -> mQuadViewModel.insert(quad),
+                    resultado -> AvisosGuardado.quad(Bookuad.this, resultado));
         }
     });
 
@@ -163,10 +165,10 @@ public class Bookuad extends AppCompatActivity {
                             if (extras.containsKey(QuadEdit.QUAD_MATRICULA) || extras.containsKey(QuadEdit.QUAD_DESCRIPCION)) {
                                 String matricula = extras.getString(QuadEdit.QUAD_MATRICULA, "");
                                 String descripcion = extras.getString(QuadEdit.QUAD_DESCRIPCION, "");
-                                String tipoName = extras.getString(QuadEdit.QUAD_TIPO, Quad.Tipo.UNIPLAZA.name());
+                                String tipoName = extras.getString(QuadEdit.QUAD_TIPO, TipoQuad.UNIPLAZA.name());
                                 int precio = extras.getInt(QuadEdit.QUAD_PRECIO, 0);
-                                Quad.Tipo tipo;
-                                try { tipo = Quad.Tipo.valueOf(tipoName); } catch (Exception e) { tipo = Quad.Tipo.UNIPLAZA; }
+                                TipoQuad tipo;
+                                try { tipo = TipoQuad.valueOf(tipoName); } catch (Exception e) { tipo = TipoQuad.UNIPLAZA; }
                                 Quad quad = new Quad(tipo, precio, matricula, descripcion);
                                 executable.process(extras, quad);
                             } else {
@@ -190,7 +192,7 @@ public class Bookuad extends AppCompatActivity {
         // Nuevas claves
         intent.putExtra(QuadEdit.QUAD_MATRICULA, current.getMatricula());
         intent.putExtra(QuadEdit.QUAD_DESCRIPCION, current.getDescripcion());
-        intent.putExtra(QuadEdit.QUAD_TIPO, current.getTipo() != null ? current.getTipo().name() : Quad.Tipo.UNIPLAZA.name());
+        intent.putExtra(QuadEdit.QUAD_TIPO, current.getTipo() != null ? current.getTipo().name() : TipoQuad.UNIPLAZA.name());
         intent.putExtra(QuadEdit.QUAD_PRECIO, current.getPrecio());
         intent.putExtra(QuadEdit.QUAD_ID, current.getId());
         mStartUpdateQuad.launch(intent);
@@ -0,0 +1,271 @@
+package es.unizar.eina.notepad.ui;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Observer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Planificador de tareas en segundo plano de la capa de UI.
+ * <p>
+ * Cada ViewModel tiene el suyo y lo cancela en {@code onCleared()}, de modo
+ * que las tareas viven lo que vive la pantalla y no lo que vive una activity
+ * concreta: sobreviven a una rotación y se descartan al salir.
+ * </p>
+ * <p>
+ * Las tareas se identifican por una clave. Si se pide una clave que ya está
+ * en curso no se lanza otra: la petición se une a la existente y recibe su
+ * resultado, así que pulsar dos veces un botón o recrear la activity no
+ * repite la carga. El resultado se entrega en el hilo principal y solo a un
+ * {@link LifecycleOwner} vivo, a través de un LiveData: si la activity está
+ * en segundo plano lo recibe al volver, y si se ha destruido no lo recibe.
+ * Las activities no guardan referencias en los hilos de fondo.
+ * </p>
+ * <p>
+ * El trabajo bloqueante ({@link #ejecutar}) se ejecuta en un pool compartido
+ * y acotado; si su cola está llena, la tarea falla con
+ * {@link RejectedExecutionException} en lugar de crear más hilos. Las
+ * operaciones que ya devuelven un {@link CompletableFuture} ({@link #seguir})
+ * no ocupan hilos del pool. Todos los métodos deben llamarse desde el hilo
+ * principal.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see QuadViewModel
+ * @see ReservaViewModel
+ */
+public final class GestorTareas {
+
+    private static final int HILOS = 2;
+    private static final int COLA = 32;
+    private static final AtomicInteger sNumeroHilo = new AtomicInteger();
+
+    /** Pool compartido por todas las pantallas para el trabajo bloqueante */
+    private static final ThreadPoolExecutor sExecutor = crearExecutor();
+
+    private static final Handler sPrincipal = new Handler(Looper.getMainLooper());
+    private static final Executor sHiloPrincipal = sPrincipal::post;
+
+    /** Tareas en curso por clave; solo se accede desde el hilo principal */
+    private final Map<String, Tarea<?>> mEnCurso = new HashMap<>();
+    private int mAnonimas;
+    private boolean mCerrado;
+
+    /**
+     * Resultado de una tarea: un valor o el error que la hizo fallar.
+     *
+     * @param <T> Tipo del valor.
+     */
+    public static final class Resultado<T> {
+        private final T mValor;
+        private final Throwable mError;
+
+        private Resultado(T valor, Throwable error) {
+            mValor = valor;
+            mError = error;
+        }
+
+        /** @return Valor de la tarea, o null si falló. */
+        public T getValor() { return mValor; }
+
+        /** @return Causa del fallo (sin envolver en CompletionException), o null si terminó bien. */
+        public Throwable getError() { return mError; }
+
+        /** @return true si la tarea falló. */
+        public boolean esError() { return mError != null; }
+    }
+
+    // Una tarea en curso y el único receptor que recibirá su resultado
+    private static final class Tarea<T> {
+        final CompletableFuture<T> mFuture;
+        final MutableLiveData<Resultado<T>> mDatos = new MutableLiveData<>();
+        Observer<Resultado<T>> mObserver;
+        /** Pantalla del receptor actual y el observador que lo suelta al destruirla */
+        LifecycleOwner mOwner;
+        DefaultLifecycleObserver mVigilante;
+
+        Tarea(CompletableFuture<T> future) {
+            mFuture = future;
+        }
+    }
+
+    /**
+     * Ejecuta trabajo bloqueante en el pool compartido.
+     *
+     * @param owner Pantalla que recibe el resultado.
+     * @param clave Identifica la tarea para no repetirla si ya está en curso;
+     *              null si cada llamada es una tarea distinta.
+     * @param trabajo Trabajo a ejecutar en segundo plano.
+     * @param receptor Recibe el resultado en el hilo principal, si la pantalla sigue viva.
+     * @param <T> Tipo del resultado.
+     */
+    @MainThread
+    public <T> void ejecutar(LifecycleOwner owner, String clave, Callable<T> trabajo,
+                             Consumer<Resultado<T>> receptor) {
+        lanzar(owner, clave, () -> enPool(trabajo), receptor);
+    }
+
+    /**
+     * Sigue una operación asíncrona, normalmente de un repositorio.
+     *
+     * @param owner Pantalla que recibe el resultado.
+     * @param clave Identifica la tarea para no repetirla si ya está en curso;
+     *              null si cada llamada es una tarea distinta (por ejemplo, escrituras).
+     * @param operacion Lanza la operación; solo se llama si no hay otra en curso con la misma clave.
+     * @param receptor Recibe el resultado en el hilo principal, si la pantalla sigue viva.
+     * @param <T> Tipo del resultado.
+     */
+    @MainThread
+    public <T> void seguir(LifecycleOwner owner, String clave, Supplier<CompletableFuture<T>> operacion,
+                           Consumer<Resultado<T>> receptor) {
+        lanzar(owner, clave, operacion, receptor);
+    }
+
+    /**
+     * Cancela una tarea: si aún no ha empezado no se ejecuta y, en cualquier
+     * caso, su resultado no se entrega. Una escritura ya enviada a la base
+     * de datos no se deshace.
+     *
+     * @param clave Clave de la tarea.
+     */
+    @MainThread
+    public void cancelar(String clave) {
+        Tarea<?> tarea = mEnCurso.remove(clave);
+        if (tarea == null) return;
+        tarea.mFuture.cancel(false);
+        soltar(tarea);
+    }
+
+    /** Cancela todas las tareas y rechaza las nuevas; se llama desde {@code ViewModel.onCleared()}. */
+    @MainThread
+    public void cancelarTodas() {
+        mCerrado = true;
+        for (String clave : mEnCurso.keySet().toArray(new String[0])) cancelar(clave);
+    }
+
+    /** @return Número de tareas en curso o con el resultado pendiente de entregar. */
+    @MainThread
+    public int enCurso() { return mEnCurso.size(); }
+
+    private <T> void lanzar(LifecycleOwner owner, String clave, Supplier<CompletableFuture<T>> operacion,
+                            Consumer<Resultado<T>> receptor) {
+        if (mCerrado) return;
+        if (clave == null) clave = "#" + (mAnonimas++);
+        @SuppressWarnings("unchecked")
+        Tarea<T> tarea = (Tarea<T>) mEnCurso.get(clave);
+        if (tarea == null) {
+            CompletableFuture<T> future;
+            try {
+                future = operacion.get();
+            } catch (RuntimeException ex) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(ex);
+            }
+            Tarea<T> nueva = new Tarea<>(future);
+            String k = clave;
+            mEnCurso.put(k, nueva);
+            future.whenCompleteAsync((valor, ex) -> {
+                if (mEnCurso.get(k) != nueva) return; // cancelada
+                mEnCurso.remove(k);
+                Throwable causa = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                if (causa instanceof CancellationException) return;
+                if (causa != null) Log.d("GestorTareas", k + ": " + causa.getClass().getSimpleName() + causa.getMessage());
+                // Se guarda en el LiveData: el receptor lo recibe cuando su pantalla esté activa
+                nueva.mDatos.setValue(new Resultado<>(valor, causa));
+            }, sHiloPrincipal);
+            tarea = nueva;
+        }
+        entregarA(tarea, owner, receptor);
+    }
+
+    // La última petición de una clave es la que recibe el resultado
+    private static <T> void entregarA(Tarea<T> tarea, LifecycleOwner owner, Consumer<Resultado<T>> receptor) {
+        soltar(tarea);
+        if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) return;
+        Observer<Resultado<T>> observer = new Observer<Resultado<T>>() {
+            @Override
+            public void onChanged(Resultado<T> resultado) {
+                soltar(tarea);
+                receptor.accept(resultado);
+            }
+        };
+        tarea.mObserver = observer;
+        tarea.mDatos.observe(owner, observer);
+        // El receptor referencia la pantalla: se suelta al destruirla aunque la tarea siga en curso
+        tarea.mOwner = owner;
+        tarea.mVigilante = new DefaultLifecycleObserver() {
+            @Override
+            public void onDestroy(@NonNull LifecycleOwner destruido) {
+                soltar(tarea);
+            }
+        };
+        owner.getLifecycle().addObserver(tarea.mVigilante);
+    }
+
+    // Quita el receptor actual y su observador del ciclo de vida, para no acumular uno por petición
+    private static <T> void soltar(Tarea<T> tarea) {
+        if (tarea.mObserver != null) {
+            tarea.mDatos.removeObserver(tarea.mObserver);
+            tarea.mObserver = null;
+        }
+        if (tarea.mVigilante != null) {
+            tarea.mOwner.getLifecycle().removeObserver(tarea.mVigilante);
+            tarea.mVigilante = null;
+            tarea.mOwner = null;
+        }
+    }
+
+    private static <T> CompletableFuture<T> enPool(Callable<T> trabajo) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            sExecutor.execute(() -> {
+                // Cancelada mientras esperaba en la cola
+                if (future.isDone()) return;
+                try {
+                    future.complete(trabajo.call());
+                } catch (Exception ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    private static ThreadPoolExecutor crearExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(HILOS, HILOS, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(COLA),
+                r -> {
+                    Thread hilo = new Thread(r, "bookuad-ui-" + sNumeroHilo.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+        // Sin tareas, los hilos terminan: la UI no retiene hilos ociosos
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
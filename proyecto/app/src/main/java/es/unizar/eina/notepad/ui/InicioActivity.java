@@ -7,6 +7,7 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import com.google.android.material.button.MaterialButton;
 
+import es.unizar.eina.notepad.BuildConfig;
 import es.unizar.eina.notepad.R;
 
 public class InicioActivity extends AppCompatActivity {
@@ -32,5 +33,13 @@ public class InicioActivity extends AppCompatActivity {
             startActivity(intent);
             overridePendingTransition(R.anim.fade_in, R.anim.fade_out);
         });
+
+        // Pulsación larga en el título: pantalla de depuración con las métricas de la BD
+        if (BuildConfig.DEBUG) {
+            findViewById(R.id.title).setOnLongClickListener(v -> {
+                startActivity(new Intent(InicioActivity.this, MetricasActivity.class));
+                return true;
+            });
+        }
     }
 }
@@ -1,6 +1,9 @@
 package es.unizar.eina.notepad.ui;
 
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.widget.EditText;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
@@ -9,20 +12,14 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 
 import com.google.android.material.button.MaterialButton;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
-
 import androidx.recyclerview.widget.RecyclerView;
 import es.unizar.eina.notepad.R;
-import es.unizar.eina.notepad.database.Quad;
+import es.unizar.eina.notepad.database.QuadRepository;
 
 public class ListaQuadsActivity extends AppCompatActivity {
 
     private QuadViewModel mQuadViewModel;
     private QuadListAdapter mAdapter;
-    private List<Quad> mAllQuads = new ArrayList<>();
     private com.google.android.material.floatingactionbutton.FloatingActionButton mFab;
 
     @Override
@@ -39,11 +36,11 @@ public class ListaQuadsActivity extends AppCompatActivity {
             android.util.Log.d("ListaQuadsActivity", "onCreate - RecyclerView initialized: " + (recyclerView!=null));
 
             mQuadViewModel = new ViewModelProvider(this).get(QuadViewModel.class);
-            mQuadViewModel.getAllQuads().observe(this, quads -> {
+            // La lista llega ya ordenada desde la BD; los botones solo cambian la consulta observada
+            mQuadViewModel.getQuadsVisibles().observe(this, quads -> {
                 android.util.Log.d("ListaQuadsActivity", "observed quads size=" + (quads==null?0:quads.size()));
                 if (quads != null) {
-                    mAllQuads = new ArrayList<>(quads);
-                    mAdapter.submitList(new ArrayList<>(mAllQuads));
+                    mAdapter.submitList(quads);
                 }
             });
 
@@ -55,6 +52,14 @@ public class ListaQuadsActivity extends AppCompatActivity {
             btnTipo.setOnClickListener(v -> sortByTipo());
             btnPrecio.setOnClickListener(v -> sortByPrecio());
 
+            // Búsqueda por texto completo: cada cambio sustituye la consulta observada
+            EditText searchText = findViewById(R.id.search_text);
+            searchText.addTextChangedListener(new TextWatcher() {
+                @Override public void beforeTextChanged(CharSequence s, int st, int c, int a) {}
+                @Override public void onTextChanged(CharSequence s, int st, int b, int c) {}
+                @Override public void afterTextChanged(Editable s) { mQuadViewModel.setBusqueda(s.toString()); }
+            });
+
             // Floating action button: añadir nuevo quad
             mFab = findViewById(R.id.fab);
             mFab.setOnClickListener(v -> {
@@ -67,37 +72,17 @@ public class ListaQuadsActivity extends AppCompatActivity {
     }
 
     private void sortByMatricula() {
-        if (mAllQuads == null) return;
-        List<Quad> copy = new ArrayList<>(mAllQuads);
-        Collections.sort(copy, Comparator.comparing(q -> q.getMatricula() == null ? "" : q.getMatricula()));
-        mAdapter.submitList(copy);
+        mQuadViewModel.setOrden(QuadRepository.Orden.MATRICULA);
         Toast.makeText(this, "Ordenado por matrícula", Toast.LENGTH_SHORT).show();
     }
 
     private void sortByTipo() {
-        if (mAllQuads == null) return;
-        List<Quad> copy = new ArrayList<>(mAllQuads);
-        Collections.sort(copy, new Comparator<Quad>() {
-            @Override
-            public int compare(Quad a, Quad b) {
-                int va = a.getTipo() == null ? 1 : (a.getTipo() == Quad.Tipo.UNIPLAZA ? 0 : 1);
-                int vb = b.getTipo() == null ? 1 : (b.getTipo() == Quad.Tipo.UNIPLAZA ? 0 : 1);
-                if (va != vb) return Integer.compare(va, vb);
-                // fallback alphabetical matricula
-                String ma = a.getMatricula() == null ? "" : a.getMatricula();
-                String mb = b.getMatricula() == null ? "" : b.getMatricula();
-                return ma.compareTo(mb);
-            }
-        });
-        mAdapter.submitList(copy);
+        mQuadViewModel.setOrden(QuadRepository.Orden.TIPO);
         Toast.makeText(this, "Ordenado por tipo", Toast.LENGTH_SHORT).show();
     }
 
     private void sortByPrecio() {
-        if (mAllQuads == null) return;
-        List<Quad> copy = new ArrayList<>(mAllQuads);
-        Collections.sort(copy, Comparator.comparingInt(Quad::getPrecio));
-        mAdapter.submitList(copy);
+        mQuadViewModel.setOrden(QuadRepository.Orden.PRECIO);
         Toast.makeText(this, "Ordenado por precio", Toast.LENGTH_SHORT).show();
     }
 }
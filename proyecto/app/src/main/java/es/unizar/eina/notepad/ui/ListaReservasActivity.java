@@ -2,6 +2,9 @@ package es.unizar.eina.notepad.ui;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.widget.EditText;
 import android.widget.Toast;
 
 import androidx.activity.result.ActivityResultLauncher;
@@ -12,9 +15,6 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
 import androidx.recyclerview.widget.RecyclerView;
@@ -22,14 +22,12 @@ import es.unizar.eina.notepad.R;
 import es.unizar.eina.notepad.database.Reserva;
 import es.unizar.eina.notepad.database.ReservaRepository;
 import es.unizar.eina.notepad.database.ReservaQuad;
-import es.unizar.eina.notepad.database.ReservaQuadRepository;
 import static androidx.activity.result.contract.ActivityResultContracts.StartActivityForResult;
 
 public class ListaReservasActivity extends AppCompatActivity {
 
     private ReservaViewModel mReservaViewModel;
-    private ReservaListAdapter mAdapter;
-    private List<Reserva> mAllReservas = new ArrayList<>();
+    private ReservaPagingAdapter mAdapter;
     FloatingActionButton mFab;
     ActivityResultLauncher<Intent> mStartCreateReserva = registerForActivityResult(
             new StartActivityForResult(),
@@ -57,39 +55,18 @@ public class ListaReservasActivity extends AppCompatActivity {
                             int telefono = extras.getInt(ReservaEdit.RESERVA_TELEFONO, 0);
                             String nomCliente = extras.getString(ReservaEdit.RESERVA_NOM_CLIENTE, extras.getString(ReservaEdit.RESERVA_CUSTOMER));
                             Reserva r = new Reserva(fechaRecogida, fechaDevolucion, precioTotal, telefono, nomCliente);
-                            // Insertar reserva y crear las entradas ReservaQuad si se devolvieron quads seleccionados
-                            // Usamos los métodos bloqueantes del repositorio para asegurarnos
-                            // de que las inserciones hayan finalizado antes de continuar.
-                            try {
-                                ReservaRepository repo = new ReservaRepository(getApplication());
-                                long insertedId = repo.insert(r);
-                                if (insertedId > 0) {
-                                    // Buscar claves SELECTED_QUAD_IDS / SELECTED_CASCOS
-                                    String selIds = extras.getString("SELECTED_QUAD_IDS", "");
-                                    String selCascos = extras.getString("SELECTED_CASCOS", "");
-                                    if (!selIds.isEmpty()) {
-                                        String[] ids = selIds.split(",");
-                                        String[] cas = selCascos != null ? selCascos.split(",") : new String[ids.length];
-                                        ReservaQuadRepository rqRepo = new ReservaQuadRepository(getApplication());
-                                        for (int i = 0; i < ids.length; i++) {
-                                            try {
-                                                int qid = Integer.parseInt(ids[i]);
-                                                int nc = 0;
-                                                if (i < cas.length) try { nc = Integer.parseInt(cas[i]); } catch (Exception ignored) {}
-                                                ReservaQuad rq = new ReservaQuad((int) insertedId, qid, nc);
-                                                rqRepo.insert(rq);
-                                            } catch (Exception ignored) {}
-                                        }
-                                    }
-                                }
-                            } catch (Exception e) {
-                                android.util.Log.e("ListaReservasActivity", "Error inserting reserva/reservaQuad", e);
-                            }
+                            // Insertar la reserva y sus entradas ReservaQuad en una única transacción,
+                            // sin bloquear el hilo principal; el aviso solo se muestra si la lista sigue viva
+                            List<ReservaQuad> lineas = ReservaEdit.parseSelectedQuads(extras);
+                            mReservaViewModel.getTareas().seguir(this, null,
+                                    () -> mReservaViewModel.insertWithQuads(r, lineas),
+                                    resultado -> AvisosGuardado.reserva(this, resultado));
                         } else {
                             Reserva r = new Reserva(extras.getString(ReservaEdit.RESERVA_CUSTOMER),
                                     extras.getString(ReservaEdit.RESERVA_START),
                                     extras.getString(ReservaEdit.RESERVA_END));
-                            mReservaViewModel.insert(r);
+                            mReservaViewModel.getTareas().seguir(this, null, () -> mReservaViewModel.insert(r),
+                                    resultado -> AvisosGuardado.reserva(this, resultado));
                         }
                     }
                 }
@@ -103,20 +80,16 @@ public class ListaReservasActivity extends AppCompatActivity {
             setContentView(R.layout.activity_listareservas);
 
             RecyclerView recyclerView = findViewById(R.id.recyclerview_lista);
-            // Pasamos una instancia de QuadRepository para que el adaptador pueda resolver el precio por quadId
-            mAdapter = new ReservaListAdapter(new ReservaListAdapter.ReservaDiff(), new es.unizar.eina.notepad.database.QuadRepository(getApplication()));
+            // Adaptador paginado: solo se materializan las reservas visibles y las precargadas
+            mAdapter = new ReservaPagingAdapter(new ReservaListAdapter.ReservaDiff());
             recyclerView.setAdapter(mAdapter);
             recyclerView.setLayoutManager(new LinearLayoutManager(this));
 
             android.util.Log.d("ListaReservasActivity", "onCreate - RecyclerView initialized: " + (recyclerView!=null));
 
             mReservaViewModel = new ViewModelProvider(this).get(ReservaViewModel.class);
-            mReservaViewModel.getAllReservas().observe(this, reservas -> {
-                if (reservas != null) {
-                    mAllReservas = new ArrayList<>(reservas);
-                    mAdapter.submitList(new ArrayList<>(mAllReservas));
-                }
-            });
+            mReservaViewModel.getReservasPaginadas().observe(this,
+                    pagingData -> mAdapter.submitData(getLifecycle(), pagingData));
 
             MaterialButton btnCliente = findViewById(R.id.button_filter_cliente);
             MaterialButton btnRecogida = findViewById(R.id.button_filter_fecha_recogida);
@@ -125,6 +98,15 @@ public class ListaReservasActivity extends AppCompatActivity {
             btnCliente.setOnClickListener(v -> sortByCliente());
             btnRecogida.setOnClickListener(v -> sortByRecogida());
             btnDevolucion.setOnClickListener(v -> sortByDevolucion());
+
+            // Búsqueda por texto completo: cada cambio sustituye la consulta observada
+            EditText searchText = findViewById(R.id.search_text);
+            searchText.addTextChangedListener(new TextWatcher() {
+                @Override public void beforeTextChanged(CharSequence s, int st, int c, int a) {}
+                @Override public void onTextChanged(CharSequence s, int st, int b, int c) {}
+                @Override public void afterTextChanged(Editable s) { mReservaViewModel.setBusqueda(s.toString()); }
+            });
+
             // Floating action button: abrir pantalla de añadir reserva
             mFab = findViewById(R.id.fab);
             mFab.setOnClickListener(v -> createReserva());
@@ -139,26 +121,17 @@ public class ListaReservasActivity extends AppCompatActivity {
     }
 
     private void sortByCliente() {
-        if (mAllReservas == null) return;
-        List<Reserva> copy = new ArrayList<>(mAllReservas);
-        Collections.sort(copy, Comparator.comparing(r -> r.getCustomer() == null ? "" : r.getCustomer()));
-        mAdapter.submitList(copy);
+        mReservaViewModel.setOrden(ReservaRepository.Orden.CLIENTE);
         Toast.makeText(this, "Ordenado por cliente", Toast.LENGTH_SHORT).show();
     }
 
     private void sortByRecogida() {
-        if (mAllReservas == null) return;
-        List<Reserva> copy = new ArrayList<>(mAllReservas);
-        Collections.sort(copy, Comparator.comparing(r -> r.getStartDate() == null ? "" : r.getStartDate()));
-        mAdapter.submitList(copy);
+        mReservaViewModel.setOrden(ReservaRepository.Orden.RECOGIDA);
         Toast.makeText(this, "Ordenado por fecha recogida", Toast.LENGTH_SHORT).show();
     }
 
     private void sortByDevolucion() {
-        if (mAllReservas == null) return;
-        List<Reserva> copy = new ArrayList<>(mAllReservas);
-        Collections.sort(copy, Comparator.comparing(r -> r.getEndDate() == null ? "" : r.getEndDate()));
-        mAdapter.submitList(copy);
+        mReservaViewModel.setOrden(ReservaRepository.Orden.DEVOLUCION);
         Toast.makeText(this, "Ordenado por fecha devolución", Toast.LENGTH_SHORT).show();
     }
 }
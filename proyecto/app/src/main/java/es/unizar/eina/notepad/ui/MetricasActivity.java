@@ -0,0 +1,106 @@
+package es.unizar.eina.notepad.ui;
+
+import android.os.Bundle;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.google.android.material.button.MaterialButton;
+
+import java.util.List;
+import java.util.Locale;
+
+import es.unizar.eina.notepad.BuildConfig;
+import es.unizar.eina.notepad.R;
+import es.unizar.eina.notepad.database.MetricasBD;
+import es.unizar.eina.notepad.database.TrazaConsultas;
+
+/**
+ * Pantalla de depuración con las métricas de las operaciones de base de datos.
+ * <p>
+ * Muestra, por operación de repositorio, el número de llamadas, aciertos de
+ * caché, fallos, rechazos (conflictos de fechas y límites) y timeouts, y los
+ * percentiles de latencia total, de espera en la cola del executor y de
+ * ejecución. Se abre con una pulsación larga en el título de la pantalla de
+ * inicio, solo en las compilaciones de depuración.
+ * </p>
+ * <p>
+ * También activa o desactiva el registro de consultas lentas
+ * ({@link TrazaConsultas}), que se aplica en el siguiente arranque.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see MetricasBD
+ * @see TrazaConsultas
+ */
+public class MetricasActivity extends AppCompatActivity {
+
+    private TextView mTexto;
+    private MaterialButton mBtnTraza;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        if (!BuildConfig.DEBUG) {
+            finish();
+            return;
+        }
+        setContentView(R.layout.activity_metricas);
+
+        mTexto = findViewById(R.id.text_metricas);
+        MaterialButton btnActualizar = findViewById(R.id.button_actualizar);
+        MaterialButton btnReiniciar = findViewById(R.id.button_reiniciar);
+        mBtnTraza = findViewById(R.id.button_traza);
+
+        btnActualizar.setOnClickListener(v -> mostrar());
+        btnReiniciar.setOnClickListener(v -> {
+            MetricasBD.reiniciar();
+            mostrar();
+        });
+        mBtnTraza.setOnClickListener(v -> {
+            boolean activa = !TrazaConsultas.estaGuardada(this);
+            TrazaConsultas.guardar(this, activa, TrazaConsultas.getUmbralMs());
+            mostrarTraza();
+            Toast.makeText(this, "Se aplica al reiniciar la aplicación", Toast.LENGTH_LONG).show();
+        });
+        mostrarTraza();
+    }
+
+    private void mostrarTraza() {
+        mBtnTraza.setText(String.format(Locale.ROOT, "Consultas lentas (> %d ms): %s",
+                TrazaConsultas.getUmbralMs(), TrazaConsultas.estaGuardada(this) ? "activado" : "desactivado"));
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        mostrar();
+    }
+
+    private void mostrar() {
+        List<MetricasBD.Resumen> resumenes = MetricasBD.instantanea();
+        if (resumenes.isEmpty()) {
+            mTexto.setText("Sin operaciones registradas");
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (MetricasBD.Resumen r : resumenes) {
+            sb.append(r.getOperacion()).append('\n');
+            sb.append(String.format(Locale.ROOT, "  llamadas %d  caché %d  fallos %d  rechazos %d  timeouts %d%n",
+                    r.getLlamadas(), r.getAciertos(), r.getFallos(), r.getRechazos(), r.getTimeouts()));
+            linea(sb, "total", r.getTotal());
+            linea(sb, "cola", r.getEspera());
+            linea(sb, "ejecución", r.getEjecucion());
+            sb.append('\n');
+        }
+        mTexto.setText(sb.toString());
+    }
+
+    // Latencias en milisegundos
+    private static void linea(StringBuilder sb, String nombre, MetricasBD.Distribucion d) {
+        sb.append(String.format(Locale.ROOT, "  %-9s p50 %8.2f  p95 %8.2f  p99 %8.2f  max %8.2f%n",
+                nombre, d.getP50(), d.getP95(), d.getP99(), d.getMax()));
+    }
+}
@@ -17,6 +17,7 @@ import com.google.android.material.button.MaterialButton;
 
 import es.unizar.eina.notepad.R;
 import es.unizar.eina.notepad.database.Quad;
+import es.unizar.eina.notepad.domain.TipoQuad;
 import es.unizar.eina.notepad.ui.QuadViewModel;
 
 /**
@@ -109,8 +110,8 @@ public class QuadEdit extends AppCompatActivity {
             } catch (NumberFormatException e) { precio = 0; }
 
             int checked = mRadioTipo.getCheckedRadioButtonId();
-            Quad.Tipo tipo = Quad.Tipo.UNIPLAZA;
-            if (checked == R.id.radio_biplaza) tipo = Quad.Tipo.BIPLAZA;
+            TipoQuad tipo = TipoQuad.UNIPLAZA;
+            if (checked == R.id.radio_biplaza) tipo = TipoQuad.BIPLAZA;
 
             Quad quad = new Quad(tipo, precio, matricula, descripcion);
             // Nota: no insertar aquí. Devolver los datos al padre para que inserte/actualice.
@@ -160,8 +161,8 @@ public class QuadEdit extends AppCompatActivity {
             String tipoName = extras.getString(QuadEdit.QUAD_TIPO);
             if (tipoName!=null) {
                 try {
-                    Quad.Tipo t = Quad.Tipo.valueOf(tipoName);
-                    if (t == Quad.Tipo.BIPLAZA) mRadioTipo.check(R.id.radio_biplaza);
+                    TipoQuad t = TipoQuad.valueOf(tipoName);
+                    if (t == TipoQuad.BIPLAZA) mRadioTipo.check(R.id.radio_biplaza);
                     else mRadioTipo.check(R.id.radio_uniplaza);
                 } catch (Exception ignored) { mRadioTipo.check(R.id.radio_uniplaza); }
             }
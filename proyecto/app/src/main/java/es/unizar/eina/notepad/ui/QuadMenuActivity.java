@@ -12,6 +12,7 @@ import com.google.android.material.button.MaterialButton;
 
 import es.unizar.eina.notepad.R;
 import es.unizar.eina.notepad.database.Quad;
+import es.unizar.eina.notepad.domain.TipoQuad;
 
 public class QuadMenuActivity extends AppCompatActivity {
 
@@ -32,15 +33,15 @@ public class QuadMenuActivity extends AppCompatActivity {
                 if (extras.containsKey(QuadEdit.QUAD_MATRICULA) || extras.containsKey(QuadEdit.QUAD_DESCRIPCION)) {
                     String matricula = extras.getString(QuadEdit.QUAD_MATRICULA, "");
                     String descripcion = extras.getString(QuadEdit.QUAD_DESCRIPCION, "");
-                    String tipoName = extras.getString(QuadEdit.QUAD_TIPO, Quad.Tipo.UNIPLAZA.name());
+                    String tipoName = extras.getString(QuadEdit.QUAD_TIPO, TipoQuad.UNIPLAZA.name());
                     int precio = extras.getInt(QuadEdit.QUAD_PRECIO, 0);
-                    Quad.Tipo tipo;
-                    try { tipo = Quad.Tipo.valueOf(tipoName); } catch (Exception e) { tipo = Quad.Tipo.UNIPLAZA; }
+                    TipoQuad tipo;
+                    try { tipo = TipoQuad.valueOf(tipoName); } catch (Exception e) { tipo = TipoQuad.UNIPLAZA; }
                     Quad quad = new Quad(tipo, precio, matricula, descripcion);
-                    mQuadViewModel.insert(quad);
+                    insertar(quad);
                 } else {
                     Quad quad = new Quad(extras.getString(QuadEdit.QUAD_TITLE), extras.getString(QuadEdit.QUAD_BODY));
-                    mQuadViewModel.insert(quad);
+                    insertar(quad);
                 }
             }
         });
@@ -64,4 +65,10 @@ public class QuadMenuActivity extends AppCompatActivity {
             }
         });
     }
+
+    // Inserta sin bloquear y avisa si se ha alcanzado el máximo de quads
+    private void insertar(Quad quad) {
+        mQuadViewModel.getTareas().seguir(this, null, () -> mQuadViewModel.insert(quad),
+                resultado -> AvisosGuardado.quad(this, resultado));
+    }
 }
@@ -0,0 +1,105 @@
+package es.unizar.eina.notepad.ui;
+
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.CheckBox;
+import android.widget.EditText;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.Locale;
+
+import es.unizar.eina.notepad.R;
+import es.unizar.eina.notepad.database.Quad;
+
+/**
+ * Adaptador del selector de quads de {@link ReservaEdit}.
+ * <p>
+ * Cada fila muestra una casilla con los datos del quad y un campo para el
+ * número de cascos. El estado vive en {@link SeleccionQuads}, indexado por
+ * identificador de quad; las filas solo lo muestran y lo actualizan. Las
+ * nuevas listas de quads se aplican con DiffUtil, así que solo se inflan y
+ * reenlazan las filas visibles y las que han cambiado.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see SeleccionQuads
+ * @see QuadListAdapter.QuadDiff
+ */
+class QuadSeleccionAdapter extends ListAdapter<Quad, QuadSeleccionAdapter.SeleccionViewHolder> {
+
+    private final SeleccionQuads mSeleccion;
+    private final Runnable mOnCambio;
+
+    /**
+     * Constructor del adaptador.
+     * @param seleccion Estado de la selección, compartido con la activity.
+     * @param onCambio Acción a ejecutar cuando el usuario cambia la selección o los cascos.
+     */
+    QuadSeleccionAdapter(SeleccionQuads seleccion, Runnable onCambio) {
+        super(new QuadListAdapter.QuadDiff());
+        mSeleccion = seleccion;
+        mOnCambio = onCambio;
+    }
+
+    @NonNull
+    @Override
+    public SeleccionViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.recyclerview_item_seleccion, parent, false);
+        return new SeleccionViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull SeleccionViewHolder holder, int position) {
+        holder.bind(getItem(position));
+    }
+
+    /**
+     * Fila del selector. Los listeners se crean una vez por vista y escriben
+     * en el modelo usando el quad enlazado en cada momento.
+     */
+    class SeleccionViewHolder extends RecyclerView.ViewHolder {
+        private final CheckBox mCheckBox;
+        private final EditText mCascosField;
+        private int mQuadId;
+        // Evita que los cambios hechos al enlazar se interpreten como entradas del usuario
+        private boolean mEnlazando;
+
+        SeleccionViewHolder(View itemView) {
+            super(itemView);
+            mCheckBox = itemView.findViewById(R.id.check_quad);
+            mCascosField = itemView.findViewById(R.id.edit_cascos);
+            mCheckBox.setOnCheckedChangeListener((buttonView, isChecked) -> {
+                if (mEnlazando) return;
+                mSeleccion.setMarcado(mQuadId, isChecked);
+                mOnCambio.run();
+            });
+            mCascosField.addTextChangedListener(new TextWatcher() {
+                @Override public void beforeTextChanged(CharSequence s, int st, int c, int a) {}
+                @Override public void onTextChanged(CharSequence s, int st, int b, int c) {}
+                @Override public void afterTextChanged(Editable s) {
+                    if (mEnlazando) return;
+                    mSeleccion.setCascos(mQuadId, s.toString());
+                    if (mSeleccion.isMarcado(mQuadId)) mOnCambio.run();
+                }
+            });
+        }
+
+        void bind(Quad quad) {
+            mEnlazando = true;
+            mQuadId = quad.getId();
+            mCheckBox.setText(String.format(Locale.getDefault(), "%s (%s) - %d €/día",
+                    quad.getMatricula(), quad.getTipo(), quad.getPrecio()));
+            mCheckBox.setChecked(mSeleccion.isMarcado(mQuadId));
+            mCascosField.setText(mSeleccion.getCascos(mQuadId));
+            mEnlazando = false;
+        }
+    }
+}
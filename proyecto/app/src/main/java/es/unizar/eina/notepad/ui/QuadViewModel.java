@@ -1,14 +1,25 @@
 package es.unizar.eina.notepad.ui;
 
 import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
 
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+import es.unizar.eina.notepad.BookuadApplication;
+import es.unizar.eina.notepad.database.BusquedaFts;
 import es.unizar.eina.notepad.database.Quad;
 import es.unizar.eina.notepad.database.QuadRepository;
+import es.unizar.eina.notepad.database.ReservaQuadRepository;
 
 /**
  * ViewModel para gestionar los datos de quads en la capa de presentación.
@@ -21,6 +32,10 @@ import es.unizar.eina.notepad.database.QuadRepository;
  * Mantiene una referencia al repositorio y expone LiveData que la UI
  * puede observar para actualizaciones automáticas.
  * </p>
+ * <p>
+ * Las escrituras usan la API asíncrona del repositorio, por lo que nunca
+ * bloquean el hilo principal; los errores se registran en el log.
+ * </p>
  *
  * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
  * @version 1.0
@@ -30,10 +45,32 @@ import es.unizar.eina.notepad.database.QuadRepository;
  */
 public class QuadViewModel extends AndroidViewModel {
 
+    /** Pausa en milisegundos tras la última tecla antes de lanzar la búsqueda */
+    private static final long ESPERA_BUSQUEDA = 300;
+
     private QuadRepository mRepository;
+    private ReservaQuadRepository mReservaQuadRepository;
+    private final GestorTareas mTareas = new GestorTareas();
 
     private final LiveData<List<Quad>> mAllQuads;
 
+    private final MutableLiveData<QuadRepository.Orden> mOrden =
+            new MutableLiveData<>(QuadRepository.Orden.MATRICULA);
+    // Una consulta por orden: al cambiar de orden se reutiliza la ya creada
+    private final Map<QuadRepository.Orden, LiveData<List<Quad>>> mPorOrden =
+            new EnumMap<>(QuadRepository.Orden.class);
+    private final LiveData<List<Quad>> mQuadsOrdenados;
+
+    // Texto de búsqueda; vacío muestra la lista completa en el orden elegido
+    private final MutableLiveData<String> mBusqueda = new MutableLiveData<>("");
+    private final LiveData<List<Quad>> mQuadsVisibles;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private String mTextoPendiente = "";
+    private final Runnable mAplicarBusqueda = () -> aplicarBusqueda(mTextoPendiente);
+    // Quad de la pantalla de detalle
+    private LiveData<Quad> mQuadObservado;
+    private int mQuadObservadoId;
+
     /**
      * Constructor del ViewModel.
      * <p>
@@ -44,8 +81,22 @@ public class QuadViewModel extends AndroidViewModel {
      */
     public QuadViewModel(Application application) {
         super(application);
-        mRepository = new QuadRepository(application);
+        BookuadApplication app = BookuadApplication.de(application);
+        mRepository = app.getQuadRepository();
+        mReservaQuadRepository = app.getReservaQuadRepository();
         mAllQuads = mRepository.getAllQuads();
+        mQuadsOrdenados = Transformations.switchMap(mOrden, orden -> {
+            LiveData<List<Quad>> quads = mPorOrden.get(orden);
+            if (quads == null) {
+                quads = mRepository.getQuads(orden);
+                mPorOrden.put(orden, quads);
+            }
+            return quads;
+        });
+        // Con texto, los resultados siguen el orden elegido: cambiar de orden repite la búsqueda
+        mQuadsVisibles = Transformations.switchMap(mBusqueda, texto ->
+                BusquedaFts.aConsulta(texto).isEmpty() ? mQuadsOrdenados
+                        : Transformations.switchMap(mOrden, orden -> mRepository.buscarQuads(texto, orden)));
     }
 
     /**
@@ -54,21 +105,123 @@ public class QuadViewModel extends AndroidViewModel {
      */
     LiveData<List<Quad>> getAllQuads() { return mAllQuads; }
 
+    /**
+     * Devuelve el LiveData con los quads en el orden seleccionado.
+     * @return LiveData observable con la lista de quads ordenada en la BD.
+     */
+    LiveData<List<Quad>> getQuadsOrdenados() { return mQuadsOrdenados; }
+
+    /**
+     * Cambia la consulta observada por {@link #getQuadsOrdenados()} y el
+     * orden de los resultados de la búsqueda en curso.
+     * @param orden Criterio de ordenación.
+     */
+    void setOrden(QuadRepository.Orden orden) { mOrden.setValue(orden); }
+
+    /**
+     * Devuelve el LiveData de la lista: los quads ordenados o, si hay texto
+     * de búsqueda, los que coinciden con él, en el mismo orden.
+     * @return LiveData observable con los quads a mostrar.
+     */
+    LiveData<List<Quad>> getQuadsVisibles() { return mQuadsVisibles; }
+
+    /**
+     * Cambia el texto de búsqueda por matrícula o descripción. La búsqueda se
+     * lanza cuando el usuario deja de escribir; borrar el texto vuelve a la lista al momento.
+     * @param texto Texto introducido por el usuario.
+     */
+    void setBusqueda(String texto) {
+        mHandler.removeCallbacks(mAplicarBusqueda);
+        mTextoPendiente = texto;
+        if (BusquedaFts.aConsulta(texto).isEmpty()) aplicarBusqueda(texto);
+        else mHandler.postDelayed(mAplicarBusqueda, ESPERA_BUSQUEDA);
+    }
+
+    private void aplicarBusqueda(String texto) {
+        if (!texto.equals(mBusqueda.getValue())) mBusqueda.setValue(texto);
+    }
+
     /**
      * Inserta un nuevo quad.
      * @param quad Quad a insertar.
+     * @return Futuro con el id insertado; falla con LimiteExcedidoException si ya hay 100 quads.
      */
-    public void insert(Quad quad) { mRepository.insert(quad); }
+    public CompletableFuture<Long> insert(Quad quad) {
+        CompletableFuture<Long> future = mRepository.insertAsync(quad);
+        registrarError("insert", future);
+        return future;
+    }
 
     /**
      * Actualiza un quad existente.
      * @param quad Quad con los datos actualizados.
      */
-    public void update(Quad quad) { mRepository.update(quad); }
+    public void update(Quad quad) { registrarError("update", mRepository.updateAsync(quad)); }
 
     /**
      * Elimina un quad.
      * @param quad Quad a eliminar.
      */
-    public void delete(Quad quad) { mRepository.delete(quad); }
+    public void delete(Quad quad) { registrarError("delete", mRepository.deleteAsync(quad)); }
+
+    /**
+     * Obtiene un quad por id; si está en la caché del repositorio el futuro ya está completo.
+     * @param id Identificador del quad.
+     * @return Futuro con el quad, o null si no existe.
+     */
+    public CompletableFuture<Quad> getQuadById(int id) {
+        CompletableFuture<Quad> future = mRepository.getQuadByIdAsync(id);
+        registrarError("getQuadById", future);
+        return future;
+    }
+
+    /**
+     * Cuenta las reservas que incluyen un quad, sin bloquear.
+     * @param quadId Identificador del quad.
+     * @return Futuro con el número de reservas del quad.
+     */
+    public CompletableFuture<Integer> contarReservas(int quadId) {
+        CompletableFuture<Integer> future = mReservaQuadRepository.getReservasByQuadIdAsync(quadId)
+                .thenApply(List::size);
+        registrarError("contarReservas", future);
+        return future;
+    }
+
+    /**
+     * Observa un quad; emite de nuevo en cuanto se confirma una escritura en
+     * la tabla quad. El LiveData se conserva en el ViewModel, así que tras una
+     * rotación se vuelve a observar el mismo sin repetir la consulta.
+     * @param id Identificador del quad.
+     * @return LiveData con el quad, o null si no existe.
+     */
+    LiveData<Quad> observeQuadById(int id) {
+        if (mQuadObservado == null || mQuadObservadoId != id) {
+            mQuadObservadoId = id;
+            mQuadObservado = mRepository.observeQuadById(id);
+        }
+        return mQuadObservado;
+    }
+
+    /**
+     * Planificador de las tareas de las pantallas de este ViewModel; sus
+     * resultados solo se entregan a activities vivas.
+     */
+    GestorTareas getTareas() { return mTareas; }
+
+    @Override
+    protected void onCleared() {
+        mHandler.removeCallbacks(mAplicarBusqueda);
+        mTareas.cancelarTodas();
+    }
+
+    /**
+     * Registra en el log el fallo de una escritura asíncrona.
+     * @param operacion Nombre de la operación.
+     * @param future Futuro de la operación.
+     */
+    private static void registrarError(String operacion, CompletableFuture<?> future) {
+        future.whenComplete((resultado, ex) -> {
+            if (ex != null) Log.e("QuadViewModel", operacion + " falló", ex);
+        });
+    }
 }
@@ -11,20 +11,13 @@ import android.widget.Button;
 import android.widget.TextView;
 import android.widget.EditText;
 import android.widget.Toast;
-import android.text.Editable;
-import android.text.TextWatcher;
 
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
-import java.util.Date;
 import java.util.Locale;
-import java.util.concurrent.TimeUnit;
 
-import android.widget.CheckBox;
-import android.widget.LinearLayout;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -32,9 +25,13 @@ import java.util.List;
 import java.util.Map;
 
 import es.unizar.eina.notepad.database.Quad;
-import es.unizar.eina.notepad.database.QuadRepository;
+import es.unizar.eina.notepad.database.LineaReserva;
+import es.unizar.eina.notepad.database.ReservaCompleta;
 import es.unizar.eina.notepad.database.ReservaQuad;
-import es.unizar.eina.notepad.database.ReservaQuadRepository;
+import es.unizar.eina.notepad.domain.CalculadoraPrecios;
+import es.unizar.eina.notepad.domain.FormatoFechas;
+import es.unizar.eina.notepad.domain.TablaPrecios;
+import es.unizar.eina.notepad.domain.ValidadorConflictos.Conflicto;
 
 import es.unizar.eina.notepad.R;
 
@@ -44,7 +41,7 @@ import es.unizar.eina.notepad.R;
  * Permite al usuario:
  * - Seleccionar fechas de recogida y devolución mediante DatePickers
  * - Ingresar nombre del cliente
- * - Seleccionar uno o más quads disponibles mediante checkboxes
+ * - Seleccionar uno o más quads disponibles en una lista reciclable (RecyclerView)
  * - Especificar número de cascos para cada quad
  * - Ver el precio total calculado automáticamente
  * </p>
@@ -57,7 +54,7 @@ import es.unizar.eina.notepad.R;
  * </p>
  * <p>
  * El precio total se calcula como la suma de: (precio_quad × días) para
- * cada quad seleccionado.
+ * cada quad seleccionado, mediante {@link CalculadoraPrecios}.
  * </p>
  *
  * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
@@ -86,20 +83,25 @@ public class ReservaEdit extends AppCompatActivity {
     private EditText mStartText;
     private EditText mEndText;
     private TextView mPrecioDisplay;
-    private LinearLayout mQuadsContainer;
+    private QuadSeleccionAdapter mQuadsAdapter;
 
     private long mStartMillis = -1L;
     private long mEndMillis = -1L;
 
     private Integer mRowId;
     private List<Quad> mAllQuads = new ArrayList<>();
-    private Map<Integer, CheckBox> mQuadCheckboxes = new HashMap<>();
-    private Map<Integer, EditText> mCascosFields = new HashMap<>();
+    // Selección y cascos por quadId; sobrevive al reciclado de filas y a nuevas emisiones de la lista
+    private final SeleccionQuads mSeleccionQuads = new SeleccionQuads();
     // Selections passed by intent or loaded from DB to pre-check boxes (quadId -> numCascos)
     private Map<Integer, Integer> mInitialSelections = new HashMap<>();
+    // Precios por día de los quads y selección en arrays primitivos para recalcular sin reservar memoria
+    private final TablaPrecios mPrecios = new TablaPrecios();
+    private int[] mQuadIdsOrden = new int[0];
+    private int[] mSeleccion = new int[0];
 
     Button mSaveButton;
     private QuadViewModel mQuadViewModel;
+    private ReservaViewModel mReservaViewModel;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -110,24 +112,27 @@ public class ReservaEdit extends AppCompatActivity {
         mStartText = findViewById(R.id.start_date);
         mEndText = findViewById(R.id.end_date);
         mPrecioDisplay = findViewById(R.id.price_total);
-        mQuadsContainer = findViewById(R.id.quads_container);
+        RecyclerView quadsRecycler = findViewById(R.id.quads_recycler);
+        mQuadsAdapter = new QuadSeleccionAdapter(mSeleccionQuads, this::updatePriceDisplay);
+        quadsRecycler.setAdapter(mQuadsAdapter);
+        quadsRecycler.setLayoutManager(new LinearLayoutManager(this));
 
         // Abrir DatePicker al pulsar los campos (son non-editable en layout)
         mStartText.setOnClickListener(v -> showDatePicker(true));
         mEndText.setOnClickListener(v -> showDatePicker(false));
 
+        mReservaViewModel = new ViewModelProvider(this).get(ReservaViewModel.class);
+
         // Cargar datos de fechas y campos de texto desde extras (si es edición)
-        // Se hace antes de crear los checkboxes para que mRowId esté disponible
+        // Se hace antes de recibir los quads para que mRowId esté disponible
         populateTextFields();
 
-        // Cargar lista de quads disponibles y crear checkboxes
+        // Cargar lista de quads disponibles; DiffUtil solo actualiza las filas que cambian
         mQuadViewModel = new ViewModelProvider(this).get(QuadViewModel.class);
         mQuadViewModel.getAllQuads().observe(this, quads -> {
             if (quads != null) {
                 mAllQuads = quads;
-                populateQuadCheckboxes();
-                // Intentar poblar las checkboxes basadas en la reserva (si estamos en modo edición)
-                populateCheckboxes();
+                updateQuads();
             }
         });
 
@@ -151,21 +156,20 @@ public class ReservaEdit extends AppCompatActivity {
                 return;
             }
 
-            // Recoger quads seleccionados (checkboxes marcadas) y validar cascos
+            // Recoger quads seleccionados (en el orden de la lista) y validar cascos
             List<Integer> selectedQuadIds = new ArrayList<>();
             Map<Integer, Integer> quadCascos = new HashMap<>();
-            for (Map.Entry<Integer, CheckBox> entry : mQuadCheckboxes.entrySet()) {
-                if (entry.getValue().isChecked()) {
-                    int quadId = entry.getKey();
+            for (int quadId : mQuadIdsOrden) {
+                if (mSeleccionQuads.isMarcado(quadId)) {
                     selectedQuadIds.add(quadId);
-                    EditText cascosField = mCascosFields.get(quadId);
-                    if (cascosField == null || TextUtils.isEmpty(cascosField.getText())) {
+                    String cascosText = mSeleccionQuads.getCascos(quadId);
+                    if (TextUtils.isEmpty(cascosText)) {
                         Toast.makeText(getApplicationContext(), "Indica el número de cascos para cada quad seleccionado", Toast.LENGTH_LONG).show();
                         return;
                     }
                     int cascos;
                     try {
-                        cascos = Integer.parseInt(cascosField.getText().toString());
+                        cascos = Integer.parseInt(cascosText);
                         if (cascos < 0) throw new NumberFormatException();
                     } catch (Exception e) {
                         Toast.makeText(getApplicationContext(), "Número de cascos inválido para el quad " + quadId, Toast.LENGTH_LONG).show();
@@ -181,7 +185,7 @@ public class ReservaEdit extends AppCompatActivity {
             }
 
             // Calcular precio total: suma de (precio por día * días) de todos los quads
-            double precioTotal = calculateTotalPrice(selectedQuadIds);
+            double precioTotal = calculateTotalPrice();
 
             // Compatibilidad: claves antiguas (usar formatted strings)
             String startStr = formatDateForDisplay(mStartMillis);
@@ -215,28 +219,71 @@ public class ReservaEdit extends AppCompatActivity {
             if (mRowId != null) {
                 replyIntent.putExtra(ReservaEdit.RESERVA_ID, mRowId.intValue());
             }
-            setResult(RESULT_OK, replyIntent);
-            finish();
+
+            // Comprobar antes de volver que ningún quad está ya reservado en esas fechas;
+            // la escritura lo vuelve a comprobar, esto solo sirve para avisar a tiempo
+            int excluirId = mRowId != null ? mRowId : -1;
+            mSaveButton.setEnabled(false);
+            mReservaViewModel.getTareas().seguir(this, "conflictos",
+                    () -> mReservaViewModel.buscarConflictos(excluirId, mStartMillis, mEndMillis, selectedQuadIds),
+                    resultado -> {
+                        mSaveButton.setEnabled(true);
+                        if (isFinishing()) return;
+                        List<Conflicto> conflictos = resultado.getValor();
+                        if (conflictos != null && !conflictos.isEmpty()) {
+                            mostrarConflictos(conflictos);
+                            return;
+                        }
+                        setResult(RESULT_OK, replyIntent);
+                        finish();
+                    });
         });
 
     }
 
-    // Aplica mInitialSelections a los checkboxes existentes
+    /**
+     * Construye las asociaciones ReservaQuad a partir de las claves
+     * SELECTED_QUAD_IDS / SELECTED_CASCOS devueltas por esta activity.
+     * El reservaId queda a 0 y lo rellena el repositorio al insertar.
+     *
+     * @param extras Extras del resultado de ReservaEdit.
+     * @return Lista de asociaciones (vacía si no se seleccionaron quads).
+     */
+    static List<ReservaQuad> parseSelectedQuads(Bundle extras) {
+        List<ReservaQuad> lineas = new ArrayList<>();
+        String selIds = extras.getString("SELECTED_QUAD_IDS", "");
+        String selCascos = extras.getString("SELECTED_CASCOS", "");
+        if (selIds == null || selIds.isEmpty()) return lineas;
+        String[] ids = selIds.split(",");
+        String[] cas = selCascos != null ? selCascos.split(",") : new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            try {
+                int qid = Integer.parseInt(ids[i].trim());
+                int nc = 0;
+                if (i < cas.length) try { nc = Integer.parseInt(cas[i].trim()); } catch (Exception ignored) {}
+                lineas.add(new ReservaQuad(0, qid, nc));
+            } catch (Exception ignored) {}
+        }
+        return lineas;
+    }
+
+    // Lista las reservas que ya ocupan alguno de los quads seleccionados en esas fechas
+    private void mostrarConflictos(List<Conflicto> conflictos) {
+        Map<Integer, String> matriculas = new HashMap<>();
+        for (Quad q : mAllQuads) matriculas.put(q.getId(), q.getMatricula());
+        AvisosGuardado.conflictos(this, conflictos, matriculas);
+    }
+
+    // Vuelca mInitialSelections en el modelo de selección y refresca las filas visibles
     private void applyInitialSelections() {
-        Log.d("ReservaEdit", "applyInitialSelections llamado. mInitialSelections.size = " + mInitialSelections.size() + ", mQuadCheckboxes.size = " + mQuadCheckboxes.size());
+        Log.d("ReservaEdit", "applyInitialSelections llamado. mInitialSelections.size = " + mInitialSelections.size());
         for (Map.Entry<Integer, Integer> e : mInitialSelections.entrySet()) {
-            CheckBox cb = mQuadCheckboxes.get(e.getKey());
-            EditText et = mCascosFields.get(e.getKey());
-            if (cb != null) {
-                cb.setChecked(true);
-                Log.d("ReservaEdit", "Marcando checkbox para quadId " + e.getKey());
-            } else {
-                Log.w("ReservaEdit", "No se encontró checkbox para quadId " + e.getKey());
-            }
-            if (et != null && e.getValue() != null) {
-                et.setText(String.valueOf(e.getValue()));
-            }
+            mSeleccionQuads.setMarcado(e.getKey(), true);
+            if (e.getValue() != null) mSeleccionQuads.setCascos(e.getKey(), String.valueOf(e.getValue()));
         }
+        // Ya aplicadas: no deben volver a pisar lo que edite el usuario
+        mInitialSelections.clear();
+        mQuadsAdapter.notifyItemRangeChanged(0, mQuadsAdapter.getItemCount());
         updatePriceDisplay();
     }
 
@@ -266,78 +313,27 @@ public class ReservaEdit extends AppCompatActivity {
     }
 
     private long parseDateString(String s) {
-        if (s == null) return -1L;
-        s = s.trim();
-        if (s.isEmpty()) return -1L;
-        // Try numeric millis
-        try {
-            return Long.parseLong(s);
-        } catch (NumberFormatException ignored) {}
-        // Try known patterns
-        String[] patterns = new String[] {"yyyy-MM-dd", "dd/MM/yyyy"};
-        for (String p : patterns) {
-            try {
-                SimpleDateFormat sdf = new SimpleDateFormat(p, Locale.getDefault());
-                Date dt = sdf.parse(s);
-                if (dt != null) return dt.getTime();
-            } catch (ParseException ignored) {}
-        }
-        // Try locale short
-        try {
-            DateFormat df = DateFormat.getDateInstance(DateFormat.SHORT, Locale.getDefault());
-            Date dt = df.parse(s);
-            if (dt != null) return dt.getTime();
-        } catch (ParseException ignored) {}
-        return -1L;
+        return FormatoFechas.parsear(s, -1L);
     }
 
     private String formatDateForDisplay(long millis) {
         if (millis <= 0) return "";
-        DateFormat df = DateFormat.getDateInstance(DateFormat.SHORT, Locale.getDefault());
-        return df.format(new Date(millis));
+        return FormatoFechas.corto(millis);
     }
 
-    private void populateQuadCheckboxes() {
-        Log.d("ReservaEdit", "populateQuadCheckboxes llamado. mAllQuads.size = " + mAllQuads.size());
-        mQuadsContainer.removeAllViews();
-        mQuadCheckboxes.clear();
-        mCascosFields.clear();
-
-        for (Quad quad : mAllQuads) {
-            LinearLayout row = new LinearLayout(this);
-            row.setOrientation(LinearLayout.HORIZONTAL);
-            row.setPadding(8, 8, 8, 8);
-
-            CheckBox cb = new CheckBox(this);
-            cb.setText(String.format("%s (%s) - %d €/día", quad.getMatricula(), quad.getTipo(), quad.getPrecio()));
-            cb.setOnCheckedChangeListener((buttonView, isChecked) -> updatePriceDisplay());
-            
-            LinearLayout.LayoutParams cbParams = new LinearLayout.LayoutParams(0, LinearLayout.LayoutParams.WRAP_CONTENT, 1f);
-            cb.setLayoutParams(cbParams);
-
-            EditText cascosField = new EditText(this);
-            cascosField.setHint("Cascos");
-            cascosField.setInputType(android.text.InputType.TYPE_CLASS_NUMBER);
-            cascosField.setMinWidth(100);
-            LinearLayout.LayoutParams etParams = new LinearLayout.LayoutParams(LinearLayout.LayoutParams.WRAP_CONTENT, LinearLayout.LayoutParams.WRAP_CONTENT);
-            etParams.setMarginStart(16);
-            cascosField.setLayoutParams(etParams);
-            cascosField.addTextChangedListener(new TextWatcher() {
-                @Override public void beforeTextChanged(CharSequence s, int st, int c, int a) {}
-                @Override public void onTextChanged(CharSequence s, int st, int b, int c) {}
-                @Override public void afterTextChanged(Editable s) { if(cb.isChecked()) updatePriceDisplay(); }
-            });
-
-            row.addView(cb);
-            row.addView(cascosField);
-            mQuadsContainer.addView(row);
-
-            mQuadCheckboxes.put(quad.getId(), cb);
-            mCascosFields.put(quad.getId(), cascosField);
+    // Aplica una nueva lista de quads: tabla de precios, ids en orden y filas del selector
+    private void updateQuads() {
+        Log.d("ReservaEdit", "updateQuads llamado. mAllQuads.size = " + mAllQuads.size());
+        mPrecios.clear();
+        mQuadIdsOrden = new int[mAllQuads.size()];
+        mSeleccion = new int[mAllQuads.size()];
+        for (int i = 0; i < mAllQuads.size(); i++) {
+            Quad quad = mAllQuads.get(i);
+            mPrecios.put(quad.getId(), quad.getPrecio());
+            mQuadIdsOrden[i] = quad.getId();
         }
-
-        // Después de crear todos los checkboxes, aplicar selecciones iniciales
-        applyInitialSelections();
+        mQuadsAdapter.submitList(mAllQuads);
+        updatePriceDisplay();
     }
 
     private void updatePriceDisplay() {
@@ -345,29 +341,19 @@ public class ReservaEdit extends AppCompatActivity {
             mPrecioDisplay.setText("Precio total: 0.00 €");
             return;
         }
-        List<Integer> selectedIds = new ArrayList<>();
-        for (Map.Entry<Integer, CheckBox> entry : mQuadCheckboxes.entrySet()) {
-            if (entry.getValue().isChecked()) {
-                selectedIds.add(entry.getKey());
-            }
-        }
-        double total = calculateTotalPrice(selectedIds);
+        double total = calculateTotalPrice();
         mPrecioDisplay.setText(String.format(Locale.getDefault(), "Precio total: %.2f €", total));
     }
 
-    private double calculateTotalPrice(List<Integer> quadIds) {
-        if (mStartMillis <= 0 || mEndMillis <= 0 || quadIds.isEmpty()) return 0.0;
-        long diff = mEndMillis - mStartMillis;
-        long days = TimeUnit.MILLISECONDS.toDays(diff);
-        if (days <= 0) days = 1;
-
-        double total = 0.0;
-        for (Quad quad : mAllQuads) {
-            if (quadIds.contains(quad.getId())) {
-                total += ((double) quad.getPrecio()) * (double) days;
-            }
+    // Suma (precio por día × días) de los quads marcados, sin crear listas ni encapsular enteros
+    private double calculateTotalPrice() {
+        if (mStartMillis <= 0 || mEndMillis <= 0) return 0.0;
+        int n = 0;
+        for (int quadId : mQuadIdsOrden) {
+            if (mSeleccionQuads.isMarcado(quadId)) mSeleccion[n++] = quadId;
         }
-        return total;
+        if (n == 0) return 0.0;
+        return CalculadoraPrecios.total(mPrecios, mSeleccion, n, mStartMillis, mEndMillis);
     }
 
     private void populateTextFields() {
@@ -433,8 +419,7 @@ public class ReservaEdit extends AppCompatActivity {
                         mInitialSelections.put(qid, nc);
                     } catch (Exception ignored) {}
                 }
-                // Si los checkboxes ya existen, aplicarlos inmediatamente
-                if (!mQuadCheckboxes.isEmpty()) applyInitialSelections();
+                applyInitialSelections();
             }
             // Si hay un id válido, estamos editando: ajustar título y botón
             if (mRowId != null && mRowId >= 0) {
@@ -442,60 +427,23 @@ public class ReservaEdit extends AppCompatActivity {
                 if (titleView != null) titleView.setText("Editar reserva");
                 if (mSaveButton != null) mSaveButton.setText("GUARDAR");
                 
-                // Cargar quads asociados en background y aplicar selecciones cuando acabe
-                new Thread(() -> {
-                    try {
-                        ReservaQuadRepository rqRepo = new ReservaQuadRepository(getApplication());
-                        List<ReservaQuad> linkedQuads = rqRepo.getQuadsByReservaId(mRowId);
-                        if (linkedQuads != null) {
-                            for (ReservaQuad rq : linkedQuads) {
-                                // No sobrescribir si ya venían por Intent (SELECTED_QUAD_IDS)
-                                if (!mInitialSelections.containsKey(rq.getQuadId())) {
-                                    mInitialSelections.put(rq.getQuadId(), rq.getNumCascos());
-                                }
-                            }
-                            Log.d("ReservaEdit", "populateTextFields: Cargados " + linkedQuads.size() + " quads");
+                // Si no llegaron por Intent, cargar la reserva con sus quads en una sola lectura
+                if (selIds == null || selIds.isEmpty()) {
+                    int id = mRowId;
+                    mReservaViewModel.getTareas().seguir(this, "reservaCompleta:" + id,
+                            () -> mReservaViewModel.getReservaCompleta(id), resultado -> {
+                        ReservaCompleta rc = resultado.getValor();
+                        if (rc == null || rc.getLineas() == null) return;
+                        for (LineaReserva linea : rc.getLineas()) {
+                            ReservaQuad rq = linea.getReservaQuad();
+                            mInitialSelections.put(rq.getQuadId(), rq.getNumCascos());
                         }
-                        // Asegurar que las selecciones se apliquen en la UI cuando terminen
-                        runOnUiThread(() -> applyInitialSelections());
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                }).start();
-            }
-        }
-    }
-
-    // Consulta ReservaQuad para la reserva actual y aplica las selecciones a los checkboxes
-    private void populateCheckboxes() {
-        if (mRowId == null || mRowId < 0) return;
-        // Reintentos por si la inserción de ReservaQuad está en curso desde la creación reciente
-        final int MAX_ATTEMPTS = 6;
-        final long RETRY_MS = 300;
-        new Thread(() -> {
-            try {
-                ReservaQuadRepository rqRepo = new ReservaQuadRepository(getApplication());
-                int attempts = 0;
-                while (attempts < MAX_ATTEMPTS) {
-                    List<ReservaQuad> linked = rqRepo.getQuadsByReservaId(mRowId);
-                    if (linked != null && !linked.isEmpty()) {
-                        for (ReservaQuad rq : linked) {
-                            if (!mInitialSelections.containsKey(rq.getQuadId())) {
-                                mInitialSelections.put(rq.getQuadId(), rq.getNumCascos());
-                            }
-                        }
-                        Log.d("ReservaEdit", "populateCheckboxes: cargados " + linked.size() + " entradas de ReservaQuad");
-                        runOnUiThread(() -> applyInitialSelections());
-                        return;
-                    }
-                    attempts++;
-                    try { Thread.sleep(RETRY_MS); } catch (InterruptedException ignored) {}
+                        Log.d("ReservaEdit", "populateTextFields: cargados " + rc.getLineas().size() + " quads");
+                        applyInitialSelections();
+                    });
                 }
-                Log.d("ReservaEdit", "populateCheckboxes: no se encontraron entradas de ReservaQuad tras " + attempts + " intentos");
-            } catch (Exception e) {
-                e.printStackTrace();
             }
-        }).start();
+        }
     }
 
 }
@@ -7,17 +7,15 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.ListAdapter;
 
-import es.unizar.eina.notepad.database.Quad;
-import es.unizar.eina.notepad.database.QuadRepository;
+import java.util.Objects;
+
 import es.unizar.eina.notepad.database.Reserva;
 
 public class ReservaListAdapter extends ListAdapter<Reserva, ReservaViewHolder> {
     private int position;
-    private final QuadRepository mQuadRepository;
 
-    public ReservaListAdapter(@NonNull DiffUtil.ItemCallback<Reserva> diffCallback, QuadRepository quadRepository) {
+    public ReservaListAdapter(@NonNull DiffUtil.ItemCallback<Reserva> diffCallback) {
         super(diffCallback);
-        this.mQuadRepository = quadRepository;
     }
 
     public int getPosition() { return position; }
@@ -35,25 +33,26 @@ public class ReservaListAdapter extends ListAdapter<Reserva, ReservaViewHolder>
         Reserva current = getItem(position);
         holder.bind(current);
         holder.itemView.setOnLongClickListener(v -> { setPosition(holder.getAdapterPosition()); return false; });
-        holder.itemView.setOnClickListener(v -> {
-            // Lanzar pantalla de detalle de reserva con datos prellenados
-            android.content.Context ctx = holder.itemView.getContext();
-            android.content.Intent intent = new android.content.Intent(ctx, ThisReservaActivity.class);
-            intent.putExtra(ThisReservaActivity.EXTRA_RESERVA_ID, current.getId());
-            intent.putExtra(ReservaEdit.RESERVA_NOM_CLIENTE, current.getNomCliente());
-            intent.putExtra(ReservaEdit.RESERVA_PRECIO_TOTAL, current.getPrecioTotal());
-            intent.putExtra(ReservaEdit.RESERVA_FECHA_RECOGIDA, current.getFechaRecogida());
-            intent.putExtra(ReservaEdit.RESERVA_FECHA_DEVOLUCION, current.getFechaDevolucion());
-            // La relación con quads ahora es N:N; enviar sólo los campos de Reserva
-            intent.putExtra(ReservaEdit.RESERVA_TELEFONO, current.getTelefono());
-            intent.putExtra(ReservaEdit.RESERVA_ID, current.getId());
-            ctx.startActivity(intent);
-        });
+        holder.itemView.setOnClickListener(v -> abrirDetalle(holder.itemView.getContext(), current));
 
         // Precio mostrado = precio total almacenado en la reserva
         holder.setPrecio(current.getPrecioTotal());
     }
 
+    // Lanzar pantalla de detalle de reserva con datos prellenados
+    static void abrirDetalle(android.content.Context ctx, Reserva current) {
+        android.content.Intent intent = new android.content.Intent(ctx, ThisReservaActivity.class);
+        intent.putExtra(ThisReservaActivity.EXTRA_RESERVA_ID, current.getId());
+        intent.putExtra(ReservaEdit.RESERVA_NOM_CLIENTE, current.getNomCliente());
+        intent.putExtra(ReservaEdit.RESERVA_PRECIO_TOTAL, current.getPrecioTotal());
+        intent.putExtra(ReservaEdit.RESERVA_FECHA_RECOGIDA, current.getFechaRecogida());
+        intent.putExtra(ReservaEdit.RESERVA_FECHA_DEVOLUCION, current.getFechaDevolucion());
+        // La relación con quads ahora es N:N; enviar sólo los campos de Reserva
+        intent.putExtra(ReservaEdit.RESERVA_TELEFONO, current.getTelefono());
+        intent.putExtra(ReservaEdit.RESERVA_ID, current.getId());
+        ctx.startActivity(intent);
+    }
+
     static class ReservaDiff extends DiffUtil.ItemCallback<Reserva> {
         @Override
         public boolean areItemsTheSame(@NonNull Reserva oldItem, @NonNull Reserva newItem) {
@@ -62,15 +61,12 @@ public class ReservaListAdapter extends ListAdapter<Reserva, ReservaViewHolder>
 
         @Override
         public boolean areContentsTheSame(@NonNull Reserva oldItem, @NonNull Reserva newItem) {
-            String oCust = oldItem.getCustomer() == null ? "" : oldItem.getCustomer();
-            String nCust = newItem.getCustomer() == null ? "" : newItem.getCustomer();
-            String oStart = oldItem.getStartDate() == null ? "" : oldItem.getStartDate();
-            String nStart = newItem.getStartDate() == null ? "" : newItem.getStartDate();
-            String oEnd = oldItem.getEndDate() == null ? "" : oldItem.getEndDate();
-            String nEnd = newItem.getEndDate() == null ? "" : newItem.getEndDate();
-            double oPrecio = oldItem.getPrecioTotal();
-            double nPrecio = newItem.getPrecioTotal();
-            return oCust.equals(nCust) && oStart.equals(nStart) && oEnd.equals(nEnd) && Double.compare(oPrecio, nPrecio) == 0;
+            // Se comparan los valores en bruto: diferenciar no formatea ninguna fecha
+            return oldItem.getFechaRecogida() == newItem.getFechaRecogida()
+                    && oldItem.getFechaDevolucion() == newItem.getFechaDevolucion()
+                    && Double.compare(oldItem.getPrecioTotal(), newItem.getPrecioTotal()) == 0
+                    && oldItem.getTelefono() == newItem.getTelefono()
+                    && Objects.equals(oldItem.getNomCliente(), newItem.getNomCliente());
         }
     }
 }
@@ -47,12 +47,17 @@ public class ReservaMenuActivity extends AppCompatActivity {
                                 int telefono = extras.getInt(ReservaEdit.RESERVA_TELEFONO, 0);
                                 String nomCliente = extras.getString(ReservaEdit.RESERVA_NOM_CLIENTE, extras.getString(ReservaEdit.RESERVA_CUSTOMER));
                                 es.unizar.eina.notepad.database.Reserva r = new es.unizar.eina.notepad.database.Reserva(fechaRecogida, fechaDevolucion, precioTotal, telefono, nomCliente);
-                                reservaViewModel.insert(r);
+                                // Guardar también los quads seleccionados, en la misma transacción y sin bloquear
+                                java.util.List<es.unizar.eina.notepad.database.ReservaQuad> lineas = ReservaEdit.parseSelectedQuads(extras);
+                                reservaViewModel.getTareas().seguir(this, null,
+                                        () -> reservaViewModel.insertWithQuads(r, lineas),
+                                        resultado -> AvisosGuardado.reserva(this, resultado));
                         } else {
                                 es.unizar.eina.notepad.database.Reserva r = new es.unizar.eina.notepad.database.Reserva(extras.getString(ReservaEdit.RESERVA_CUSTOMER),
                                     extras.getString(ReservaEdit.RESERVA_START),
                                     extras.getString(ReservaEdit.RESERVA_END));
-                                reservaViewModel.insert(r);
+                                reservaViewModel.getTareas().seguir(this, null, () -> reservaViewModel.insert(r),
+                                        resultado -> AvisosGuardado.reserva(this, resultado));
                         }
                     }
                 }
@@ -0,0 +1,48 @@
+package es.unizar.eina.notepad.ui;
+
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.paging.PagingDataAdapter;
+import androidx.recyclerview.widget.DiffUtil;
+
+import es.unizar.eina.notepad.database.Reserva;
+
+/**
+ * Variante paginada de {@link ReservaListAdapter}.
+ * <p>
+ * Recibe {@code PagingData} en lugar de listas completas, de modo que solo
+ * se mantienen en memoria las reservas visibles y las del margen de
+ * precarga. DiffUtil se ejecuta en segundo plano sobre cada página.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see ReservaListAdapter
+ * @see ReservaViewHolder
+ */
+public class ReservaPagingAdapter extends PagingDataAdapter<Reserva, ReservaViewHolder> {
+
+    /**
+     * Constructor del adaptador.
+     * @param diffCallback Callback para calcular diferencias entre reservas.
+     */
+    public ReservaPagingAdapter(@NonNull DiffUtil.ItemCallback<Reserva> diffCallback) {
+        super(diffCallback);
+    }
+
+    @NonNull
+    @Override
+    public ReservaViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        return ReservaViewHolder.create(parent);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ReservaViewHolder holder, int position) {
+        Reserva current = getItem(position);
+        // Sin placeholders no deberían llegar nulos, pero PagingDataAdapter lo permite
+        if (current == null) return;
+        holder.bind(current);
+        holder.itemView.setOnClickListener(v -> ReservaListAdapter.abrirDetalle(holder.itemView.getContext(), current));
+    }
+}
@@ -1,29 +1,229 @@
 package es.unizar.eina.notepad.ui;
 
 import android.app.Application;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
 
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+import androidx.lifecycle.ViewModelKt;
+import androidx.paging.Pager;
+import androidx.paging.PagingSource;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
 
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+import es.unizar.eina.notepad.BookuadApplication;
+import es.unizar.eina.notepad.database.BusquedaFts;
+import es.unizar.eina.notepad.database.OcupacionRepository;
 import es.unizar.eina.notepad.database.Reserva;
+import es.unizar.eina.notepad.database.ReservaCompleta;
+import es.unizar.eina.notepad.database.ReservaQuad;
 import es.unizar.eina.notepad.database.ReservaRepository;
+import es.unizar.eina.notepad.domain.ValidadorConflictos.Conflicto;
 
 public class ReservaViewModel extends AndroidViewModel {
 
+    /** Tamaño de página de la lista paginada */
+    private static final int PAGE_SIZE = 30;
+    /** Número máximo de reservas retenidas en memoria por la lista paginada */
+    private static final int MAX_SIZE = 200;
+    /** Pausa en milisegundos tras la última tecla antes de lanzar la búsqueda */
+    private static final long ESPERA_BUSQUEDA = 300;
+
     private ReservaRepository mRepository;
-    private final LiveData<List<Reserva>> mAllReservas;
+    private OcupacionRepository mOcupacion;
+    private final GestorTareas mTareas = new GestorTareas();
+
+    private final MutableLiveData<ReservaRepository.Orden> mOrden =
+            new MutableLiveData<>(ReservaRepository.Orden.RECOGIDA);
+    private final Map<ReservaRepository.Orden, LiveData<PagingData<Reserva>>> mPaginadas =
+            new EnumMap<>(ReservaRepository.Orden.class);
+    private final LiveData<PagingData<Reserva>> mReservasOrdenadas;
+    // Texto de búsqueda por cliente; vacío muestra la lista en el orden elegido
+    private final MutableLiveData<String> mBusqueda = new MutableLiveData<>("");
+    private final LiveData<PagingData<Reserva>> mReservasPaginadas;
+    // Un único Pager de búsqueda: su fuente lee el texto actual y se invalida al cambiarlo
+    private LiveData<PagingData<Reserva>> mBusquedaPaginada;
+    private volatile String mTextoBuscado = "";
+    private volatile PagingSource<Integer, Reserva> mFuenteBusqueda;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private String mTextoPendiente = "";
+    private final Runnable mAplicarBusqueda = () -> aplicarBusqueda(mTextoPendiente);
+    // Reserva de la pantalla de detalle
+    private LiveData<ReservaCompleta> mReservaObservada;
+    private int mReservaObservadaId;
 
     public ReservaViewModel(Application application) {
         super(application);
-        mRepository = new ReservaRepository(application);
-        mAllReservas = mRepository.getAllReservas();
+        BookuadApplication app = BookuadApplication.de(application);
+        mRepository = app.getReservaRepository();
+        mOcupacion = app.getOcupacionRepository();
+        mReservasOrdenadas = Transformations.switchMap(mOrden, this::getPaginadas);
+        mReservasPaginadas = Transformations.switchMap(mBusqueda, texto ->
+                BusquedaFts.aConsulta(texto).isEmpty() ? mReservasOrdenadas : getBusqueda());
+    }
+
+    LiveData<List<Reserva>> getAllReservas() { return mRepository.getAllReservas(); }
+
+    /**
+     * Devuelve la lista paginada de reservas en el orden seleccionado o,
+     * si hay texto de búsqueda, las que coinciden con él.
+     * Solo se cargan las páginas visibles más el margen de precarga.
+     */
+    LiveData<PagingData<Reserva>> getReservasPaginadas() { return mReservasPaginadas; }
+
+    /** Cambia la consulta observada por la lista paginada. */
+    void setOrden(ReservaRepository.Orden orden) { mOrden.setValue(orden); }
+
+    /**
+     * Cambia el texto de búsqueda por nombre de cliente. La búsqueda se lanza
+     * cuando el usuario deja de escribir; borrar el texto vuelve a la lista al momento.
+     */
+    void setBusqueda(String texto) {
+        mHandler.removeCallbacks(mAplicarBusqueda);
+        mTextoPendiente = texto;
+        if (BusquedaFts.aConsulta(texto).isEmpty()) aplicarBusqueda(texto);
+        else mHandler.postDelayed(mAplicarBusqueda, ESPERA_BUSQUEDA);
+    }
+
+    private void aplicarBusqueda(String texto) {
+        if (texto.equals(mBusqueda.getValue())) return;
+        if (!BusquedaFts.aConsulta(texto).isEmpty()) {
+            mTextoBuscado = texto;
+            // El Pager vuelve a pedir una fuente, que ya lee el texto nuevo
+            PagingSource<Integer, Reserva> fuente = mFuenteBusqueda;
+            if (fuente != null) fuente.invalidate();
+        }
+        mBusqueda.setValue(texto);
+    }
+
+    // Un Pager por orden, cacheado en el scope del ViewModel para sobrevivir a rotaciones
+    private LiveData<PagingData<Reserva>> getPaginadas(ReservaRepository.Orden orden) {
+        LiveData<PagingData<Reserva>> paginadas = mPaginadas.get(orden);
+        if (paginadas == null) {
+            Pager<Integer, Reserva> pager = new Pager<>(
+                    new PagingConfig(PAGE_SIZE, PAGE_SIZE, false, 2 * PAGE_SIZE, MAX_SIZE),
+                    () -> mRepository.getReservasPaginadas(orden));
+            paginadas = PagingLiveData.cachedIn(PagingLiveData.getLiveData(pager),
+                    ViewModelKt.getViewModelScope(this));
+            mPaginadas.put(orden, paginadas);
+        }
+        return paginadas;
+    }
+
+    // Todas las búsquedas comparten un Pager sobre el índice FTS, así que
+    // escribir no acumula Pagers vivos ni observadores de invalidación
+    private LiveData<PagingData<Reserva>> getBusqueda() {
+        if (mBusquedaPaginada == null) {
+            Pager<Integer, Reserva> pager = new Pager<>(
+                    new PagingConfig(PAGE_SIZE, PAGE_SIZE, false, 2 * PAGE_SIZE, MAX_SIZE),
+                    () -> {
+                        PagingSource<Integer, Reserva> fuente = mRepository.buscarReservasPaginadas(mTextoBuscado);
+                        mFuenteBusqueda = fuente;
+                        return fuente;
+                    });
+            mBusquedaPaginada = PagingLiveData.cachedIn(PagingLiveData.getLiveData(pager),
+                    ViewModelKt.getViewModelScope(this));
+        }
+        return mBusquedaPaginada;
+    }
+
+    // Las escrituras son asíncronas: nunca bloquean el hilo principal
+    public CompletableFuture<Long> insert(Reserva reserva) {
+        CompletableFuture<Long> future = mRepository.insertAsync(reserva);
+        registrarError("insert", future);
+        return future;
     }
+    public void update(Reserva reserva) { registrarError("update", mRepository.updateAsync(reserva)); }
+    public void delete(Reserva reserva) { registrarError("delete", mRepository.deleteAsync(reserva)); }
 
-    LiveData<List<Reserva>> getAllReservas() { return mAllReservas; }
+    /**
+     * Inserta una reserva con sus quads en una transacción, sin bloquear.
+     * El llamante decide en qué executor recibe el resultado (thenAcceptAsync).
+     */
+    public CompletableFuture<Long> insertWithQuads(Reserva reserva, List<ReservaQuad> reservaQuads) {
+        CompletableFuture<Long> future = mRepository.insertWithQuadsAsync(reserva, reservaQuads);
+        registrarError("insertWithQuads", future);
+        return future;
+    }
+
+    /**
+     * Actualiza una reserva y deja sus quads iguales a los indicados, en una
+     * transacción y sin bloquear; solo se escriben las asociaciones que cambian.
+     */
+    public CompletableFuture<Integer> updateWithQuads(Reserva reserva, List<ReservaQuad> reservaQuads) {
+        CompletableFuture<Integer> future = mRepository.updateWithQuadsAsync(reserva, reservaQuads);
+        registrarError("updateWithQuads", future);
+        return future;
+    }
+
+    /**
+     * Obtiene una reserva por id; si está en la caché del repositorio el futuro ya está completo.
+     */
+    public CompletableFuture<Reserva> getReservaById(int id) {
+        CompletableFuture<Reserva> future = mRepository.getReservaByIdAsync(id);
+        registrarError("getReservaById", future);
+        return future;
+    }
+
+    /**
+     * Carga una reserva con sus quads en una única operación de lectura.
+     */
+    public CompletableFuture<ReservaCompleta> getReservaCompleta(int id) {
+        CompletableFuture<ReservaCompleta> future = mRepository.getReservaCompletaAsync(id);
+        registrarError("getReservaCompleta", future);
+        return future;
+    }
 
-    public void insert(Reserva reserva) { mRepository.insert(reserva); }
-    public void update(Reserva reserva) { mRepository.update(reserva); }
-    public void delete(Reserva reserva) { mRepository.delete(reserva); }
+    /**
+     * Observa una reserva con sus quads; emite de nuevo en cuanto se confirma
+     * un cambio en la reserva, en sus asociaciones o en los quads. El LiveData
+     * se conserva en el ViewModel y sobrevive a las rotaciones.
+     */
+    LiveData<ReservaCompleta> observeReservaCompleta(int id) {
+        if (mReservaObservada == null || mReservaObservadaId != id) {
+            mReservaObservadaId = id;
+            mReservaObservada = mRepository.observeReservaCompleta(id);
+        }
+        return mReservaObservada;
+    }
+
+    /**
+     * Busca reservas existentes que se solaparían con la que se va a guardar.
+     * El guardado vuelve a comprobarlo antes de escribir.
+     */
+    public CompletableFuture<List<Conflicto>> buscarConflictos(int excluirReservaId, long recogida,
+                                                               long devolucion, List<Integer> quadIds) {
+        CompletableFuture<List<Conflicto>> future =
+                mOcupacion.buscarConflictosAsync(excluirReservaId, recogida, devolucion, quadIds);
+        registrarError("buscarConflictos", future);
+        return future;
+    }
+
+    /**
+     * Planificador de las tareas de las pantallas de este ViewModel; sus
+     * resultados solo se entregan a activities vivas.
+     */
+    GestorTareas getTareas() { return mTareas; }
+
+    @Override
+    protected void onCleared() {
+        mHandler.removeCallbacks(mAplicarBusqueda);
+        mTareas.cancelarTodas();
+    }
+
+    private static void registrarError(String operacion, CompletableFuture<?> future) {
+        future.whenComplete((resultado, ex) -> {
+            if (ex != null) Log.e("ReservaViewModel", operacion + " falló", ex);
+        });
+    }
 }
@@ -33,7 +33,7 @@ public class ReservasActivity extends AppCompatActivity {
         setContentView(R.layout.activity_reservas);
 
         mRecyclerView = findViewById(R.id.recyclerview);
-        mAdapter = new ReservaListAdapter(new ReservaListAdapter.ReservaDiff(), new es.unizar.eina.notepad.database.QuadRepository(getApplication()));
+        mAdapter = new ReservaListAdapter(new ReservaListAdapter.ReservaDiff());
         mRecyclerView.setAdapter(mAdapter);
         mRecyclerView.setLayoutManager(new LinearLayoutManager(this));
 
@@ -104,12 +104,14 @@ public class ReservasActivity extends AppCompatActivity {
                             int telefono = extras.getInt(ReservaEdit.RESERVA_TELEFONO, 0);
                             String nomCliente = extras.getString(ReservaEdit.RESERVA_NOM_CLIENTE, extras.getString(ReservaEdit.RESERVA_CUSTOMER));
                             Reserva r = new Reserva(fechaRecogida, fechaDevolucion, precioTotal, telefono, nomCliente);
-                            mReservaViewModel.insert(r);
+                            mReservaViewModel.getTareas().seguir(this, null, () -> mReservaViewModel.insert(r),
+                                    resultado -> AvisosGuardado.reserva(this, resultado));
                         } else {
                             Reserva r = new Reserva(extras.getString(ReservaEdit.RESERVA_CUSTOMER),
                                     extras.getString(ReservaEdit.RESERVA_START),
                                     extras.getString(ReservaEdit.RESERVA_END));
-                            mReservaViewModel.insert(r);
+                            mReservaViewModel.getTareas().seguir(this, null, () -> mReservaViewModel.insert(r),
+                                    resultado -> AvisosGuardado.reserva(this, resultado));
                         }
                     }
                 }
@@ -0,0 +1,52 @@
+package es.unizar.eina.notepad.ui;
+
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+
+/**
+ * Estado de la selección de quads en la pantalla de edición de reservas.
+ * <p>
+ * Guarda, por identificador de quad, si está marcado y el texto escrito en
+ * su campo de cascos. Es independiente de las vistas: las filas del
+ * RecyclerView se reciclan y solo reflejan este estado, de modo que lo que
+ * escribe el usuario se conserva al hacer scroll y cuando llega una nueva
+ * lista de quads.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see QuadSeleccionAdapter
+ * @see ReservaEdit
+ */
+class SeleccionQuads {
+
+    private final SparseBooleanArray mMarcados = new SparseBooleanArray();
+    private final SparseArray<String> mCascos = new SparseArray<>();
+
+    /**
+     * @param quadId Identificador del quad.
+     * @return true si el quad está marcado.
+     */
+    boolean isMarcado(int quadId) { return mMarcados.get(quadId); }
+
+    /**
+     * @param quadId Identificador del quad.
+     * @param marcado Nuevo estado de la casilla.
+     */
+    void setMarcado(int quadId, boolean marcado) {
+        if (marcado) mMarcados.put(quadId, true);
+        else mMarcados.delete(quadId);
+    }
+
+    /**
+     * @param quadId Identificador del quad.
+     * @return Texto del campo de cascos (vacío si no se ha escrito nada).
+     */
+    String getCascos(int quadId) { return mCascos.get(quadId, ""); }
+
+    /**
+     * @param quadId Identificador del quad.
+     * @param cascos Texto del campo de cascos.
+     */
+    void setCascos(int quadId, String cascos) { mCascos.put(quadId, cascos); }
+}
@@ -16,10 +16,7 @@ import androidx.core.content.ContextCompat;
 
 import es.unizar.eina.notepad.R;
 import es.unizar.eina.notepad.database.Quad;
-import es.unizar.eina.notepad.database.QuadRepository;
-import es.unizar.eina.notepad.database.ReservaQuad;
-import es.unizar.eina.notepad.database.ReservaQuadRepository;
-import java.util.List;
+import es.unizar.eina.notepad.domain.TipoQuad;
 
 public class ThisQuadActivity extends AppCompatActivity {
 
@@ -38,16 +35,15 @@ public class ThisQuadActivity extends AppCompatActivity {
                     if (extras.containsKey(QuadEdit.QUAD_MATRICULA) || extras.containsKey(QuadEdit.QUAD_DESCRIPCION)) {
                         String matricula = extras.getString(QuadEdit.QUAD_MATRICULA, "");
                         String descripcion = extras.getString(QuadEdit.QUAD_DESCRIPCION, "");
-                        String tipoName = extras.getString(QuadEdit.QUAD_TIPO, Quad.Tipo.UNIPLAZA.name());
+                        String tipoName = extras.getString(QuadEdit.QUAD_TIPO, TipoQuad.UNIPLAZA.name());
                         int precio = extras.getInt(QuadEdit.QUAD_PRECIO, 0);
-                        Quad.Tipo tipo;
-                        try { tipo = Quad.Tipo.valueOf(tipoName); } catch (Exception e) { tipo = Quad.Tipo.UNIPLAZA; }
+                        TipoQuad tipo;
+                        try { tipo = TipoQuad.valueOf(tipoName); } catch (Exception e) { tipo = TipoQuad.UNIPLAZA; }
                         Quad updated = new Quad(tipo, precio, matricula, descripcion);
                         int id = extras.getInt(QuadEdit.QUAD_ID, mQuadId);
                         updated.setId(id);
+                        // El observador del quad muestra los datos guardados al confirmarse
                         mQuadViewModel.update(updated);
-                        mQuad = updated;
-                        updateTitle();
                     }
                 }
             }
@@ -69,13 +65,12 @@ public class ThisQuadActivity extends AppCompatActivity {
             return;
         }
 
-        // cargar quad en background y actualizar UI
-        new Thread(() -> {
-            QuadRepository repo = new QuadRepository(getApplication());
-            Quad q = repo.getQuadById(mQuadId);
+        // Observar el quad: el título se actualiza en cuanto se confirma una edición
+        mQuadViewModel.observeQuadById(mQuadId).observe(this, q -> {
+            if (q == null) return;
             mQuad = q;
-            runOnUiThread(this::updateTitle);
-        }).start();
+            updateTitle();
+        });
 
         MaterialButton btnDatos = findViewById(R.id.button_datos);
         MaterialButton btnEliminar = findViewById(R.id.button_eliminar);
@@ -85,7 +80,7 @@ public class ThisQuadActivity extends AppCompatActivity {
             if (mQuad != null) {
                 intent.putExtra(QuadEdit.QUAD_MATRICULA, mQuad.getMatricula());
                 intent.putExtra(QuadEdit.QUAD_DESCRIPCION, mQuad.getDescripcion());
-                intent.putExtra(QuadEdit.QUAD_TIPO, mQuad.getTipo()!=null?mQuad.getTipo().name():Quad.Tipo.UNIPLAZA.name());
+                intent.putExtra(QuadEdit.QUAD_TIPO, mQuad.getTipo()!=null?mQuad.getTipo().name():TipoQuad.UNIPLAZA.name());
                 intent.putExtra(QuadEdit.QUAD_PRECIO, mQuad.getPrecio());
                 intent.putExtra(QuadEdit.QUAD_ID, mQuad.getId());
             } else {
@@ -97,18 +92,18 @@ public class ThisQuadActivity extends AppCompatActivity {
         btnEliminar.setOnClickListener(v -> {
             String mat = (mQuad != null && mQuad.getMatricula() != null) ? mQuad.getMatricula() : ("#" + mQuadId);
             
-            // Verificar si el quad tiene reservas asociadas antes de permitir eliminación
-            new Thread(() -> {
-                ReservaQuadRepository rqRepo = new ReservaQuadRepository(getApplication());
-                List<ReservaQuad> reservasAsociadas = rqRepo.getReservasByQuadId(mQuadId);
-                
-                runOnUiThread(() -> {
-                    if (reservasAsociadas != null && !reservasAsociadas.isEmpty()) {
+            // Verificar si el quad tiene reservas asociadas antes de permitir eliminación;
+            // una segunda pulsación mientras se comprueba se une a la misma consulta
+            mQuadViewModel.getTareas().seguir(this, "reservasDeQuad:" + mQuadId,
+                    () -> mQuadViewModel.contarReservas(mQuadId), resultado -> {
+                    if (resultado.esError()) {
+                        Toast.makeText(this, "No se pudo comprobar si el quad tiene reservas", Toast.LENGTH_LONG).show();
+                    } else if (resultado.getValor() > 0) {
                         // Bloquear eliminación: el quad tiene reservas activas
                         AlertDialog.Builder builder = new AlertDialog.Builder(ThisQuadActivity.this);
                         builder.setTitle("No se puede eliminar");
                         builder.setMessage("El quad " + mat + " no puede ser eliminado porque está incluido en " + 
-                                         reservasAsociadas.size() + " reserva(s) activa(s). " +
+                                         resultado.getValor() + " reserva(s) activa(s). " +
                                          "Por favor, elimine o modifique las reservas asociadas primero.");
                         builder.setPositiveButton("Entendido", (dialog, which) -> dialog.dismiss());
                         AlertDialog dialog = builder.create();
@@ -125,13 +120,9 @@ public class ThisQuadActivity extends AppCompatActivity {
                             if (mQuad != null) {
                                 mQuadViewModel.delete(mQuad);
                             } else {
-                                new Thread(() -> {
-                                    QuadRepository repo = new QuadRepository(getApplication());
-                                    Quad q = repo.getQuadById(mQuadId);
-                                    if (q != null) {
-                                        mQuadViewModel.delete(q);
-                                    }
-                                }).start();
+                                mQuadViewModel.getQuadById(mQuadId).thenAccept(q -> {
+                                    if (q != null) mQuadViewModel.delete(q);
+                                });
                             }
                             dialog.dismiss();
                             // go to ListaQuads
@@ -148,8 +139,7 @@ public class ThisQuadActivity extends AppCompatActivity {
                             dialog.getButton(AlertDialog.BUTTON_POSITIVE).setTextColor(ContextCompat.getColor(ThisQuadActivity.this, R.color.danger));
                         }
                     }
-                });
-            }).start();
+            });
         });
     }
 
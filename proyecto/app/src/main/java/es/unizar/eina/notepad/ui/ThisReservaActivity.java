@@ -14,10 +14,13 @@ import androidx.lifecycle.ViewModelProvider;
 
 import com.google.android.material.button.MaterialButton;
 
+import java.util.List;
+
 import es.unizar.eina.notepad.R;
+import es.unizar.eina.notepad.database.LineaReserva;
 import es.unizar.eina.notepad.database.Reserva;
+import es.unizar.eina.notepad.database.ReservaCompleta;
 import es.unizar.eina.notepad.database.ReservaQuad;
-import es.unizar.eina.notepad.database.ReservaQuadRepository;
 
 public class ThisReservaActivity extends AppCompatActivity {
 
@@ -26,6 +29,8 @@ public class ThisReservaActivity extends AppCompatActivity {
     private ReservaViewModel mReservaViewModel;
     private Reserva mReserva;
     private int mReservaId = -1;
+    // Reserva con sus quads, cargada de una sola vez; null hasta que llega de la BD
+    private ReservaCompleta mReservaCompleta;
 
     private ActivityResultLauncher<Intent> mStartEditReserva = registerForActivityResult(
             new StartActivityForResult(),
@@ -41,36 +46,16 @@ public class ThisReservaActivity extends AppCompatActivity {
                         Reserva r = new Reserva(fechaRecogida, fechaDevolucion, precioTotal, telefono, nomCliente);
                         int id = extras.getInt(ReservaEdit.RESERVA_ID, mReservaId);
                         r.setId(id);
-                        mReservaViewModel.update(r);
-                        mReserva = r;
-                        // Si vienen quads seleccionados en el resultado, sincronizarlos con la tabla reserva_quad
+                        // El observador de la reserva muestra los datos guardados en cuanto se confirman
                         if (extras.containsKey("SELECTED_QUAD_IDS")) {
-                            new Thread(() -> {
-                                try {
-                                    String selIds = extras.getString("SELECTED_QUAD_IDS", "");
-                                    String selCascos = extras.getString("SELECTED_CASCOS", "");
-                                    ReservaQuadRepository rqRepo = new ReservaQuadRepository(getApplication());
-                                    // Eliminar entradas previas de esta reserva
-                                    rqRepo.deleteByReservaId(id);
-                                    if (selIds != null && !selIds.isEmpty()) {
-                                        String[] ids = selIds.split(",");
-                                        String[] cas = selCascos != null ? selCascos.split(",") : new String[ids.length];
-                                        for (int i = 0; i < ids.length; i++) {
-                                            try {
-                                                int qid = Integer.parseInt(ids[i].trim());
-                                                int nc = 0;
-                                                if (i < cas.length) try { nc = Integer.parseInt(cas[i].trim()); } catch (Exception ignored) {}
-                                                ReservaQuad rq = new ReservaQuad(id, qid, nc);
-                                                rqRepo.insert(rq);
-                                            } catch (Exception ignored) {}
-                                        }
-                                    }
-                                } catch (Exception ex) {
-                                    ex.printStackTrace();
-                                }
-                            }).start();
+                            // Reserva y quads en una transacción: solo se escriben las asociaciones que cambian
+                            List<ReservaQuad> lineas = ReservaEdit.parseSelectedQuads(extras);
+                            mReservaViewModel.getTareas().seguir(this, null,
+                                    () -> mReservaViewModel.updateWithQuads(r, lineas),
+                                    resultado -> AvisosGuardado.reserva(this, resultado));
+                        } else {
+                            mReservaViewModel.update(r);
                         }
-                        updateTitleAndSubtitle();
                     }
                 }
             }
@@ -103,6 +88,10 @@ public class ThisReservaActivity extends AppCompatActivity {
         }
 
         updateTitleAndSubtitle();
+        // Observar la reserva con sus quads: se vuelve a mostrar tras cada escritura confirmada
+        if (mReservaId >= 0) {
+            mReservaViewModel.observeReservaCompleta(mReservaId).observe(this, this::mostrarReservaCompleta);
+        }
 
         MaterialButton btnEnviar = findViewById(R.id.button_enviar);
         MaterialButton btnDatos = findViewById(R.id.button_datos_reserva);
@@ -118,62 +107,24 @@ public class ThisReservaActivity extends AppCompatActivity {
         });
 
         btnDatos.setOnClickListener(v -> {
-            if (mReserva != null) {
-                // Cargar quads asociados en background, reintentando si es necesario, luego lanzar intent en UI thread
-                new Thread(() -> {
-                    try {
-                        ReservaQuadRepository rqRepo = new ReservaQuadRepository(getApplication());
-                        java.util.List<ReservaQuad> linked = rqRepo.getQuadsByReservaId(mReserva.getId());
-                        // Si está vacío, reintentar algunas veces (esperando a que la inserción termine)
-                        int attempts = 0;
-                        final int MAX_ATTEMPTS = 10;
-                        final long RETRY_MS = 250;
-                        while ((linked == null || linked.isEmpty()) && attempts < MAX_ATTEMPTS) {
-                            attempts++;
-                            try { Thread.sleep(RETRY_MS); } catch (InterruptedException ignored) {}
-                            linked = rqRepo.getQuadsByReservaId(mReserva.getId());
-                        }
-
-                        final java.util.List<ReservaQuad> finalLinked = linked;
-                        // Volver al UI thread para crear intent y lanzar
-                        runOnUiThread(() -> {
-                            Intent intent = new Intent(ThisReservaActivity.this, ReservaEdit.class);
-                            intent.putExtra(ReservaEdit.RESERVA_NOM_CLIENTE, mReserva.getNomCliente());
-                            intent.putExtra(ReservaEdit.RESERVA_FECHA_RECOGIDA, mReserva.getStartDateLong());
-                            intent.putExtra(ReservaEdit.RESERVA_FECHA_DEVOLUCION, mReserva.getEndDateLong());
-                            // also include formatted strings for compatibility
-                            intent.putExtra(ReservaEdit.RESERVA_START, mReserva.getStartDate());
-                            intent.putExtra(ReservaEdit.RESERVA_END, mReserva.getEndDate());
-                            intent.putExtra(ReservaEdit.RESERVA_PRECIO_TOTAL, mReserva.getPrecioTotal());
-                            intent.putExtra(ReservaEdit.RESERVA_TELEFONO, mReserva.getTelefono());
-                            intent.putExtra(ReservaEdit.RESERVA_ID, mReserva.getId());
-
-                            // Añadir quads asociados para que ReservaEdit los pueda pre-seleccionar
-                            if (finalLinked != null && !finalLinked.isEmpty()) {
-                                StringBuilder ids = new StringBuilder();
-                                StringBuilder cascos = new StringBuilder();
-                                for (int j = 0; j < finalLinked.size(); j++) {
-                                    ReservaQuad rq = finalLinked.get(j);
-                                    if (j > 0) { ids.append(","); cascos.append(","); }
-                                    ids.append(rq.getQuadId());
-                                    cascos.append(rq.getNumCascos());
-                                }
-                                intent.putExtra("SELECTED_QUAD_IDS", ids.toString());
-                                intent.putExtra("SELECTED_CASCOS", cascos.toString());
-                            }
-
-                            mStartEditReserva.launch(intent);
-                        });
-                    } catch (Exception ex) {
-                        ex.printStackTrace();
+            if (mReservaCompleta != null) {
+                lanzarEdicion(mReservaCompleta);
+            } else if (mReserva != null) {
+                // Cargar la reserva con sus quads en una sola lectura y lanzar la edición en el UI thread
+                int id = mReserva.getId();
+                mReservaViewModel.getTareas().seguir(this, "reservaCompleta:" + id,
+                        () -> mReservaViewModel.getReservaCompleta(id), resultado -> {
+                    ReservaCompleta rc = resultado.getValor();
+                    if (rc != null) {
+                        mReservaCompleta = rc;
+                        lanzarEdicion(rc);
+                    } else {
                         // En caso de error, lanzar intent con al menos el ID
-                        runOnUiThread(() -> {
-                            Intent intent = new Intent(ThisReservaActivity.this, ReservaEdit.class);
-                            intent.putExtra(ReservaEdit.RESERVA_ID, mReserva.getId());
-                            mStartEditReserva.launch(intent);
-                        });
+                        Intent intent = new Intent(ThisReservaActivity.this, ReservaEdit.class);
+                        intent.putExtra(ReservaEdit.RESERVA_ID, id);
+                        mStartEditReserva.launch(intent);
                     }
-                }).start();
+                });
             } else {
                 Intent intent = new Intent(ThisReservaActivity.this, ReservaEdit.class);
                 intent.putExtra(ReservaEdit.RESERVA_ID, mReservaId);
@@ -193,13 +144,9 @@ public class ThisReservaActivity extends AppCompatActivity {
                 if (mReserva != null) {
                     mReservaViewModel.delete(mReserva);
                 } else {
-                    new Thread(() -> {
-                        es.unizar.eina.notepad.database.ReservaRepository repo = new es.unizar.eina.notepad.database.ReservaRepository(getApplication());
-                        es.unizar.eina.notepad.database.Reserva r = repo.getReservaById(mReservaId);
-                        if (r != null) {
-                            mReservaViewModel.delete(r);
-                        }
-                    }).start();
+                    mReservaViewModel.getReservaById(mReservaId).thenAccept(r -> {
+                        if (r != null) mReservaViewModel.delete(r);
+                    });
                 }
                 dialog.dismiss();
                 startActivity(new Intent(ThisReservaActivity.this, ListaReservasActivity.class));
@@ -216,12 +163,63 @@ public class ThisReservaActivity extends AppCompatActivity {
         });
     }
 
+    // Muestra el agregado recién cargado; la reserva de la BD sustituye a la de los extras
+    private void mostrarReservaCompleta(ReservaCompleta rc) {
+        if (rc == null || rc.getReserva() == null) return;
+        mReservaCompleta = rc;
+        mReserva = rc.getReserva();
+        updateTitleAndSubtitle();
+    }
+
+    // Lanza ReservaEdit con los datos de la reserva y sus quads ya cargados
+    private void lanzarEdicion(ReservaCompleta rc) {
+        Reserva r = rc.getReserva();
+        Intent intent = new Intent(ThisReservaActivity.this, ReservaEdit.class);
+        intent.putExtra(ReservaEdit.RESERVA_NOM_CLIENTE, r.getNomCliente());
+        intent.putExtra(ReservaEdit.RESERVA_FECHA_RECOGIDA, r.getStartDateLong());
+        intent.putExtra(ReservaEdit.RESERVA_FECHA_DEVOLUCION, r.getEndDateLong());
+        // also include formatted strings for compatibility
+        intent.putExtra(ReservaEdit.RESERVA_START, r.getStartDate());
+        intent.putExtra(ReservaEdit.RESERVA_END, r.getEndDate());
+        intent.putExtra(ReservaEdit.RESERVA_PRECIO_TOTAL, r.getPrecioTotal());
+        intent.putExtra(ReservaEdit.RESERVA_TELEFONO, r.getTelefono());
+        intent.putExtra(ReservaEdit.RESERVA_ID, r.getId());
+
+        // Añadir quads asociados para que ReservaEdit los pueda pre-seleccionar sin consultar la BD
+        if (rc.getLineas() != null && !rc.getLineas().isEmpty()) {
+            StringBuilder ids = new StringBuilder();
+            StringBuilder cascos = new StringBuilder();
+            for (int j = 0; j < rc.getLineas().size(); j++) {
+                ReservaQuad rq = rc.getLineas().get(j).getReservaQuad();
+                if (j > 0) { ids.append(","); cascos.append(","); }
+                ids.append(rq.getQuadId());
+                cascos.append(rq.getNumCascos());
+            }
+            intent.putExtra("SELECTED_QUAD_IDS", ids.toString());
+            intent.putExtra("SELECTED_CASCOS", cascos.toString());
+        }
+
+        mStartEditReserva.launch(intent);
+    }
+
     private void updateTitleAndSubtitle() {
         TextView title = findViewById(R.id.title_reserva);
         TextView subtitle = findViewById(R.id.subtitle_reserva);
         if (mReserva != null) {
             title.setText(mReserva.getNomCliente() == null ? "" : mReserva.getNomCliente());
-            subtitle.setText(String.format("%.2f €", mReserva.getPrecioTotal()));
+            String precio = String.format("%.2f €", mReserva.getPrecioTotal());
+            if (mReservaCompleta != null && mReservaCompleta.getLineas() != null && !mReservaCompleta.getLineas().isEmpty()) {
+                // Matrículas de los quads, disponibles en el agregado sin más consultas
+                StringBuilder matriculas = new StringBuilder();
+                for (LineaReserva linea : mReservaCompleta.getLineas()) {
+                    if (linea.getQuad() == null) continue;
+                    if (matriculas.length() > 0) matriculas.append(", ");
+                    matriculas.append(linea.getQuad().getMatricula());
+                }
+                subtitle.setText(precio + " · " + matriculas);
+            } else {
+                subtitle.setText(precio);
+            }
         } else {
             if (mReservaId!=-1) title.setText("Reserva #" + mReservaId);
             subtitle.setText("");
@@ -0,0 +1,147 @@
+package es.unizar.eina.notepad.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.database.Cursor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Pruebas del mantenimiento incremental de {@code resumen_diario}.
+ * <p>
+ * Tras cada escritura (alta, modificación, cambio de quads y baja) hecha
+ * como la hacen los repositorios, la tabla debe quedar igual que si se
+ * calculase de cero con {@link AnaliticaDao#reconstruir()}. Los ingresos se
+ * comparan redondeados a céntimos, porque sumar y restar la misma parte
+ * puede dejar restos de coma flotante.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see AnaliticaDao
+ * @see AnaliticaRepository
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class AnaliticaDaoTest {
+
+    private static final long MILLIS_DIA = BaseDatosPrueba.MILLIS_DIA;
+    private static final long INICIO = BaseDatosPrueba.INICIO;
+
+    private AppRoomDatabase mDb;
+    private ReservaDao mReservaDao;
+    private ReservaQuadDao mReservaQuadDao;
+    private AnaliticaDao mAnaliticaDao;
+
+    @Before
+    public void crearBaseDeDatos() {
+        mDb = BaseDatosPrueba.crear();
+        mReservaDao = mDb.reservaDao();
+        mReservaQuadDao = mDb.reservaQuadDao();
+        mAnaliticaDao = mDb.analiticaDao();
+        BaseDatosPrueba.insertarQuads(mDb, 4);
+    }
+
+    @After
+    public void cerrarBaseDeDatos() {
+        mDb.close();
+    }
+
+    @Test
+    public void alta() {
+        insertar(INICIO, 3, 300.0, 1, 2);
+        insertar(INICIO + MILLIS_DIA, 2, 90.0, 2);
+        insertar(INICIO + 10 * MILLIS_DIA, 0, 45.0);
+        comprobarIgualAReconstruir();
+    }
+
+    @Test
+    public void modificacion() {
+        Reserva reserva = insertar(INICIO, 3, 300.0, 1, 2);
+        insertar(INICIO + MILLIS_DIA, 2, 90.0, 2);
+
+        Reserva cambiada = new Reserva(INICIO + 2 * MILLIS_DIA, INICIO + 6 * MILLIS_DIA, 410.0,
+                reserva.getTelefono(), reserva.getNomCliente());
+        cambiada.setId(reserva.getId());
+        mDb.runInTransaction(() -> {
+            mAnaliticaDao.aplicarReserva(cambiada.getId(), -1);
+            assertEquals(1, mReservaDao.updateReserva(cambiada));
+            mAnaliticaDao.aplicarReserva(cambiada.getId(), 1);
+        });
+        comprobarIgualAReconstruir();
+    }
+
+    @Test
+    public void cambioDeQuads() {
+        Reserva reserva = insertar(INICIO, 3, 300.0, 1, 2);
+        insertar(INICIO + MILLIS_DIA, 2, 90.0, 2);
+
+        AnaliticaRepository.conResumenes(mDb, Collections.singletonList(reserva.getId()),
+                () -> mReservaQuadDao.sincronizarLineas(reserva.getId(),
+                        Arrays.asList(new ReservaQuad(0, 2, 1), new ReservaQuad(0, 3, 0), new ReservaQuad(0, 4, 2))));
+        comprobarIgualAReconstruir();
+
+        AnaliticaRepository.conResumenes(mDb, Collections.singletonList(reserva.getId()),
+                () -> mReservaQuadDao.deleteByReservaId(reserva.getId()));
+        comprobarIgualAReconstruir();
+    }
+
+    @Test
+    public void baja() {
+        Reserva reserva = insertar(INICIO, 3, 300.0, 1, 2);
+        insertar(INICIO + MILLIS_DIA, 2, 90.0, 2);
+
+        mDb.runInTransaction(() -> {
+            mAnaliticaDao.aplicarReserva(reserva.getId(), -1);
+            assertEquals(1, mReservaDao.deleteReserva(reserva));
+        });
+        comprobarIgualAReconstruir();
+
+        // El quad 1 solo estaba en la reserva borrada
+        for (String fila : filas()) assertTrue(fila, !fila.split("\\|")[1].equals("1"));
+    }
+
+    // Alta como en ReservaRepository: reserva, asociaciones y resúmenes en una transacción
+    private Reserva insertar(long recogida, int dias, double precio, int... quadIds) {
+        Reserva reserva = new Reserva(recogida, recogida + dias * MILLIS_DIA, precio, 600000000, "Cliente");
+        mDb.runInTransaction(() -> {
+            reserva.setId((int) mReservaDao.insertReserva(reserva));
+            List<ReservaQuad> lineas = new ArrayList<>();
+            for (int quadId : quadIds) lineas.add(new ReservaQuad(reserva.getId(), quadId, 0));
+            if (!lineas.isEmpty()) mReservaQuadDao.insertLineas(lineas);
+            mAnaliticaDao.aplicarReserva(reserva.getId(), 1);
+        });
+        return reserva;
+    }
+
+    private void comprobarIgualAReconstruir() {
+        List<String> incremental = filas();
+        mAnaliticaDao.reconstruir();
+        assertEquals(filas(), incremental);
+    }
+
+    // dia|quad_id|ingresos en céntimos|dias_reservados
+    private List<String> filas() {
+        List<String> filas = new ArrayList<>();
+        try (Cursor c = mDb.getOpenHelper().getReadableDatabase().query(
+                "SELECT dia, quad_id, ingresos, dias_reservados FROM resumen_diario ORDER BY dia, quad_id")) {
+            while (c.moveToNext()) {
+                filas.add(String.format(Locale.ROOT, "%d|%d|%d|%d", c.getLong(0), c.getInt(1),
+                        Math.round(c.getDouble(2) * 100), c.getInt(3)));
+            }
+        }
+        return filas;
+    }
+}
@@ -0,0 +1,65 @@
+package es.unizar.eina.notepad.database;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import java.util.Locale;
+
+import es.unizar.eina.notepad.domain.TipoQuad;
+
+/**
+ * Base de datos Room en memoria y datos comunes para las pruebas de los DAO.
+ * <p>
+ * Los executors de consulta y de transacción son directos: todo, también
+ * las consultas de LiveData y los avisos del {@code InvalidationTracker}, se
+ * ejecuta en el hilo de la prueba, sin esperas ni hilos de fondo.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see AppRoomDatabase
+ */
+final class BaseDatosPrueba {
+
+    static final long MILLIS_DIA = 24L * 60L * 60L * 1000L;
+    /** 1 de enero de 2024 a mediodía UTC */
+    static final long INICIO = 1704110400000L;
+
+    private BaseDatosPrueba() {}
+
+    /**
+     * Crea una base de datos vacía en memoria.
+     *
+     * @return Base de datos; debe cerrarse al terminar la prueba.
+     */
+    static AppRoomDatabase crear() {
+        Context context = ApplicationProvider.getApplicationContext();
+        return Room.inMemoryDatabaseBuilder(context, AppRoomDatabase.class)
+                .allowMainThreadQueries()
+                .setQueryExecutor(Runnable::run)
+                .setTransactionExecutor(Runnable::run)
+                .build();
+    }
+
+    /**
+     * Inserta quads con ids de 1 a {@code n}.
+     *
+     * @param db Base de datos.
+     * @param n Número de quads.
+     */
+    static void insertarQuads(AppRoomDatabase db, int n) {
+        for (int q = 1; q <= n; q++) {
+            db.quadDao().insertQuad(new Quad(TipoQuad.BIPLAZA, 100, matricula(q), "Quad " + q));
+        }
+    }
+
+    /**
+     * @param q Número del quad.
+     * @return Matrícula de prueba, igual en cualquier idioma (p. ej. "0007-QAD").
+     */
+    static String matricula(int q) {
+        return String.format(Locale.ROOT, "%04d-QAD", q);
+    }
+}
@@ -0,0 +1,153 @@
+package es.unizar.eina.notepad.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * Pruebas de {@link CacheEntidades}.
+ * <p>
+ * Comprueban el desalojo LRU al llegar a la capacidad, que una escritura
+ * confirmada en la tabla vacía la caché a través del
+ * {@code InvalidationTracker} y que el fallo siguiente vuelve a leer del DAO.
+ * El observador se registra con un executor directo, así que ya está activo
+ * al crear la caché.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see CacheEntidades
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class CacheEntidadesTest {
+
+    private static final int CAPACIDAD = 3;
+
+    private AppRoomDatabase mDb;
+    private QuadDao mQuadDao;
+    private CacheEntidades<Quad> mCache;
+    private int mCargas;
+
+    @Before
+    public void crearBaseDeDatos() {
+        mDb = BaseDatosPrueba.crear();
+        mQuadDao = mDb.quadDao();
+        BaseDatosPrueba.insertarQuads(mDb, 5);
+        mCache = new CacheEntidades<>(mDb, "quad", CAPACIDAD, Runnable::run);
+    }
+
+    @After
+    public void cerrarBaseDeDatos() {
+        mDb.close();
+    }
+
+    @Test
+    public void unAciertoNoVuelveAlDao() {
+        Quad primero = cargar(1);
+        Quad segundo = cargar(1);
+
+        assertSame(primero, segundo);
+        assertEquals(1, mCargas);
+    }
+
+    @Test
+    public void desalojaElMenosUsadoAlLlegarALaCapacidad() {
+        cargar(1);
+        cargar(2);
+        cargar(3);
+        // Usar el 1 deja el 2 como el menos reciente
+        cargar(1);
+        cargar(4);
+
+        assertEquals(4, mCargas);
+        assertNull(mCache.get(2));
+        assertNotNull(mCache.get(1));
+        assertNotNull(mCache.get(3));
+        assertNotNull(mCache.get(4));
+
+        cargar(2);
+        assertEquals(5, mCargas);
+    }
+
+    @Test
+    public void actualizarInvalidaYElFalloVuelveAlDao() {
+        Quad antes = cargar(1);
+        cargar(2);
+
+        Quad cambiado = mQuadDao.getQuadById(1);
+        cambiado.setPrecio(antes.getPrecio() + 50);
+        mQuadDao.updateQuad(cambiado);
+
+        assertNull(mCache.get(1));
+        assertNull(mCache.get(2));
+        Quad despues = cargar(1);
+        assertEquals(3, mCargas);
+        assertEquals(antes.getPrecio() + 50, despues.getPrecio());
+    }
+
+    @Test
+    public void borrarInvalidaYNoGuardaLosAusentes() {
+        Quad quad = cargar(1);
+
+        mQuadDao.deleteQuad(quad);
+
+        assertNull(mCache.get(1));
+        assertNull(cargar(1));
+        assertNull(cargar(1));
+        // Lo que no existe no se cachea: cada fallo consulta la base de datos
+        assertEquals(3, mCargas);
+    }
+
+    @Test
+    public void escribirOtraTablaNoInvalida() {
+        cargar(1);
+
+        mDb.reservaDao().insertReserva(new Reserva(BaseDatosPrueba.INICIO,
+                BaseDatosPrueba.INICIO + BaseDatosPrueba.MILLIS_DIA, 100.0, 600000000, "Cliente"));
+
+        assertNotNull(mCache.get(1));
+    }
+
+    @Test
+    public void descartarSoloQuitaEsaEntrada() {
+        cargar(1);
+        cargar(2);
+
+        mCache.descartar(1);
+
+        assertNull(mCache.get(1));
+        assertNotNull(mCache.get(2));
+        cargar(1);
+        assertEquals(3, mCargas);
+    }
+
+    @Test
+    public void unaCargaInvalidadaNoSeGuarda() {
+        // La tabla cambia mientras se lee: el valor se devuelve pero no se cachea
+        Quad quad = mCache.get(1, id -> {
+            mCargas++;
+            Quad leido = mQuadDao.getQuadById(id);
+            mCache.invalidar();
+            return leido;
+        });
+
+        assertNotNull(quad);
+        assertNull(mCache.get(1));
+    }
+
+    private Quad cargar(int id) {
+        return mCache.get(id, q -> {
+            mCargas++;
+            return mQuadDao.getQuadById(q);
+        });
+    }
+}
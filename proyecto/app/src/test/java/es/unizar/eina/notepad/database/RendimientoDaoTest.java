@@ -0,0 +1,369 @@
+package es.unizar.eina.notepad.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+import androidx.paging.PagingSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import es.unizar.eina.notepad.domain.FormatoFechas;
+import es.unizar.eina.notepad.domain.TipoQuad;
+import kotlin.coroutines.EmptyCoroutineContext;
+import kotlinx.coroutines.BuildersKt;
+
+/**
+ * Pruebas de rendimiento de las consultas de los DAO con el volumen máximo
+ * del sistema: 100 quads, 20000 reservas y sus asociaciones.
+ * <p>
+ * Se ejecutan en la JVM con Robolectric sobre una base de datos Room en
+ * memoria, así que no necesitan emulador. Cada consulta de lectura se
+ * ejecuta una vez para calentar y {@link #REPETICIONES} veces más; si la
+ * mediana supera su presupuesto, la prueba falla con la lista de consultas
+ * lentas. Las escrituras se miden una sola vez.
+ * </p>
+ * <p>
+ * Los presupuestos están pensados para una máquina de integración continua
+ * normal. En máquinas más lentas se pueden escalar sin tocar el código:
+ * {@code ./gradlew test -PpresupuestoFactor=2}. Para ver el tiempo de todas
+ * las consultas, no solo de las que fallan:
+ * {@code ./gradlew test -PpresupuestoInforme=true}.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see QuadDao
+ * @see ReservaDao
+ * @see ReservaQuadDao
+ * @see AnaliticaDao
+ * @see ContadorDao
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class RendimientoDaoTest {
+
+    private static final int QUADS = 100;
+    private static final int RESERVAS = 20000;
+    private static final int REPETICIONES = 5;
+    private static final long MILLIS_DIA = BaseDatosPrueba.MILLIS_DIA;
+    private static final long INICIO = BaseDatosPrueba.INICIO;
+    private static final int DIAS = 5 * 365;
+
+    /** Factor por el que se multiplican todos los presupuestos */
+    private static final double FACTOR =
+            Double.parseDouble(System.getProperty("bookuad.presupuesto.factor", "1"));
+    /** Si es true se imprimen todas las mediciones; si no, solo aparecen las que fallan */
+    private static final boolean INFORME = Boolean.getBoolean("bookuad.presupuesto.informe");
+
+    /* Presupuestos en milisegundos según el tipo de consulta */
+    private static final long PUNTUAL = 20;
+    private static final long PAGINA = 50;
+    private static final long ESCRITURA = 50;
+    private static final long LISTA = 400;
+    private static final long MASIVA = 3000;
+
+    private static final String[] NOMBRES = {"Ana", "Luis", "Marta", "Pablo", "Lucía",
+            "Javier", "Elena", "Carlos", "Sara", "Diego"};
+    private static final String[] APELLIDOS = {"García", "López", "Martín", "Sánchez",
+            "Pérez", "Gómez", "Ruiz", "Díaz", "Moreno", "Navarro"};
+
+    @Rule
+    public InstantTaskExecutorRule mInstantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private AppRoomDatabase mDb;
+    private QuadDao mQuadDao;
+    private ReservaDao mReservaDao;
+    private ReservaQuadDao mReservaQuadDao;
+    private final List<String> mLentas = new ArrayList<>();
+    /** Resúmenes diarios de los datos generados, por día * (QUADS + 1) + quad */
+    private final Map<Long, ResumenDiario> mResumenes = new HashMap<>();
+
+    @Before
+    public void crearBaseDeDatos() {
+        // Executors directos: cada consulta, también las de LiveData, se mide en este hilo
+        mDb = BaseDatosPrueba.crear();
+        mQuadDao = mDb.quadDao();
+        mReservaDao = mDb.reservaDao();
+        mReservaQuadDao = mDb.reservaQuadDao();
+        poblar();
+    }
+
+    @After
+    public void cerrarBaseDeDatos() {
+        mDb.close();
+    }
+
+    // Datos deterministas: reservas de 1 a 7 días repartidas en cinco años, con 1 a 3 quads
+    private void poblar() {
+        Random random = new Random(42);
+        mDb.runInTransaction(() -> {
+            for (int q = 1; q <= QUADS; q++) {
+                TipoQuad tipo = random.nextBoolean() ? TipoQuad.UNIPLAZA : TipoQuad.BIPLAZA;
+                mQuadDao.insertQuad(new Quad(tipo, 60 + random.nextInt(80),
+                        BaseDatosPrueba.matricula(q), "Quad de prueba " + q));
+            }
+            List<ReservaQuad> lineas = new ArrayList<>();
+            for (int r = 0; r < RESERVAS; r++) {
+                long recogida = INICIO + random.nextInt(DIAS) * MILLIS_DIA;
+                long devolucion = recogida + (1 + random.nextInt(7)) * MILLIS_DIA;
+                String cliente = NOMBRES[random.nextInt(NOMBRES.length)] + " "
+                        + APELLIDOS[random.nextInt(APELLIDOS.length)] + " " + r;
+                double precio = 100.0 + random.nextInt(500);
+                int id = (int) mReservaDao.insertReserva(new Reserva(recogida, devolucion,
+                        precio, 600000000 + r, cliente));
+                int k = 1 + random.nextInt(3);
+                int primero = random.nextInt(QUADS);
+                for (int i = 0; i < k; i++) {
+                    lineas.add(new ReservaQuad(id, 1 + (primero + i) % QUADS, random.nextInt(3)));
+                }
+                acumularResumenes(lineas.subList(lineas.size() - k, lineas.size()), recogida, devolucion, precio);
+            }
+            mReservaDao.insertReservaQuads(lineas);
+        });
+    }
+
+    // Misma aportación que AnaliticaDao.aplicarReserva, calculada en memoria
+    private void acumularResumenes(List<ReservaQuad> lineas, long recogida, long devolucion, double precio) {
+        long desde = FormatoFechas.diaEpoch(recogida);
+        long hasta = Math.max(desde, FormatoFechas.diaEpoch(devolucion));
+        double parte = precio / ((hasta - desde + 1) * lineas.size());
+        for (ReservaQuad linea : lineas) {
+            for (long dia = desde; dia <= hasta; dia++) {
+                long clave = dia * (QUADS + 1) + linea.getQuadId();
+                ResumenDiario actual = mResumenes.get(clave);
+                mResumenes.put(clave, actual == null
+                        ? new ResumenDiario(dia, linea.getQuadId(), parte, 1)
+                        : new ResumenDiario(dia, linea.getQuadId(), actual.getIngresos() + parte,
+                                actual.getDiasReservados() + 1));
+            }
+        }
+    }
+
+    @Test
+    public void consultasQuadDao() {
+        long recogida = INICIO + (DIAS / 2) * MILLIS_DIA;
+        long devolucion = recogida + 3 * MILLIS_DIA;
+
+        medirLiveData("QuadDao.getAllQuads", LISTA, mQuadDao::getAllQuads);
+        medirLiveData("QuadDao.getQuadsPorPrecio", LISTA, mQuadDao::getQuadsPorPrecio);
+        medirLiveData("QuadDao.getQuadsPorTipo", LISTA, mQuadDao::getQuadsPorTipo);
+        medirLiveData("QuadDao.buscarQuads", LISTA,
+                () -> mQuadDao.buscarQuads(BusquedaFts.aConsulta("004")));
+        medirLiveData("QuadDao.buscarQuadsPorPrecio", LISTA,
+                () -> mQuadDao.buscarQuadsPorPrecio(BusquedaFts.aConsulta("004")));
+        medirLiveData("QuadDao.buscarQuadsPorTipo", LISTA,
+                () -> mQuadDao.buscarQuadsPorTipo(BusquedaFts.aConsulta("004")));
+        medir("QuadDao.getQuadById", PUNTUAL, () -> mQuadDao.getQuadById(QUADS / 2));
+        medirLiveData("QuadDao.observeQuadById", PUNTUAL, () -> mQuadDao.observeQuadById(QUADS / 2));
+        medir("QuadDao.getQuadsSync", LISTA, mQuadDao::getQuadsSync);
+        medir("QuadDao.getQuadsDisponibles", LISTA,
+                () -> mQuadDao.getQuadsDisponibles(recogida, devolucion, -1));
+
+        Quad nuevo = new Quad(TipoQuad.BIPLAZA, 120, "9999-NEW", "Quad medido");
+        medirEscritura("QuadDao.insertQuad", ESCRITURA, () -> nuevo.setId((int) mQuadDao.insertQuad(nuevo)));
+        nuevo.setPrecio(130);
+        medirEscritura("QuadDao.updateQuad", ESCRITURA, () -> assertEquals(1, mQuadDao.updateQuad(nuevo)));
+        medirEscritura("QuadDao.deleteQuad", ESCRITURA, () -> assertEquals(1, mQuadDao.deleteQuad(nuevo)));
+        medirEscritura("QuadDao.deleteAll", MASIVA, mQuadDao::deleteAll);
+
+        comprobarPresupuestos();
+    }
+
+    @Test
+    public void consultasReservaDao() {
+        medirLiveData("ReservaDao.getAllReservas", LISTA, mReservaDao::getAllReservas);
+        medirPagina("ReservaDao.getReservasPaginadasPorRecogida", mReservaDao::getReservasPaginadasPorRecogida);
+        medirPagina("ReservaDao.getReservasPaginadasPorDevolucion", mReservaDao::getReservasPaginadasPorDevolucion);
+        medirPagina("ReservaDao.getReservasPaginadasPorCliente", mReservaDao::getReservasPaginadasPorCliente);
+        medirPagina("ReservaDao.buscarReservasPaginadas",
+                () -> mReservaDao.buscarReservasPaginadas(BusquedaFts.aConsulta("Mar Gar")));
+        medir("ReservaDao.getReservaById", PUNTUAL, () -> mReservaDao.getReservaById(RESERVAS / 2));
+        medir("ReservaDao.getReservaCompleta", PUNTUAL, () -> mReservaDao.getReservaCompleta(RESERVAS / 2));
+        medirLiveData("ReservaDao.observeReservaById", PUNTUAL, () -> mReservaDao.observeReservaById(RESERVAS / 2));
+        medirLiveData("ReservaDao.observeReservaCompleta", PUNTUAL,
+                () -> mReservaDao.observeReservaCompleta(RESERVAS / 2));
+
+        Reserva nueva = new Reserva(INICIO, INICIO + MILLIS_DIA, 90.0, 611111111, "Reserva medida");
+        medirEscritura("ReservaDao.insertReserva", ESCRITURA,
+                () -> nueva.setId((int) mReservaDao.insertReserva(nueva)));
+        nueva.setPrecioTotal(95.0);
+        medirEscritura("ReservaDao.updateReserva", ESCRITURA,
+                () -> assertEquals(1, mReservaDao.updateReserva(nueva)));
+        medirEscritura("ReservaDao.insertReservaQuads", ESCRITURA,
+                () -> mReservaDao.insertReservaQuads(Arrays.asList(
+                        new ReservaQuad(nueva.getId(), 1, 1), new ReservaQuad(nueva.getId(), 2, 0))));
+        medirEscritura("ReservaDao.deleteReserva", ESCRITURA,
+                () -> assertEquals(1, mReservaDao.deleteReserva(nueva)));
+        Reserva conQuads = new Reserva(INICIO, INICIO + MILLIS_DIA, 90.0, 611111112, "Reserva medida");
+        medirEscritura("ReservaDao.insertReservaConQuads", ESCRITURA,
+                () -> assertTrue(mReservaDao.insertReservaConQuads(conQuads,
+                        Arrays.asList(new ReservaQuad(0, 3, 1), new ReservaQuad(0, 4, 1))) > 0));
+        medirEscritura("ReservaDao.deleteAll", MASIVA, mReservaDao::deleteAll);
+
+        comprobarPresupuestos();
+    }
+
+    @Test
+    public void consultasReservaQuadDao() {
+        int reservaId = RESERVAS / 2;
+        ReservaQuad existente = mReservaQuadDao.getQuadsByReservaId(reservaId).get(0);
+        int quadId = existente.getQuadId();
+
+        medirLiveData("ReservaQuadDao.getAllReservaQuads", LISTA, mReservaQuadDao::getAllReservaQuads);
+        medir("ReservaQuadDao.getQuadsByReservaId", PUNTUAL, () -> mReservaQuadDao.getQuadsByReservaId(reservaId));
+        medirLiveData("ReservaQuadDao.observeQuadsByReservaId", PUNTUAL,
+                () -> mReservaQuadDao.observeQuadsByReservaId(reservaId));
+        medir("ReservaQuadDao.getReservasByQuadId", PUNTUAL, () -> mReservaQuadDao.getReservasByQuadId(quadId));
+        medir("ReservaQuadDao.getByReservaAndQuad", PUNTUAL,
+                () -> mReservaQuadDao.getByReservaAndQuad(reservaId, quadId));
+        medir("ReservaQuadDao.getById", PUNTUAL, () -> mReservaQuadDao.getById(existente.getId()));
+        medir("ReservaQuadDao.getQuadIdsByReservaId", PUNTUAL,
+                () -> mReservaQuadDao.getQuadIdsByReservaId(reservaId));
+        medir("ReservaQuadDao.getIntervalos", LISTA, mReservaQuadDao::getIntervalos);
+        medir("ReservaQuadDao.getIntervalosByQuadId", PUNTUAL,
+                () -> mReservaQuadDao.getIntervalosByQuadId(quadId));
+
+        ReservaQuad nueva = new ReservaQuad(reservaId, 1 + quadId % QUADS, 0);
+        medirEscritura("ReservaQuadDao.insert", ESCRITURA, () -> nueva.setId((int) mReservaQuadDao.insert(nueva)));
+        nueva.setNumCascos(2);
+        medirEscritura("ReservaQuadDao.update", ESCRITURA, () -> assertEquals(1, mReservaQuadDao.update(nueva)));
+        medirEscritura("ReservaQuadDao.delete", ESCRITURA, () -> assertEquals(1, mReservaQuadDao.delete(nueva)));
+        List<ReservaQuad> lote = Arrays.asList(new ReservaQuad(reservaId, 1 + (quadId + 10) % QUADS, 0),
+                new ReservaQuad(reservaId, 1 + (quadId + 20) % QUADS, 1));
+        medirEscritura("ReservaQuadDao.insertLineas", ESCRITURA, () -> {
+            long[] ids = mReservaQuadDao.insertLineas(lote);
+            for (int i = 0; i < ids.length; i++) lote.get(i).setId((int) ids[i]);
+        });
+        for (ReservaQuad rq : lote) rq.setNumCascos(2);
+        medirEscritura("ReservaQuadDao.updateLineas", ESCRITURA,
+                () -> assertEquals(lote.size(), mReservaQuadDao.updateLineas(lote)));
+        medirEscritura("ReservaQuadDao.deleteLineas", ESCRITURA,
+                () -> assertEquals(lote.size(), mReservaQuadDao.deleteLineas(lote)));
+        List<ReservaQuad> deseadas = Arrays.asList(new ReservaQuad(0, quadId, existente.getNumCascos() + 1),
+                new ReservaQuad(0, 1 + (quadId + QUADS / 2) % QUADS, 0));
+        medirEscritura("ReservaQuadDao.sincronizarLineas", ESCRITURA,
+                () -> assertTrue(mReservaQuadDao.sincronizarLineas(reservaId, deseadas) > 0));
+        medirEscritura("ReservaQuadDao.deleteByReservaId", ESCRITURA,
+                () -> mReservaQuadDao.deleteByReservaId(reservaId));
+        medirEscritura("ReservaQuadDao.deleteByQuadId", ESCRITURA, () -> mReservaQuadDao.deleteByQuadId(quadId));
+        medirEscritura("ReservaQuadDao.deleteAll", MASIVA, mReservaQuadDao::deleteAll);
+
+        comprobarPresupuestos();
+    }
+
+    @Test
+    public void consultasAnaliticaDao() {
+        AnaliticaDao analiticaDao = mDb.analiticaDao();
+        mDb.runInTransaction(() -> {
+            for (ResumenDiario resumen : mResumenes.values()) analiticaDao.insertar(resumen);
+        });
+        // Un año a mitad de los datos: 365 días × QUADS filas como mucho
+        long desde = FormatoFechas.diaEpoch(INICIO) + DIAS / 2;
+        long hasta = desde + 364;
+
+        medir("AnaliticaDao.getIngresosDiarios", LISTA, () -> analiticaDao.getIngresosDiarios(desde, hasta));
+        medir("AnaliticaDao.getIngresosMensuales", LISTA, () -> analiticaDao.getIngresosMensuales(desde, hasta));
+        medir("AnaliticaDao.getIngresosTotales", LISTA, () -> analiticaDao.getIngresosTotales(desde, hasta));
+        medir("AnaliticaDao.getUtilizacion", LISTA, () -> analiticaDao.getUtilizacion(desde, hasta));
+        medirEscritura("AnaliticaDao.aplicarReserva", ESCRITURA,
+                () -> analiticaDao.aplicarReserva(RESERVAS / 2, -1));
+
+        comprobarPresupuestos();
+    }
+
+    @Test
+    public void consultasContadorDao() {
+        ContadorDao contadorDao = mDb.contadorDao();
+
+        medir("ContadorDao.getTotal(quad)", PUNTUAL, () -> contadorDao.getTotal(Contador.QUADS));
+        medir("ContadorDao.getTotal(reserva)", PUNTUAL, () -> contadorDao.getTotal(Contador.RESERVAS));
+
+        comprobarPresupuestos();
+    }
+
+    // Lectura síncrona: calentamiento y mediana de REPETICIONES ejecuciones
+    private void medir(String consulta, long presupuestoMs, Supplier<?> lectura) {
+        lectura.get();
+        long[] tiempos = new long[REPETICIONES];
+        for (int i = 0; i < REPETICIONES; i++) {
+            long inicio = System.nanoTime();
+            lectura.get();
+            tiempos[i] = System.nanoTime() - inicio;
+        }
+        registrar(consulta, presupuestoMs, mediana(tiempos));
+    }
+
+    // LiveData: desde que se observa hasta que se entrega el primer valor
+    private <T> void medirLiveData(String consulta, long presupuestoMs, Supplier<LiveData<T>> fuente) {
+        medir(consulta, presupuestoMs, () -> {
+            LiveData<T> datos = fuente.get();
+            Observer<T> observador = valor -> { };
+            datos.observeForever(observador);
+            T valor = datos.getValue();
+            datos.removeObserver(observador);
+            if (valor == null) fail(consulta + " no entregó ningún valor");
+            return valor;
+        });
+    }
+
+    // Paginación: carga inicial de una página como la de la lista de reservas
+    private void medirPagina(String consulta, Supplier<PagingSource<Integer, Reserva>> fuente) {
+        medir(consulta, PAGINA, () -> {
+            PagingSource.LoadParams.Refresh<Integer> params = new PagingSource.LoadParams.Refresh<>(null, 30, false);
+            PagingSource<Integer, Reserva> paginas = fuente.get();
+            PagingSource.LoadResult<Integer, Reserva> resultado;
+            try {
+                resultado = BuildersKt.<PagingSource.LoadResult<Integer, Reserva>>runBlocking(EmptyCoroutineContext.INSTANCE,
+                        (scope, continuacion) -> paginas.load(params, continuacion));
+            } catch (InterruptedException ex) {
+                throw new AssertionError(consulta + " interrumpida", ex);
+            }
+            if (!(resultado instanceof PagingSource.LoadResult.Page)) {
+                fail(consulta + " no devolvió una página: " + resultado);
+            }
+            return resultado;
+        });
+    }
+
+    private void medirEscritura(String consulta, long presupuestoMs, Runnable escritura) {
+        long inicio = System.nanoTime();
+        escritura.run();
+        registrar(consulta, presupuestoMs, System.nanoTime() - inicio);
+    }
+
+    private void registrar(String consulta, long presupuestoMs, long nanos) {
+        double ms = nanos / 1e6;
+        double limite = presupuestoMs * FACTOR;
+        if (INFORME) System.out.printf(Locale.ROOT, "%-48s %8.2f ms (presupuesto %.0f ms)%n", consulta, ms, limite);
+        if (ms > limite) mLentas.add(String.format(Locale.ROOT, "%s: %.2f ms > %.0f ms", consulta, ms, limite));
+    }
+
+    private void comprobarPresupuestos() {
+        if (!mLentas.isEmpty()) fail("Consultas fuera de presupuesto:\n" + String.join("\n", mLentas));
+    }
+
+    private static long mediana(long[] tiempos) {
+        long[] ordenados = tiempos.clone();
+        Arrays.sort(ordenados);
+        return ordenados[ordenados.length / 2];
+    }
+}
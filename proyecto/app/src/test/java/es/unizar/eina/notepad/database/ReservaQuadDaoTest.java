@@ -0,0 +1,128 @@
+package es.unizar.eina.notepad.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pruebas de {@link ReservaQuadDao#sincronizarLineas}.
+ * <p>
+ * Comprueban que solo se escriben las diferencias: las asociaciones que no
+ * cambian conservan su id, un cambio solo de cascos es una actualización y
+ * las filas repetidas de un mismo quad se eliminan.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see ReservaQuadDao
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ReservaQuadDaoTest {
+
+    private AppRoomDatabase mDb;
+    private ReservaQuadDao mReservaQuadDao;
+    private int mReservaId;
+
+    @Before
+    public void crearBaseDeDatos() {
+        mDb = BaseDatosPrueba.crear();
+        mReservaQuadDao = mDb.reservaQuadDao();
+        BaseDatosPrueba.insertarQuads(mDb, 4);
+        mReservaId = (int) mDb.reservaDao().insertReserva(new Reserva(BaseDatosPrueba.INICIO,
+                BaseDatosPrueba.INICIO + BaseDatosPrueba.MILLIS_DIA, 100.0, 600000000, "Cliente"));
+    }
+
+    @After
+    public void cerrarBaseDeDatos() {
+        mDb.close();
+    }
+
+    @Test
+    public void lasFilasSinCambiosConservanSuId() {
+        mReservaQuadDao.insertLineas(Arrays.asList(linea(1, 0), linea(2, 1)));
+        Map<Integer, ReservaQuad> antes = porQuad();
+
+        int filas = mReservaQuadDao.sincronizarLineas(mReservaId, Arrays.asList(linea(2, 1), linea(1, 0)));
+
+        assertEquals(0, filas);
+        Map<Integer, ReservaQuad> despues = porQuad();
+        assertEquals(2, despues.size());
+        assertEquals(antes.get(1).getId(), despues.get(1).getId());
+        assertEquals(antes.get(2).getId(), despues.get(2).getId());
+    }
+
+    @Test
+    public void soloCambiarCascosEsUnaActualizacion() {
+        mReservaQuadDao.insertLineas(Arrays.asList(linea(1, 0), linea(2, 1)));
+        Map<Integer, ReservaQuad> antes = porQuad();
+
+        int filas = mReservaQuadDao.sincronizarLineas(mReservaId, Arrays.asList(linea(1, 2), linea(2, 1)));
+
+        assertEquals(1, filas);
+        Map<Integer, ReservaQuad> despues = porQuad();
+        assertEquals(2, despues.size());
+        assertEquals(antes.get(1).getId(), despues.get(1).getId());
+        assertEquals(2, despues.get(1).getNumCascos());
+        assertEquals(antes.get(2).getId(), despues.get(2).getId());
+        assertEquals(1, despues.get(2).getNumCascos());
+    }
+
+    @Test
+    public void seEliminanLasFilasRepetidasDeUnQuad() {
+        mReservaQuadDao.insertLineas(Arrays.asList(linea(1, 1), linea(1, 1), linea(2, 0)));
+        assertEquals(3, mReservaQuadDao.getQuadsByReservaId(mReservaId).size());
+
+        int filas = mReservaQuadDao.sincronizarLineas(mReservaId, Arrays.asList(linea(1, 1), linea(2, 0)));
+
+        assertEquals(1, filas);
+        List<ReservaQuad> despues = mReservaQuadDao.getQuadsByReservaId(mReservaId);
+        assertEquals(2, despues.size());
+        assertNotEquals(despues.get(0).getQuadId(), despues.get(1).getQuadId());
+    }
+
+    @Test
+    public void seInsertanYEliminanLasDiferencias() {
+        mReservaQuadDao.insertLineas(Arrays.asList(linea(1, 0), linea(2, 0)));
+        Map<Integer, ReservaQuad> antes = porQuad();
+
+        int filas = mReservaQuadDao.sincronizarLineas(mReservaId, Arrays.asList(linea(2, 0), linea(3, 1)));
+
+        assertEquals(2, filas);
+        Map<Integer, ReservaQuad> despues = porQuad();
+        assertEquals(2, despues.size());
+        assertEquals(antes.get(2).getId(), despues.get(2).getId());
+        assertEquals(1, despues.get(3).getNumCascos());
+        assertEquals(mReservaId, despues.get(3).getReservaId());
+    }
+
+    @Test
+    public void conListaVaciaSeEliminanTodas() {
+        mReservaQuadDao.insertLineas(Arrays.asList(linea(1, 0), linea(2, 0)));
+
+        assertEquals(2, mReservaQuadDao.sincronizarLineas(mReservaId, Collections.emptyList()));
+        assertEquals(0, mReservaQuadDao.getQuadsByReservaId(mReservaId).size());
+    }
+
+    private ReservaQuad linea(int quadId, int cascos) {
+        return new ReservaQuad(mReservaId, quadId, cascos);
+    }
+
+    private Map<Integer, ReservaQuad> porQuad() {
+        Map<Integer, ReservaQuad> mapa = new HashMap<>();
+        for (ReservaQuad rq : mReservaQuadDao.getQuadsByReservaId(mReservaId)) mapa.put(rq.getQuadId(), rq);
+        return mapa;
+    }
+}
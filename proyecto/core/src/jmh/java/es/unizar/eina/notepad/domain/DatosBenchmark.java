@@ -0,0 +1,93 @@
+package es.unizar.eina.notepad.domain;
+
+import java.util.Random;
+
+/**
+ * Datos sintéticos para los benchmarks, al tamaño máximo del sistema.
+ * <p>
+ * 100 quads (R.N.F. 1) y 20000 reservas (R.N.F. 2) repartidas en cinco
+ * años, de 1 a 7 días y de 1 a 3 quads cada una. La semilla es fija para
+ * que todas las ejecuciones midan exactamente los mismos datos.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ */
+final class DatosBenchmark {
+
+    static final int QUADS = 100;
+    static final int RESERVAS = 20000;
+    static final long MILLIS_DIA = 24L * 60L * 60L * 1000L;
+    /** 1 de enero de 2024 a mediodía UTC */
+    static final long INICIO = 1704110400000L;
+    static final int DIAS = 5 * 365;
+
+    /** Precio por día de cada quad (índice = id - 1) */
+    final int[] precios = new int[QUADS];
+    /** Tipo de cada quad: 0 uniplaza, 1 biplaza */
+    final int[] tipos = new int[QUADS];
+    final long[] recogidas = new long[RESERVAS];
+    final long[] devoluciones = new long[RESERVAS];
+    /** Quads de cada reserva en formato CSR: inicios[r]..inicios[r + 1] */
+    final int[] inicios = new int[RESERVAS + 1];
+    final int[] quadIds;
+
+    DatosBenchmark() {
+        Random random = new Random(42);
+        for (int q = 0; q < QUADS; q++) {
+            precios[q] = 60 + random.nextInt(80);
+            tipos[q] = random.nextInt(2);
+        }
+        int[] buffer = new int[RESERVAS * 3];
+        int n = 0;
+        for (int r = 0; r < RESERVAS; r++) {
+            recogidas[r] = INICIO + random.nextInt(DIAS) * MILLIS_DIA;
+            devoluciones[r] = recogidas[r] + (1 + random.nextInt(7)) * MILLIS_DIA;
+            inicios[r] = n;
+            int k = 1 + random.nextInt(3);
+            int primero = 1 + random.nextInt(QUADS);
+            for (int i = 0; i < k; i++) buffer[n++] = 1 + (primero - 1 + i) % QUADS;
+        }
+        inicios[RESERVAS] = n;
+        quadIds = new int[n];
+        System.arraycopy(buffer, 0, quadIds, 0, n);
+    }
+
+    TablaPrecios tablaPrecios() {
+        TablaPrecios tabla = new TablaPrecios(QUADS);
+        for (int q = 0; q < QUADS; q++) tabla.put(q + 1, precios[q]);
+        return tabla;
+    }
+
+    /** Ejecuta una acción por cada quad con sus intervalos, en el formato de los índices. */
+    void porQuad(AccionQuad accion) {
+        int[] cuenta = new int[QUADS + 1];
+        for (int id : quadIds) cuenta[id]++;
+        int[][] reservas = new int[QUADS + 1][];
+        for (int q = 1; q <= QUADS; q++) reservas[q] = new int[cuenta[q]];
+        int[] lleno = new int[QUADS + 1];
+        for (int r = 0; r < RESERVAS; r++) {
+            for (int i = inicios[r]; i < inicios[r + 1]; i++) {
+                int q = quadIds[i];
+                reservas[q][lleno[q]++] = r;
+            }
+        }
+        for (int q = 1; q <= QUADS; q++) {
+            int n = reservas[q].length;
+            int[] ids = new int[n];
+            long[] desde = new long[n];
+            long[] hasta = new long[n];
+            for (int i = 0; i < n; i++) {
+                int r = reservas[q][i];
+                ids[i] = r + 1;
+                desde[i] = recogidas[r];
+                hasta[i] = devoluciones[r];
+            }
+            accion.aplicar(q, tipos[q - 1], ids, desde, hasta, n);
+        }
+    }
+
+    interface AccionQuad {
+        void aplicar(int quadId, int tipo, int[] reservaIds, long[] desde, long[] hasta, int n);
+    }
+}
@@ -0,0 +1,53 @@
+package es.unizar.eina.notepad.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks del formateo y análisis de fechas.
+ * <p>
+ * {@code formatearLista} formatea las fechas de las 20000 reservas, como
+ * al recorrer toda la lista; {@code parsear} interpreta una fecha escrita.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see FormatoFechas
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FechasBenchmark {
+
+    private DatosBenchmark mDatos;
+
+    @Setup
+    public void preparar() {
+        mDatos = new DatosBenchmark();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int formatearLista() {
+        int longitud = 0;
+        for (long recogida : mDatos.recogidas) longitud += FormatoFechas.medio(recogida).length();
+        return longitud;
+    }
+
+    @Benchmark
+    public long parsear() {
+        return FormatoFechas.parsear("2025-03-05", 0L);
+    }
+
+    @Benchmark
+    public long diaEpoch() {
+        return FormatoFechas.diaEpoch(DatosBenchmark.INICIO);
+    }
+}
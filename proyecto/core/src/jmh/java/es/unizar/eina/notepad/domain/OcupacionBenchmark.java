@@ -0,0 +1,88 @@
+package es.unizar.eina.notepad.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks de disponibilidad y detección de solapes con 100 quads y
+ * 20000 reservas.
+ * <p>
+ * Mide la construcción completa de {@link IndiceOcupacion} y de
+ * {@link ValidadorConflictos} (lo que se hace al abrir la aplicación) y las
+ * consultas que se hacen al editar una reserva.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see IndiceOcupacion
+ * @see ValidadorConflictos
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OcupacionBenchmark {
+
+    private DatosBenchmark mDatos;
+    private IndiceOcupacion mIndice;
+    private ValidadorConflictos mValidador;
+    private final List<Integer> mSeleccion = Arrays.asList(7, 42, 93);
+    private long mDia;
+
+    @Setup
+    public void preparar() {
+        mDatos = new DatosBenchmark();
+        mIndice = construirIndice();
+        mValidador = construirValidador();
+        mDia = DatosBenchmark.INICIO / DatosBenchmark.MILLIS_DIA + DatosBenchmark.DIAS / 2;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public IndiceOcupacion construirIndice() {
+        IndiceOcupacion indice = new IndiceOcupacion();
+        mDatos.porQuad((quadId, tipo, reservaIds, desde, hasta, n) -> {
+            long[] diasDesde = new long[n];
+            long[] diasHasta = new long[n];
+            for (int i = 0; i < n; i++) {
+                diasDesde[i] = desde[i] / DatosBenchmark.MILLIS_DIA;
+                diasHasta[i] = hasta[i] / DatosBenchmark.MILLIS_DIA;
+            }
+            indice.reemplazarQuad(quadId, tipo, diasDesde, diasHasta, n);
+        });
+        return indice;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public ValidadorConflictos construirValidador() {
+        ValidadorConflictos validador = new ValidadorConflictos();
+        mDatos.porQuad((quadId, tipo, reservaIds, desde, hasta, n) ->
+                validador.reemplazarQuad(quadId, reservaIds, desde, hasta, n));
+        return validador;
+    }
+
+    @Benchmark
+    public boolean estaLibreUnaSemana() {
+        return mIndice.estaLibre(42, mDia, mDia + 6);
+    }
+
+    @Benchmark
+    public int contarLibresBiplaza() {
+        return mIndice.contarLibres(1, mDia);
+    }
+
+    @Benchmark
+    public int conflictosSeleccion() {
+        long desde = mDia * DatosBenchmark.MILLIS_DIA;
+        return mValidador.buscar(mSeleccion, desde, desde + 3 * DatosBenchmark.MILLIS_DIA, -1).size();
+    }
+}
@@ -0,0 +1,54 @@
+package es.unizar.eina.notepad.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks del cálculo de precios.
+ * <p>
+ * {@code totalSeleccion} es lo que hace ReservaEdit en cada pulsación;
+ * {@code totalesTodas} recalcula el precio de las 20000 reservas de una vez.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see CalculadoraPrecios
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PreciosBenchmark {
+
+    private DatosBenchmark mDatos;
+    private TablaPrecios mTabla;
+    private double[] mTotales;
+    private final int[] mSeleccion = {7, 42, 93};
+
+    @Setup
+    public void preparar() {
+        mDatos = new DatosBenchmark();
+        mTabla = mDatos.tablaPrecios();
+        mTotales = new double[DatosBenchmark.RESERVAS];
+    }
+
+    @Benchmark
+    public double totalSeleccion() {
+        return CalculadoraPrecios.total(mTabla, mSeleccion, mSeleccion.length,
+                DatosBenchmark.INICIO, DatosBenchmark.INICIO + 3 * DatosBenchmark.MILLIS_DIA);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double[] totalesTodas() {
+        CalculadoraPrecios.totales(mTabla, mDatos.recogidas, mDatos.devoluciones,
+                mDatos.inicios, mDatos.quadIds, mTotales);
+        return mTotales;
+    }
+}
@@ -0,0 +1,105 @@
+package es.unizar.eina.notepad.domain;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cálculo del precio de las reservas a partir de una {@link TablaPrecios}.
+ * <p>
+ * El precio de una reserva es la suma, para cada quad, de su precio por día
+ * multiplicado por el número de días. Un alquiler de menos de un día se
+ * cobra como un día completo.
+ * </p>
+ * <p>
+ * Los métodos trabajan sobre arrays primitivos y no reservan memoria, por
+ * lo que pueden llamarse en cada pulsación de la interfaz. El cálculo en
+ * bloque usa un formato compacto por filas (CSR): los quads de todas las
+ * reservas van seguidos en un único array y un array de inicios indica
+ * dónde empieza cada reserva.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see TablaPrecios
+ */
+public final class CalculadoraPrecios {
+
+    private CalculadoraPrecios() {}
+
+    /**
+     * Número de días que se cobran entre dos fechas.
+     *
+     * @param recogida Fecha de recogida en milisegundos.
+     * @param devolucion Fecha de devolución en milisegundos.
+     * @return Días completos entre ambas fechas, como mínimo 1.
+     */
+    public static long dias(long recogida, long devolucion) {
+        long dias = TimeUnit.MILLISECONDS.toDays(devolucion - recogida);
+        return dias <= 0 ? 1 : dias;
+    }
+
+    /**
+     * Precio total de un conjunto de quads durante un número de días.
+     * <p>
+     * Los quads que no estén en la tabla no suman nada.
+     * </p>
+     *
+     * @param tabla Precios por día de los quads.
+     * @param quadIds Identificadores de los quads seleccionados.
+     * @param n Número de posiciones válidas de {@code quadIds}.
+     * @param dias Días que se cobran.
+     * @return Precio total en euros.
+     */
+    public static double total(TablaPrecios tabla, int[] quadIds, int n, long dias) {
+        return (double) sumaPorDia(tabla, quadIds, 0, n) * dias;
+    }
+
+    /**
+     * Precio total de un conjunto de quads entre dos fechas.
+     *
+     * @param tabla Precios por día de los quads.
+     * @param quadIds Identificadores de los quads seleccionados.
+     * @param n Número de posiciones válidas de {@code quadIds}.
+     * @param recogida Fecha de recogida en milisegundos.
+     * @param devolucion Fecha de devolución en milisegundos.
+     * @return Precio total en euros.
+     */
+    public static double total(TablaPrecios tabla, int[] quadIds, int n, long recogida, long devolucion) {
+        return total(tabla, quadIds, n, dias(recogida, devolucion));
+    }
+
+    /**
+     * Recalcula en bloque el precio de varias reservas.
+     * <p>
+     * Los quads de la reserva {@code r} son
+     * {@code quadIds[inicios[r]] .. quadIds[inicios[r + 1] - 1]}, por lo que
+     * {@code inicios} tiene una posición más que reservas.
+     * </p>
+     *
+     * @param tabla Precios por día de los quads.
+     * @param recogidas Fecha de recogida de cada reserva en milisegundos.
+     * @param devoluciones Fecha de devolución de cada reserva en milisegundos.
+     * @param inicios Inicio de los quads de cada reserva en {@code quadIds}.
+     * @param quadIds Quads de todas las reservas, seguidos.
+     * @param totales Array donde se escribe el precio de cada reserva.
+     */
+    public static void totales(TablaPrecios tabla, long[] recogidas, long[] devoluciones,
+                               int[] inicios, int[] quadIds, double[] totales) {
+        int reservas = recogidas.length;
+        if (devoluciones.length != reservas || inicios.length != reservas + 1 || totales.length < reservas) {
+            throw new IllegalArgumentException("Tamaños de los arrays inconsistentes");
+        }
+        for (int r = 0; r < reservas; r++) {
+            long porDia = sumaPorDia(tabla, quadIds, inicios[r], inicios[r + 1]);
+            totales[r] = (double) porDia * dias(recogidas[r], devoluciones[r]);
+        }
+    }
+
+    private static long sumaPorDia(TablaPrecios tabla, int[] quadIds, int desde, int hasta) {
+        long suma = 0;
+        for (int i = desde; i < hasta; i++) {
+            int precio = tabla.get(quadIds[i]);
+            if (precio != TablaPrecios.SIN_PRECIO) suma += precio;
+        }
+        return suma;
+    }
+}
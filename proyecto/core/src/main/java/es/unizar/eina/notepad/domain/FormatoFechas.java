@@ -0,0 +1,171 @@
+package es.unizar.eina.notepad.domain;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.FormatStyle;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Formateo y análisis de fechas compartido por toda la aplicación.
+ * <p>
+ * Usa formateadores inmutables de {@code java.time}, que son thread-safe y
+ * se crean una sola vez por idioma, en lugar de construir un
+ * {@code DateFormat} o {@code SimpleDateFormat} en cada llamada.
+ * </p>
+ * <p>
+ * Las fechas formateadas se memorizan por día (días desde la época en la
+ * zona horaria local) en una caché de correspondencia directa: todas las
+ * reservas del mismo día comparten la misma cadena y las listas no vuelven
+ * a formatear al hacer scroll. Cada posición de la caché es un objeto
+ * inmutable, así que varios hilos pueden leerla y escribirla sin bloqueos.
+ * </p>
+ * <p>
+ * Si cambian el idioma o la zona horaria del sistema debe llamarse a
+ * {@link #reiniciar()}; el cambio de idioma también se detecta solo.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ */
+public final class FormatoFechas {
+
+    private static final long MILLIS_DIA = 24L * 60L * 60L * 1000L;
+    /** Número de días memorizados por estilo (potencia de 2) */
+    private static final int TAM_CACHE = 1024;
+
+    private static final DateTimeFormatter ISO = DateTimeFormatter.ISO_LOCAL_DATE;
+    // Solo para leer: acepta día y mes con uno o dos dígitos ("5/3/2025" y "05/03/2025")
+    private static final DateTimeFormatter DIA_MES_ANO = DateTimeFormatter.ofPattern("d/M/yyyy");
+
+    private static volatile Estado sEstado;
+
+    private FormatoFechas() {}
+
+    /**
+     * Formatea una fecha con el estilo medio del idioma actual (p. ej. "5 mar 2025").
+     * @param millis Timestamp en milisegundos.
+     * @return Fecha formateada.
+     */
+    public static String medio(long millis) {
+        return estado().medio.formatear(millis);
+    }
+
+    /**
+     * Formatea una fecha con el estilo corto del idioma actual (p. ej. "5/3/25").
+     * @param millis Timestamp en milisegundos.
+     * @return Fecha formateada.
+     */
+    public static String corto(long millis) {
+        return estado().corto.formatear(millis);
+    }
+
+    /**
+     * Día al que pertenece un instante en la zona horaria local.
+     * <p>
+     * Tiene en cuenta el horario de verano del propio instante.
+     * </p>
+     * @param millis Timestamp en milisegundos.
+     * @return Días transcurridos desde el 1 de enero de 1970.
+     */
+    public static long diaEpoch(long millis) {
+        Estado e = estado();
+        return Math.floorDiv(millis + e.zona.getOffset(millis), MILLIS_DIA);
+    }
+
+    /**
+     * Convierte una cadena de fecha a timestamp en milisegundos.
+     * <p>
+     * Acepta milisegundos numéricos, yyyy-MM-dd, d/M/yyyy y el formato
+     * corto del idioma actual. Las fechas se interpretan al inicio del día
+     * en la zona horaria local.
+     * </p>
+     *
+     * @param s Cadena con la fecha.
+     * @param porDefecto Valor a devolver si no se puede interpretar.
+     * @return Timestamp en milisegundos, o {@code porDefecto}.
+     */
+    public static long parsear(String s, long porDefecto) {
+        if (s == null) return porDefecto;
+        s = s.trim();
+        if (s.isEmpty()) return porDefecto;
+        try {
+            return Long.parseLong(s);
+        } catch (NumberFormatException ignored) {}
+        Estado e = estado();
+        for (DateTimeFormatter f : new DateTimeFormatter[] {ISO, DIA_MES_ANO, e.corto.formateador}) {
+            try {
+                return LocalDate.parse(s, f).atStartOfDay(e.zonaId).toInstant().toEpochMilli();
+            } catch (DateTimeParseException ignored) {}
+        }
+        return porDefecto;
+    }
+
+    /** Descarta los formateadores y fechas memorizadas (cambio de idioma o zona horaria). */
+    public static void reiniciar() {
+        sEstado = null;
+    }
+
+    private static Estado estado() {
+        Estado e = sEstado;
+        Locale locale = Locale.getDefault();
+        if (e == null || !e.locale.equals(locale)) {
+            e = new Estado(locale, TimeZone.getDefault());
+            sEstado = e;
+        }
+        return e;
+    }
+
+    // Formateadores y cachés para un idioma y una zona horaria concretos
+    private static final class Estado {
+        final Locale locale;
+        final TimeZone zona;
+        final ZoneId zonaId;
+        final Cache medio;
+        final Cache corto;
+
+        Estado(Locale locale, TimeZone zona) {
+            this.locale = locale;
+            this.zona = zona;
+            this.zonaId = zona.toZoneId();
+            this.medio = new Cache(DateTimeFormatter.ofLocalizedDate(FormatStyle.MEDIUM).withLocale(locale));
+            this.corto = new Cache(DateTimeFormatter.ofLocalizedDate(FormatStyle.SHORT).withLocale(locale));
+        }
+
+        // Caché de correspondencia directa día -> texto para un estilo
+        final class Cache {
+            final DateTimeFormatter formateador;
+            private final Entrada[] mEntradas = new Entrada[TAM_CACHE];
+
+            Cache(DateTimeFormatter formateador) {
+                this.formateador = formateador;
+            }
+
+            String formatear(long millis) {
+                long dia = Math.floorDiv(millis + zona.getOffset(millis), MILLIS_DIA);
+                int i = (int) (dia & (TAM_CACHE - 1));
+                Entrada entrada = mEntradas[i];
+                if (entrada == null || entrada.dia != dia) {
+                    String texto = formateador.format(Instant.ofEpochMilli(millis).atZone(zonaId).toLocalDate());
+                    entrada = new Entrada(dia, texto);
+                    mEntradas[i] = entrada;
+                }
+                return entrada.texto;
+            }
+        }
+    }
+
+    // Inmutable: una entrada publicada siempre es coherente aunque se lea desde otro hilo
+    private static final class Entrada {
+        final long dia;
+        final String texto;
+
+        Entrada(long dia, String texto) {
+            this.dia = dia;
+            this.texto = texto;
+        }
+    }
+}
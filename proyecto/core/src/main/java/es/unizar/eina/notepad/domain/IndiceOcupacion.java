@@ -0,0 +1,214 @@
+package es.unizar.eina.notepad.domain;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice en memoria de los días ocupados de cada quad.
+ * <p>
+ * Cada quad tiene un conjunto de bits sobre días desde la época (un bit por
+ * día, 64 días por {@code long}). Un bit a 1 indica que el quad pertenece a
+ * alguna reserva ese día. Las consultas de disponibilidad, conflictos y
+ * ocupación se resuelven con operaciones sobre palabras completas, sin
+ * acceder a SQLite.
+ * </p>
+ * <p>
+ * Cada fila solo cubre el rango de palabras entre su primer y su último día
+ * ocupado: 100 quads con cinco años de reservas ocupan unos 100 × 29
+ * palabras × 8 bytes ≈ 23 KB.
+ * </p>
+ * <p>
+ * Es thread-safe: las consultas toman el cerrojo de lectura y las
+ * modificaciones el de escritura. Los tipos de quad se guardan como enteros
+ * (el ordinal de {@link TipoQuad}) para no reservar memoria por consulta.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see FormatoFechas#diaEpoch(long)
+ */
+public final class IndiceOcupacion {
+
+    private final ReadWriteLock mLock = new ReentrantReadWriteLock();
+    private final Map<Integer, Fila> mFilas = new HashMap<>();
+
+    /**
+     * Sustituye por completo la ocupación de un quad.
+     * <p>
+     * Los intervalos son cerrados: {@code desde[i]..hasta[i]}, ambos incluidos.
+     * </p>
+     *
+     * @param quadId Identificador del quad.
+     * @param tipo Tipo del quad (ordinal de {@link TipoQuad}).
+     * @param desde Primer día de cada intervalo (días desde la época).
+     * @param hasta Último día de cada intervalo (días desde la época).
+     * @param n Número de intervalos válidos.
+     */
+    public void reemplazarQuad(int quadId, int tipo, long[] desde, long[] hasta, int n) {
+        Fila fila = new Fila(tipo);
+        for (int i = 0; i < n; i++) fila.marcar(desde[i], hasta[i]);
+        mLock.writeLock().lock();
+        try {
+            mFilas.put(quadId, fila);
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Elimina un quad del índice.
+     * @param quadId Identificador del quad.
+     */
+    public void eliminarQuad(int quadId) {
+        mLock.writeLock().lock();
+        try {
+            mFilas.remove(quadId);
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
+
+    /** Vacía el índice. */
+    public void vaciar() {
+        mLock.writeLock().lock();
+        try {
+            mFilas.clear();
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indica si un quad está libre todos los días de un intervalo cerrado.
+     * <p>
+     * Un quad que no está en el índice no tiene días ocupados.
+     * </p>
+     *
+     * @param quadId Identificador del quad.
+     * @param desde Primer día del intervalo (días desde la época).
+     * @param hasta Último día del intervalo (días desde la época).
+     * @return true si ningún día del intervalo está ocupado.
+     */
+    public boolean estaLibre(int quadId, long desde, long hasta) {
+        mLock.readLock().lock();
+        try {
+            Fila fila = mFilas.get(quadId);
+            return fila == null || fila.contar(desde, hasta) == 0;
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Número de días ocupados de un quad en un intervalo cerrado.
+     *
+     * @param quadId Identificador del quad.
+     * @param desde Primer día del intervalo (días desde la época).
+     * @param hasta Último día del intervalo (días desde la época).
+     * @return Días ocupados, entre 0 y {@code hasta - desde + 1}.
+     */
+    public int diasOcupados(int quadId, long desde, long hasta) {
+        mLock.readLock().lock();
+        try {
+            Fila fila = mFilas.get(quadId);
+            return fila == null ? 0 : fila.contar(desde, hasta);
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Número de quads de un tipo libres un día concreto.
+     *
+     * @param tipo Tipo de quad (ordinal de {@link TipoQuad}).
+     * @param dia Día a consultar (días desde la época).
+     * @return Quads de ese tipo sin reservas ese día.
+     */
+    public int contarLibres(int tipo, long dia) {
+        mLock.readLock().lock();
+        try {
+            int libres = 0;
+            for (Fila fila : mFilas.values()) {
+                if (fila.tipo == tipo && !fila.ocupado(dia)) libres++;
+            }
+            return libres;
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    /** @return Número de quads en el índice. */
+    public int size() {
+        mLock.readLock().lock();
+        try {
+            return mFilas.size();
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    // Bits de ocupación de un quad: palabras[k] cubre los días (primeraPalabra + k) * 64 .. + 63
+    private static final class Fila {
+        final int tipo;
+        long primeraPalabra;
+        long[] palabras = new long[0];
+
+        Fila(int tipo) {
+            this.tipo = tipo;
+        }
+
+        void marcar(long desde, long hasta) {
+            if (hasta < desde) return;
+            long wDesde = Math.floorDiv(desde, 64);
+            long wHasta = Math.floorDiv(hasta, 64);
+            cubrir(wDesde, wHasta);
+            for (long w = wDesde; w <= wHasta; w++) {
+                palabras[(int) (w - primeraPalabra)] |= mascara(w, desde, hasta);
+            }
+        }
+
+        boolean ocupado(long dia) {
+            long w = Math.floorDiv(dia, 64) - primeraPalabra;
+            if (w < 0 || w >= palabras.length) return false;
+            return (palabras[(int) w] & (1L << Math.floorMod(dia, 64))) != 0;
+        }
+
+        int contar(long desde, long hasta) {
+            if (hasta < desde || palabras.length == 0) return 0;
+            long wDesde = Math.max(Math.floorDiv(desde, 64), primeraPalabra);
+            long wHasta = Math.min(Math.floorDiv(hasta, 64), primeraPalabra + palabras.length - 1);
+            int total = 0;
+            for (long w = wDesde; w <= wHasta; w++) {
+                total += Long.bitCount(palabras[(int) (w - primeraPalabra)] & mascara(w, desde, hasta));
+            }
+            return total;
+        }
+
+        // Amplía el array para que incluya las palabras wDesde..wHasta
+        private void cubrir(long wDesde, long wHasta) {
+            if (palabras.length == 0) {
+                primeraPalabra = wDesde;
+                palabras = new long[(int) (wHasta - wDesde + 1)];
+                return;
+            }
+            long ultima = primeraPalabra + palabras.length - 1;
+            if (wDesde >= primeraPalabra && wHasta <= ultima) return;
+            long nuevaPrimera = Math.min(wDesde, primeraPalabra);
+            long nuevaUltima = Math.max(wHasta, ultima);
+            long[] nuevas = new long[(int) (nuevaUltima - nuevaPrimera + 1)];
+            System.arraycopy(palabras, 0, nuevas, (int) (primeraPalabra - nuevaPrimera), palabras.length);
+            palabras = nuevas;
+            primeraPalabra = nuevaPrimera;
+        }
+
+        // Bits de la palabra w que caen dentro de [desde, hasta]
+        private static long mascara(long w, long desde, long hasta) {
+            long base = w * 64;
+            int lo = desde > base ? (int) (desde - base) : 0;
+            int hi = hasta < base + 63 ? (int) (hasta - base) : 63;
+            return (-1L >>> (63 - hi)) & (-1L << lo);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package es.unizar.eina.notepad.domain;
+
+import java.util.Arrays;
+
+/**
+ * Tabla de precios por día indexada por identificador de quad.
+ * <p>
+ * Es un mapa int → int con direccionamiento abierto (sondeo lineal) sobre
+ * arrays primitivos: las consultas no crean objetos ni encapsulan enteros,
+ * a diferencia de un {@code Map<Integer, Integer>}. Los identificadores de
+ * quad son siempre positivos, así que 0 marca una posición libre.
+ * </p>
+ * <p>
+ * No es thread-safe: cada pantalla o proceso de recálculo usa su propia tabla.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see CalculadoraPrecios
+ */
+public final class TablaPrecios {
+
+    /** Valor devuelto por {@link #get(int)} si el quad no está en la tabla */
+    public static final int SIN_PRECIO = -1;
+
+    private static final int LIBRE = 0;
+
+    private int[] mClaves;
+    private int[] mPrecios;
+    private int mTamano;
+
+    /** Crea una tabla vacía. */
+    public TablaPrecios() {
+        this(16);
+    }
+
+    /**
+     * Crea una tabla con capacidad para al menos {@code esperados} quads sin redimensionar.
+     * @param esperados Número de quads previsto.
+     */
+    public TablaPrecios(int esperados) {
+        int capacidad = 16;
+        while (capacidad < esperados * 2) capacidad <<= 1;
+        mClaves = new int[capacidad];
+        mPrecios = new int[capacidad];
+    }
+
+    /**
+     * Asocia un precio por día a un quad, sustituyendo el anterior si lo había.
+     * @param quadId Identificador del quad (&gt; 0).
+     * @param precio Precio por día en euros.
+     */
+    public void put(int quadId, int precio) {
+        if (quadId <= LIBRE) throw new IllegalArgumentException("quadId debe ser positivo: " + quadId);
+        if ((mTamano + 1) * 2 > mClaves.length) redimensionar();
+        int i = posicion(mClaves, quadId);
+        if (mClaves[i] == LIBRE) {
+            mClaves[i] = quadId;
+            mTamano++;
+        }
+        mPrecios[i] = precio;
+    }
+
+    /**
+     * Devuelve el precio por día de un quad.
+     * @param quadId Identificador del quad.
+     * @return Precio por día, o {@link #SIN_PRECIO} si el quad no está en la tabla.
+     */
+    public int get(int quadId) {
+        if (quadId <= LIBRE) return SIN_PRECIO;
+        int i = posicion(mClaves, quadId);
+        return mClaves[i] == quadId ? mPrecios[i] : SIN_PRECIO;
+    }
+
+    /** @return Número de quads en la tabla. */
+    public int size() { return mTamano; }
+
+    /** Vacía la tabla conservando su capacidad. */
+    public void clear() {
+        Arrays.fill(mClaves, LIBRE);
+        mTamano = 0;
+    }
+
+    // Posición de la clave, o de la primera libre donde insertarla
+    private static int posicion(int[] claves, int quadId) {
+        int mascara = claves.length - 1;
+        int i = mezclar(quadId) & mascara;
+        while (claves[i] != LIBRE && claves[i] != quadId) {
+            i = (i + 1) & mascara;
+        }
+        return i;
+    }
+
+    // Dispersa los ids consecutivos para evitar agrupamientos en el sondeo lineal
+    private static int mezclar(int x) {
+        int h = x * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void redimensionar() {
+        int[] claves = mClaves;
+        int[] precios = mPrecios;
+        mClaves = new int[claves.length * 2];
+        mPrecios = new int[claves.length * 2];
+        for (int j = 0; j < claves.length; j++) {
+            if (claves[j] != LIBRE) {
+                int i = posicion(mClaves, claves[j]);
+                mClaves[i] = claves[j];
+                mPrecios[i] = precios[j];
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package es.unizar.eina.notepad.domain;
+
+/**
+ * Tipos de quad disponibles.
+ * <p>
+ * UNIPLAZA: Quad para una persona.<br>
+ * BIPLAZA: Quad para dos personas.
+ * </p>
+ * <p>
+ * La entidad {@code Quad} de la aplicación lo guarda en la base de datos por
+ * su nombre. Los algoritmos del dominio que trabajan con arrays primitivos,
+ * como {@link IndiceOcupacion}, usan su {@link #ordinal()}.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see IndiceOcupacion
+ */
+public enum TipoQuad {
+    /** Quad de una plaza */
+    UNIPLAZA,
+    /** Quad de dos plazas */
+    BIPLAZA
+}
@@ -0,0 +1,188 @@
+package es.unizar.eina.notepad.domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Detector de reservas solapadas sobre un mismo quad.
+ * <p>
+ * Para cada quad guarda sus intervalos de reserva ordenados por inicio junto
+ * con el máximo prefijo de los finales. Dado un intervalo [a, b], los
+ * candidatos son los que empiezan en o antes de b (búsqueda binaria sobre
+ * los inicios) y, de ellos, solo pueden solaparse los que están a partir del
+ * primer índice cuyo máximo prefijo de finales alcanza a (otra búsqueda
+ * binaria, porque ese máximo es creciente). Cada consulta cuesta
+ * O(log n + k), con k el número de intervalos examinados en ese tramo.
+ * </p>
+ * <p>
+ * Los intervalos son cerrados y se comparan en milisegundos, igual que la
+ * consulta de disponibilidad de {@code QuadDao}. Es thread-safe: las
+ * consultas toman el cerrojo de lectura y las modificaciones el de escritura.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see IndiceOcupacion
+ */
+public final class ValidadorConflictos {
+
+    /**
+     * Reserva existente que se solapa con la que se quiere guardar.
+     */
+    public static final class Conflicto {
+        /** Quad reservado dos veces */
+        public final int quadId;
+        /** Reserva que ya ocupa el quad */
+        public final int reservaId;
+        /** Fecha de recogida de esa reserva, en milisegundos */
+        public final long recogida;
+        /** Fecha de devolución de esa reserva, en milisegundos */
+        public final long devolucion;
+
+        public Conflicto(int quadId, int reservaId, long recogida, long devolucion) {
+            this.quadId = quadId;
+            this.reservaId = reservaId;
+            this.recogida = recogida;
+            this.devolucion = devolucion;
+        }
+    }
+
+    private final ReadWriteLock mLock = new ReentrantReadWriteLock();
+    private final Map<Integer, Intervalos> mQuads = new HashMap<>();
+
+    /**
+     * Sustituye por completo los intervalos de un quad.
+     *
+     * @param quadId Identificador del quad.
+     * @param reservaIds Reserva de cada intervalo.
+     * @param desde Inicio de cada intervalo en milisegundos.
+     * @param hasta Fin de cada intervalo en milisegundos (incluido).
+     * @param n Número de intervalos válidos.
+     */
+    public void reemplazarQuad(int quadId, int[] reservaIds, long[] desde, long[] hasta, int n) {
+        Intervalos intervalos = new Intervalos(reservaIds, desde, hasta, n);
+        mLock.writeLock().lock();
+        try {
+            mQuads.put(quadId, intervalos);
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Elimina un quad del validador.
+     * @param quadId Identificador del quad.
+     */
+    public void eliminarQuad(int quadId) {
+        mLock.writeLock().lock();
+        try {
+            mQuads.remove(quadId);
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
+
+    /** Vacía el validador. */
+    public void vaciar() {
+        mLock.writeLock().lock();
+        try {
+            mQuads.clear();
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Busca las reservas de un quad que se solapan con un intervalo.
+     *
+     * @param quadId Identificador del quad.
+     * @param desde Inicio del intervalo en milisegundos.
+     * @param hasta Fin del intervalo en milisegundos (incluido).
+     * @param excluirReservaId Reserva a ignorar (la que se está editando), o -1.
+     * @param salida Lista a la que se añaden los conflictos encontrados.
+     * @return Número de conflictos añadidos.
+     */
+    public int buscar(int quadId, long desde, long hasta, int excluirReservaId, List<Conflicto> salida) {
+        mLock.readLock().lock();
+        try {
+            Intervalos intervalos = mQuads.get(quadId);
+            return intervalos == null ? 0 : intervalos.buscar(quadId, desde, hasta, excluirReservaId, salida);
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Busca las reservas que se solapan con un intervalo en cualquiera de unos quads.
+     *
+     * @param quadIds Quads seleccionados.
+     * @param desde Inicio del intervalo en milisegundos.
+     * @param hasta Fin del intervalo en milisegundos (incluido).
+     * @param excluirReservaId Reserva a ignorar (la que se está editando), o -1.
+     * @return Conflictos encontrados, vacía si no hay ninguno.
+     */
+    public List<Conflicto> buscar(Iterable<Integer> quadIds, long desde, long hasta, int excluirReservaId) {
+        List<Conflicto> conflictos = new ArrayList<>();
+        for (Integer quadId : quadIds) buscar(quadId, desde, hasta, excluirReservaId, conflictos);
+        return conflictos;
+    }
+
+    // Intervalos de un quad ordenados por inicio, con el máximo prefijo de los finales
+    private static final class Intervalos {
+        final long[] desde;
+        final long[] hasta;
+        final long[] maxHasta;
+        final int[] reservaIds;
+
+        Intervalos(int[] ids, long[] d, long[] h, int n) {
+            Integer[] orden = new Integer[n];
+            for (int i = 0; i < n; i++) orden[i] = i;
+            Arrays.sort(orden, (x, y) -> Long.compare(d[x], d[y]));
+            desde = new long[n];
+            hasta = new long[n];
+            maxHasta = new long[n];
+            reservaIds = new int[n];
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < n; i++) {
+                int j = orden[i];
+                desde[i] = d[j];
+                hasta[i] = h[j];
+                reservaIds[i] = ids[j];
+                max = Math.max(max, h[j]);
+                maxHasta[i] = max;
+            }
+        }
+
+        int buscar(int quadId, long a, long b, int excluir, List<Conflicto> salida) {
+            // fin: primer índice que empieza después de b
+            int fin = primeroMayor(desde, b);
+            // inicio: primer índice cuyo máximo prefijo de finales llega a a
+            int inicio = primeroMayor(maxHasta, a - 1);
+            int encontrados = 0;
+            for (int i = inicio; i < fin; i++) {
+                if (hasta[i] >= a && reservaIds[i] != excluir) {
+                    salida.add(new Conflicto(quadId, reservaIds[i], desde[i], hasta[i]));
+                    encontrados++;
+                }
+            }
+            return encontrados;
+        }
+
+        // Primer índice con valores[i] > v en un array no decreciente
+        private static int primeroMayor(long[] valores, long v) {
+            int lo = 0;
+            int hi = valores.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (valores[mid] > v) hi = mid;
+                else lo = mid + 1;
+            }
+            return lo;
+        }
+    }
+}
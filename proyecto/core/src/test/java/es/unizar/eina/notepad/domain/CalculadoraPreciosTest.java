@@ -0,0 +1,110 @@
+package es.unizar.eina.notepad.domain;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Pruebas de {@link CalculadoraPrecios}.
+ * <p>
+ * Comparan el cálculo en bloque con formato CSR con un bucle sencillo
+ * reserva a reserva sobre datos aleatorios, y comprueban el mínimo de un
+ * día y los quads sin precio.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see CalculadoraPrecios
+ */
+public class CalculadoraPreciosTest {
+
+    private static final long MILLIS_DIA = 24L * 60 * 60 * 1000;
+    private static final long INICIO = 1704110400000L;
+
+    @Test
+    public void menosDeUnDiaSeCobraComoUno() {
+        assertEquals(1, CalculadoraPrecios.dias(INICIO, INICIO));
+        assertEquals(1, CalculadoraPrecios.dias(INICIO, INICIO + MILLIS_DIA - 1));
+        assertEquals(1, CalculadoraPrecios.dias(INICIO, INICIO - MILLIS_DIA));
+        assertEquals(3, CalculadoraPrecios.dias(INICIO, INICIO + 3 * MILLIS_DIA + 5));
+    }
+
+    @Test
+    public void quadsSinPrecioNoSuman() {
+        TablaPrecios tabla = new TablaPrecios();
+        tabla.put(1, 40);
+        tabla.put(2, 60);
+
+        int[] quads = {1, 2, 3, 0};
+        assertEquals(300.0, CalculadoraPrecios.total(tabla, quads, 3, 3), 0.0);
+        assertEquals(40.0, CalculadoraPrecios.total(tabla, quads, 1, INICIO, INICIO + MILLIS_DIA), 0.0);
+    }
+
+    @Test
+    public void totalesCoincideConElBucleSencillo() {
+        Random random = new Random(42);
+        int numQuads = 200;
+        int reservas = 5000;
+
+        TablaPrecios tabla = new TablaPrecios();
+        Map<Integer, Integer> precios = new HashMap<>();
+        for (int q = 1; q <= numQuads; q++) {
+            // Algunos quads se quedan sin precio
+            if (random.nextInt(10) == 0) continue;
+            int precio = 20 + random.nextInt(200);
+            tabla.put(q, precio);
+            precios.put(q, precio);
+        }
+
+        long[] recogidas = new long[reservas];
+        long[] devoluciones = new long[reservas];
+        int[] inicios = new int[reservas + 1];
+        int[][] porReserva = new int[reservas][];
+        int total = 0;
+        for (int r = 0; r < reservas; r++) {
+            recogidas[r] = INICIO + random.nextInt(365) * MILLIS_DIA;
+            // Incluye devoluciones anteriores a la recogida y de menos de un día
+            devoluciones[r] = recogidas[r] + (random.nextInt(20) - 2) * MILLIS_DIA + random.nextInt(1000);
+            porReserva[r] = new int[random.nextInt(6)];
+            for (int i = 0; i < porReserva[r].length; i++) porReserva[r][i] = 1 + random.nextInt(numQuads + 10);
+            inicios[r] = total;
+            total += porReserva[r].length;
+        }
+        inicios[reservas] = total;
+        int[] quadIds = new int[total];
+        for (int r = 0; r < reservas; r++) {
+            System.arraycopy(porReserva[r], 0, quadIds, inicios[r], porReserva[r].length);
+        }
+
+        double[] totales = new double[reservas];
+        CalculadoraPrecios.totales(tabla, recogidas, devoluciones, inicios, quadIds, totales);
+
+        for (int r = 0; r < reservas; r++) {
+            long dias = Math.max(1, (devoluciones[r] - recogidas[r]) / MILLIS_DIA);
+            double esperado = 0;
+            for (int q : porReserva[r]) {
+                Integer precio = precios.get(q);
+                if (precio != null) esperado += (double) precio * dias;
+            }
+            assertEquals("reserva " + r, esperado, totales[r], 0.0);
+            assertEquals("reserva " + r, esperado,
+                    CalculadoraPrecios.total(tabla, porReserva[r], porReserva[r].length, recogidas[r], devoluciones[r]), 0.0);
+        }
+    }
+
+    @Test
+    public void rechazaArraysInconsistentes() {
+        TablaPrecios tabla = new TablaPrecios();
+        try {
+            CalculadoraPrecios.totales(tabla, new long[2], new long[2], new int[2], new int[0], new double[2]);
+            fail("inicios debe tener una posición más que reservas");
+        } catch (IllegalArgumentException esperada) {
+            // correcto
+        }
+    }
+}
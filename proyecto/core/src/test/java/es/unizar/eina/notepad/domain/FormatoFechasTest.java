@@ -0,0 +1,104 @@
+package es.unizar.eina.notepad.domain;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Pruebas de {@link FormatoFechas}.
+ * <p>
+ * Comprueban que lo que formatea {@link FormatoFechas#corto(long)} se vuelve
+ * a leer con {@link FormatoFechas#parsear(String, long)} en varios idiomas,
+ * que día y mes se aceptan con uno o dos dígitos y que las entradas no
+ * válidas devuelven el valor por defecto.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see FormatoFechas
+ */
+public class FormatoFechasTest {
+
+    private static final ZoneId ZONA = ZoneId.of("Europe/Madrid");
+    private static final long POR_DEFECTO = -1;
+
+    private Locale mLocale;
+    private TimeZone mZona;
+
+    @Before
+    public void setUp() {
+        mLocale = Locale.getDefault();
+        mZona = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone(ZONA));
+        Locale.setDefault(new Locale("es", "ES"));
+        FormatoFechas.reiniciar();
+    }
+
+    @After
+    public void tearDown() {
+        Locale.setDefault(mLocale);
+        TimeZone.setDefault(mZona);
+        FormatoFechas.reiniciar();
+    }
+
+    @Test
+    public void cortoIdaYVuelta() {
+        for (Locale locale : new Locale[] {new Locale("es", "ES"), Locale.US, Locale.UK}) {
+            Locale.setDefault(locale);
+            // Un año entero, con los dos cambios de hora y días y meses de una y dos cifras
+            for (LocalDate d = LocalDate.of(2025, 1, 1); d.getYear() == 2025; d = d.plusDays(1)) {
+                long inicio = inicioDelDia(d);
+                // Cualquier hora del día se lee como el inicio de ese día
+                String texto = FormatoFechas.corto(inicio + 15L * 60 * 60 * 1000);
+                assertEquals(locale + " " + texto, inicio, FormatoFechas.parsear(texto, POR_DEFECTO));
+            }
+        }
+    }
+
+    @Test
+    public void diaYMesConUnoODosDigitos() {
+        long esperado = inicioDelDia(LocalDate.of(2025, 3, 5));
+
+        assertEquals(esperado, FormatoFechas.parsear("5/3/2025", POR_DEFECTO));
+        assertEquals(esperado, FormatoFechas.parsear("05/03/2025", POR_DEFECTO));
+        assertEquals(esperado, FormatoFechas.parsear("05/3/2025", POR_DEFECTO));
+        assertEquals(esperado, FormatoFechas.parsear(" 5/03/2025 ", POR_DEFECTO));
+    }
+
+    @Test
+    public void isoYMilisegundos() {
+        long esperado = inicioDelDia(LocalDate.of(2025, 12, 31));
+
+        assertEquals(esperado, FormatoFechas.parsear("2025-12-31", POR_DEFECTO));
+        assertEquals(esperado, FormatoFechas.parsear(Long.toString(esperado), POR_DEFECTO));
+    }
+
+    @Test
+    public void entradasNoValidas() {
+        assertEquals(POR_DEFECTO, FormatoFechas.parsear(null, POR_DEFECTO));
+        assertEquals(POR_DEFECTO, FormatoFechas.parsear("   ", POR_DEFECTO));
+        assertEquals(POR_DEFECTO, FormatoFechas.parsear("32/1/2025", POR_DEFECTO));
+        assertEquals(POR_DEFECTO, FormatoFechas.parsear("5-3-2025", POR_DEFECTO));
+        assertEquals(POR_DEFECTO, FormatoFechas.parsear("mañana", POR_DEFECTO));
+    }
+
+    @Test
+    public void diaEpochCoincideConElDiaLocal() {
+        for (LocalDate d = LocalDate.of(2025, 3, 28); d.isBefore(LocalDate.of(2025, 4, 2)); d = d.plusDays(1)) {
+            long inicio = inicioDelDia(d);
+            assertEquals(d.toString(), d.toEpochDay(), FormatoFechas.diaEpoch(inicio));
+            assertEquals(d.toString(), d.toEpochDay(), FormatoFechas.diaEpoch(inicioDelDia(d.plusDays(1)) - 1));
+        }
+    }
+
+    private static long inicioDelDia(LocalDate d) {
+        return d.atStartOfDay(ZONA).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,172 @@
+package es.unizar.eina.notepad.domain;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pruebas de {@link IndiceOcupacion}.
+ * <p>
+ * Cubren los bordes de las palabras de 64 días (bits 0, 63 y 64), rangos que
+ * abarcan varias palabras, días anteriores a la época y que reemplazar o
+ * eliminar un quad desmarca sus días. Se comparan también con un conjunto de
+ * días calculado a mano sobre datos aleatorios.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see IndiceOcupacion
+ */
+public class IndiceOcupacionTest {
+
+    private static final int QUAD = 3;
+    private static final int TIPO = 0;
+
+    private IndiceOcupacion mIndice;
+
+    @Before
+    public void setUp() {
+        mIndice = new IndiceOcupacion();
+    }
+
+    @Test
+    public void bitCeroDeUnaPalabra() {
+        marcar(QUAD, 0, 0);
+
+        assertFalse(mIndice.estaLibre(QUAD, 0, 0));
+        assertTrue(mIndice.estaLibre(QUAD, 1, 63));
+        assertTrue(mIndice.estaLibre(QUAD, -64, -1));
+        assertEquals(1, mIndice.diasOcupados(QUAD, -100, 100));
+    }
+
+    @Test
+    public void bit63DeUnaPalabra() {
+        marcar(QUAD, 63, 63);
+
+        assertFalse(mIndice.estaLibre(QUAD, 63, 63));
+        assertTrue(mIndice.estaLibre(QUAD, 0, 62));
+        assertTrue(mIndice.estaLibre(QUAD, 64, 127));
+        assertEquals(1, mIndice.diasOcupados(QUAD, 0, 127));
+    }
+
+    @Test
+    public void bit64EmpiezaOtraPalabra() {
+        marcar(QUAD, 64, 64);
+
+        assertFalse(mIndice.estaLibre(QUAD, 64, 64));
+        assertTrue(mIndice.estaLibre(QUAD, 0, 63));
+        assertTrue(mIndice.estaLibre(QUAD, 65, 200));
+        assertEquals(1, mIndice.diasOcupados(QUAD, 63, 65));
+    }
+
+    @Test
+    public void rangoQueCruzaElBordeDePalabra() {
+        marcar(QUAD, 63, 64);
+
+        assertEquals(2, mIndice.diasOcupados(QUAD, 0, 127));
+        assertEquals(1, mIndice.diasOcupados(QUAD, 0, 63));
+        assertEquals(1, mIndice.diasOcupados(QUAD, 64, 127));
+        assertTrue(mIndice.estaLibre(QUAD, 65, 65));
+        assertTrue(mIndice.estaLibre(QUAD, 62, 62));
+    }
+
+    @Test
+    public void rangoDeVariasPalabras() {
+        marcar(QUAD, 10, 300);
+
+        assertEquals(291, mIndice.diasOcupados(QUAD, 0, 400));
+        assertEquals(64, mIndice.diasOcupados(QUAD, 128, 191));
+        assertEquals(54, mIndice.diasOcupados(QUAD, 10, 63));
+        assertEquals(45, mIndice.diasOcupados(QUAD, 256, 320));
+        assertTrue(mIndice.estaLibre(QUAD, 0, 9));
+        assertTrue(mIndice.estaLibre(QUAD, 301, 1000));
+        assertFalse(mIndice.estaLibre(QUAD, 9, 10));
+    }
+
+    @Test
+    public void diasAnterioresALaEpoca() {
+        marcar(QUAD, -65, -64);
+
+        assertEquals(2, mIndice.diasOcupados(QUAD, -200, 0));
+        assertTrue(mIndice.estaLibre(QUAD, -63, 0));
+        assertTrue(mIndice.estaLibre(QUAD, -200, -66));
+    }
+
+    @Test
+    public void ampliaLaFilaHaciaAmbosLados() {
+        mIndice.reemplazarQuad(QUAD, TIPO, new long[] {500, 0, 1000}, new long[] {510, 5, 1001}, 3);
+
+        assertEquals(11 + 6 + 2, mIndice.diasOcupados(QUAD, 0, 1001));
+        assertTrue(mIndice.estaLibre(QUAD, 6, 499));
+        assertTrue(mIndice.estaLibre(QUAD, 511, 999));
+    }
+
+    @Test
+    public void reemplazarDesmarcaLosDiasAnteriores() {
+        marcar(QUAD, 0, 200);
+        marcar(QUAD, 100, 110);
+
+        assertEquals(11, mIndice.diasOcupados(QUAD, 0, 200));
+        assertTrue(mIndice.estaLibre(QUAD, 0, 99));
+        assertTrue(mIndice.estaLibre(QUAD, 111, 200));
+
+        mIndice.reemplazarQuad(QUAD, TIPO, new long[0], new long[0], 0);
+        assertTrue(mIndice.estaLibre(QUAD, 0, 200));
+        assertEquals(1, mIndice.size());
+    }
+
+    @Test
+    public void eliminarDesmarcaElQuad() {
+        marcar(QUAD, 0, 10);
+        mIndice.eliminarQuad(QUAD);
+
+        assertTrue(mIndice.estaLibre(QUAD, 0, 10));
+        assertEquals(0, mIndice.size());
+    }
+
+    @Test
+    public void contarLibresPorTipo() {
+        mIndice.reemplazarQuad(1, 0, new long[] {10}, new long[] {20}, 1);
+        mIndice.reemplazarQuad(2, 0, new long[] {30}, new long[] {40}, 1);
+        mIndice.reemplazarQuad(3, 1, new long[] {10}, new long[] {20}, 1);
+
+        assertEquals(1, mIndice.contarLibres(0, 15));
+        assertEquals(0, mIndice.contarLibres(1, 15));
+        assertEquals(2, mIndice.contarLibres(0, 25));
+        assertEquals(1, mIndice.contarLibres(1, 64));
+    }
+
+    @Test
+    public void coincideConUnConjuntoDeDias() {
+        Random random = new Random(7);
+        int dias = 1_000;
+        int n = 40;
+        long[] desde = new long[n];
+        long[] hasta = new long[n];
+        boolean[] ocupado = new boolean[dias];
+        for (int i = 0; i < n; i++) {
+            desde[i] = random.nextInt(dias - 100);
+            hasta[i] = desde[i] + random.nextInt(100);
+            for (long d = desde[i]; d <= hasta[i]; d++) ocupado[(int) d] = true;
+        }
+        mIndice.reemplazarQuad(QUAD, TIPO, desde, hasta, n);
+
+        for (int k = 0; k < 2_000; k++) {
+            int a = random.nextInt(dias);
+            int b = Math.min(dias - 1, a + random.nextInt(200));
+            int esperado = 0;
+            for (int d = a; d <= b; d++) if (ocupado[d]) esperado++;
+            assertEquals("[" + a + ", " + b + "]", esperado, mIndice.diasOcupados(QUAD, a, b));
+            assertEquals(esperado == 0, mIndice.estaLibre(QUAD, a, b));
+        }
+    }
+
+    private void marcar(int quadId, long desde, long hasta) {
+        mIndice.reemplazarQuad(quadId, TIPO, new long[] {desde}, new long[] {hasta}, 1);
+    }
+}
@@ -0,0 +1,131 @@
+package es.unizar.eina.notepad.domain;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Pruebas de {@link TablaPrecios}.
+ * <p>
+ * Cubren el crecimiento al superar el factor de carga, las claves que no
+ * están en la tabla, la reutilización tras {@link TablaPrecios#clear()} y
+ * las claves que caen en la misma posición del sondeo lineal.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see TablaPrecios
+ */
+public class TablaPreciosTest {
+
+    /** Capacidad inicial de una tabla vacía; la novena clave la redimensiona */
+    private static final int CAPACIDAD = 16;
+
+    private TablaPrecios mTabla;
+
+    @Before
+    public void setUp() {
+        mTabla = new TablaPrecios();
+    }
+
+    @Test
+    public void creceAlSuperarElFactorDeCarga() {
+        int n = 1000;
+        for (int id = 1; id <= n; id++) mTabla.put(id, id * 10);
+
+        assertEquals(n, mTabla.size());
+        for (int id = 1; id <= n; id++) assertEquals("quad " + id, id * 10, mTabla.get(id));
+        assertEquals(TablaPrecios.SIN_PRECIO, mTabla.get(n + 1));
+    }
+
+    @Test
+    public void creceJustoEnElLimite() {
+        // La mitad de la capacidad inicial cabe; la siguiente clave obliga a redimensionar
+        for (int id = 1; id <= CAPACIDAD / 2; id++) mTabla.put(id, id);
+        mTabla.put(CAPACIDAD / 2 + 1, 99);
+
+        assertEquals(CAPACIDAD / 2 + 1, mTabla.size());
+        for (int id = 1; id <= CAPACIDAD / 2; id++) assertEquals(id, mTabla.get(id));
+        assertEquals(99, mTabla.get(CAPACIDAD / 2 + 1));
+    }
+
+    @Test
+    public void claveAusente() {
+        assertEquals(TablaPrecios.SIN_PRECIO, mTabla.get(1));
+
+        mTabla.put(5, 50);
+        assertEquals(TablaPrecios.SIN_PRECIO, mTabla.get(6));
+        assertEquals(TablaPrecios.SIN_PRECIO, mTabla.get(0));
+        assertEquals(TablaPrecios.SIN_PRECIO, mTabla.get(-5));
+    }
+
+    @Test
+    public void rechazaIdsNoPositivos() {
+        try {
+            mTabla.put(0, 10);
+            fail("put(0) debería fallar");
+        } catch (IllegalArgumentException esperada) {
+            assertEquals(0, mTabla.size());
+        }
+    }
+
+    @Test
+    public void sustituyeElPrecioSinCrecer() {
+        mTabla.put(7, 70);
+        mTabla.put(7, 75);
+
+        assertEquals(1, mTabla.size());
+        assertEquals(75, mTabla.get(7));
+    }
+
+    @Test
+    public void reutilizableTrasClear() {
+        for (int id = 1; id <= 100; id++) mTabla.put(id, id);
+        mTabla.clear();
+
+        assertEquals(0, mTabla.size());
+        for (int id = 1; id <= 100; id++) assertEquals(TablaPrecios.SIN_PRECIO, mTabla.get(id));
+
+        for (int id = 51; id <= 150; id++) mTabla.put(id, id * 2);
+        assertEquals(100, mTabla.size());
+        assertEquals(TablaPrecios.SIN_PRECIO, mTabla.get(50));
+        for (int id = 51; id <= 150; id++) assertEquals(id * 2, mTabla.get(id));
+    }
+
+    @Test
+    public void colisiones() {
+        List<Integer> mismaPosicion = colisionan(7);
+        assertEquals(7, mismaPosicion.size());
+        for (int id : mismaPosicion) mTabla.put(id, id + 1);
+
+        assertEquals(7, mTabla.size());
+        for (int id : mismaPosicion) assertEquals("quad " + id, id + 1, mTabla.get(id));
+        // Una clave ausente con la misma posición recorre toda la cadena y no la encuentra
+        assertEquals(TablaPrecios.SIN_PRECIO, mTabla.get(colisionan(8).get(7)));
+
+        // Tras redimensionar siguen todas accesibles
+        for (int id = 1; id <= 50; id++) if (!mismaPosicion.contains(id)) mTabla.put(id, -id);
+        for (int id : mismaPosicion) assertEquals("quad " + id, id + 1, mTabla.get(id));
+    }
+
+    // Ids que caen en la misma posición inicial de una tabla de capacidad inicial
+    private static List<Integer> colisionan(int n) {
+        List<Integer> ids = new ArrayList<>();
+        int objetivo = posicionInicial(1);
+        for (int id = 1; ids.size() < n; id++) {
+            if (posicionInicial(id) == objetivo) ids.add(id);
+        }
+        return ids;
+    }
+
+    // Misma dispersión que TablaPrecios
+    private static int posicionInicial(int id) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (CAPACIDAD - 1);
+    }
+}
@@ -0,0 +1,150 @@
+package es.unizar.eina.notepad.domain;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Pruebas de {@link ValidadorConflictos}.
+ * <p>
+ * Además de los casos límite (intervalos que se tocan en un extremo, la
+ * reserva excluida, quads sin reservas y entrada desordenada), compara las
+ * dos búsquedas binarias con una búsqueda lineal sobre datos aleatorios.
+ * </p>
+ *
+ * @author Juan Ondiviela Pamplona 897735 y Rubén Villar Artajona 896654 - Universidad de Zaragoza
+ * @version 1.0
+ * @see ValidadorConflictos
+ */
+public class ValidadorConflictosTest {
+
+    private static final int QUAD = 7;
+
+    private ValidadorConflictos mValidador;
+
+    @Before
+    public void setUp() {
+        mValidador = new ValidadorConflictos();
+    }
+
+    @Test
+    public void intervalosQueSeTocanEnUnExtremoSeSolapan() {
+        cargar(QUAD, new int[] {1}, new long[] {100}, new long[] {200});
+
+        assertEquals(Collections.singletonList(1), reservas(QUAD, 200, 300, -1));
+        assertEquals(Collections.singletonList(1), reservas(QUAD, 50, 100, -1));
+        assertTrue(reservas(QUAD, 201, 300, -1).isEmpty());
+        assertTrue(reservas(QUAD, 0, 99, -1).isEmpty());
+    }
+
+    @Test
+    public void intervaloContenidoYQueContieneSeSolapan() {
+        cargar(QUAD, new int[] {1}, new long[] {100}, new long[] {200});
+
+        assertEquals(Collections.singletonList(1), reservas(QUAD, 150, 160, -1));
+        assertEquals(Collections.singletonList(1), reservas(QUAD, 0, 1000, -1));
+    }
+
+    @Test
+    public void laReservaExcluidaNoEsConflicto() {
+        cargar(QUAD, new int[] {1, 2}, new long[] {100, 150}, new long[] {200, 250});
+
+        assertEquals(Collections.singletonList(2), reservas(QUAD, 120, 180, 1));
+        assertEquals(Collections.singletonList(1), reservas(QUAD, 120, 180, 2));
+        assertEquals(Arrays.asList(1, 2), reservas(QUAD, 120, 180, -1));
+    }
+
+    @Test
+    public void quadSinReservasNoTieneConflictos() {
+        cargar(QUAD, new int[0], new long[0], new long[0]);
+
+        assertTrue(reservas(QUAD, Long.MIN_VALUE / 2, Long.MAX_VALUE / 2, -1).isEmpty());
+        assertTrue(reservas(QUAD + 1, 0, 1000, -1).isEmpty());
+    }
+
+    @Test
+    public void entradaDesordenadaSeOrdenaPorInicio() {
+        // Una reserva larga al principio queda tapada por el máximo prefijo de los finales
+        cargar(QUAD, new int[] {3, 1, 2}, new long[] {500, 0, 100}, new long[] {600, 1000, 120});
+
+        assertEquals(Arrays.asList(1, 3), reservas(QUAD, 550, 560, -1));
+        assertEquals(Arrays.asList(1, 2), reservas(QUAD, 110, 110, -1));
+        assertTrue(reservas(QUAD, 1001, 2000, -1).isEmpty());
+    }
+
+    @Test
+    public void soloSeBuscanLosQuadsIndicados() {
+        cargar(1, new int[] {10}, new long[] {0}, new long[] {10});
+        cargar(2, new int[] {20}, new long[] {0}, new long[] {10});
+
+        List<ValidadorConflictos.Conflicto> conflictos = mValidador.buscar(Collections.singletonList(2), 5, 5, -1);
+
+        assertEquals(1, conflictos.size());
+        assertEquals(2, conflictos.get(0).quadId);
+        assertEquals(20, conflictos.get(0).reservaId);
+        assertEquals(0, conflictos.get(0).recogida);
+        assertEquals(10, conflictos.get(0).devolucion);
+    }
+
+    @Test
+    public void reemplazarYEliminarQuitanIntervalos() {
+        cargar(QUAD, new int[] {1, 2}, new long[] {0, 100}, new long[] {10, 110});
+        cargar(QUAD, new int[] {2}, new long[] {100}, new long[] {110});
+
+        assertTrue(reservas(QUAD, 0, 10, -1).isEmpty());
+        assertEquals(Collections.singletonList(2), reservas(QUAD, 105, 105, -1));
+
+        mValidador.eliminarQuad(QUAD);
+        assertTrue(reservas(QUAD, 105, 105, -1).isEmpty());
+    }
+
+    @Test
+    public void coincideConUnaBusquedaLineal() {
+        Random random = new Random(42);
+        int n = 200;
+        int[] ids = new int[n];
+        long[] desde = new long[n];
+        long[] hasta = new long[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i + 1;
+            desde[i] = random.nextInt(10_000);
+            hasta[i] = desde[i] + random.nextInt(random.nextInt(10) == 0 ? 3_000 : 100);
+        }
+        cargar(QUAD, ids, desde, hasta);
+
+        for (int k = 0; k < 2_000; k++) {
+            long a = random.nextInt(11_000) - 500;
+            long b = a + random.nextInt(300);
+            int excluir = random.nextInt(4) == 0 ? 1 + random.nextInt(n) : -1;
+            List<Integer> esperadas = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                if (desde[i] <= b && hasta[i] >= a && ids[i] != excluir) esperadas.add(ids[i]);
+            }
+            Collections.sort(esperadas);
+            assertEquals("[" + a + ", " + b + "]", esperadas, reservas(QUAD, a, b, excluir));
+        }
+    }
+
+    private void cargar(int quadId, int[] ids, long[] desde, long[] hasta) {
+        mValidador.reemplazarQuad(quadId, ids, desde, hasta, ids.length);
+    }
+
+    // Ids de las reservas en conflicto, ordenados
+    private List<Integer> reservas(int quadId, long desde, long hasta, int excluir) {
+        List<ValidadorConflictos.Conflicto> salida = new ArrayList<>();
+        int n = mValidador.buscar(quadId, desde, hasta, excluir, salida);
+        assertEquals(salida.size(), n);
+        List<Integer> ids = new ArrayList<>();
+        for (ValidadorConflictos.Conflicto c : salida) ids.add(c.reservaId);
+        Collections.sort(ids);
+        return ids;
+    }
+}